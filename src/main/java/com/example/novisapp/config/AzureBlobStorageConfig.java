@@ -3,6 +3,7 @@ package com.example.novisapp.config;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,8 +11,10 @@ import org.springframework.context.annotation.Configuration;
  * Configuración para Azure Blob Storage
  * Sistema de gestión documental avanzado
  * Estructura de paquete plano
+ * Solo se activa con novis.storage.backend=azure (valor por defecto)
  */
 @Configuration
+@ConditionalOnProperty(name = "novis.storage.backend", havingValue = "azure", matchIfMissing = true)
 public class AzureBlobStorageConfig {
 
     @Value("${azure.storage.connection-string:DefaultEndpointsProtocol=https;AccountName=novisapp;AccountKey=demo-key;EndpointSuffix=core.windows.net}")
@@ -0,0 +1,12 @@
+package com.example.novisapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas del sistema (flush de auditoría, limpiezas, reconciliaciones)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
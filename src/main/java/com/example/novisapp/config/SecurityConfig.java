@@ -130,13 +130,17 @@ public class SecurityConfig {
                 "Accept",
                 "Origin",
                 "Cache-Control",
-                "X-File-Name"
+                "X-File-Name",
+                "X-Chunk-Checksum",
+                "Range"
         ));
 
         configuration.setExposedHeaders(Arrays.asList(
                 "Authorization",
                 "X-Total-Count",
-                "X-File-Name"
+                "X-File-Name",
+                "Accept-Ranges",
+                "Content-Range"
         ));
 
         configuration.setAllowCredentials(true);
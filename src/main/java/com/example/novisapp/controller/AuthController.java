@@ -2,16 +2,24 @@ package com.example.novisapp.controller;
 
 import com.example.novisapp.entity.User;
 import com.example.novisapp.entity.UserRole;
+import com.example.novisapp.security.ClientIpResolver;
 import com.example.novisapp.security.JwtTokenUtil;
+import com.example.novisapp.service.LoginAttemptService;
+import com.example.novisapp.service.TokenRevocationService;
 import com.example.novisapp.service.UserService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -31,16 +39,35 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtTokenUtil jwtTokenUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginAttemptService loginAttemptService;
+    private final ClientIpResolver clientIpResolver;
     private final PasswordEncoder passwordEncoder; // ✅ AGREGADO PARA DEBUG
 
     /**
      * Login endpoint
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest httpRequest) {
         try {
             log.info("Intento de login para: {}", loginRequest.getEmail());
 
+            // Límites por email e IP y bloqueo en memoria: se rechaza antes de verificar la contraseña (BCrypt).
+            // La IP es la del cliente, no la del proxy: si no, el límite por IP sería uno global para todos
+            long retryAfter = loginAttemptService.tryAcquire(loginRequest.getEmail(), clientIpResolver.resolve(httpRequest));
+            if (retryAfter > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                        .body(Map.of(
+                                "error", "TOO_MANY_ATTEMPTS",
+                                "message", "Demasiados intentos de inicio de sesión. Intente más tarde"
+                        ));
+            }
+
+            if (loginAttemptService.isLocked(loginRequest.getEmail())) {
+                return accountLockedResponse(loginRequest.getEmail());
+            }
+
             // Autenticar usuario
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -79,6 +106,9 @@ public class AuthController {
                             "message", "Email o contraseña incorrectos"
                     ));
 
+        } catch (LockedException e) {
+            return accountLockedResponse(loginRequest.getEmail());
+
         } catch (DisabledException e) {
             log.warn("Usuario deshabilitado: {}", loginRequest.getEmail());
 
@@ -99,6 +129,16 @@ public class AuthController {
         }
     }
 
+    private ResponseEntity<?> accountLockedResponse(String email) {
+        log.warn("Usuario bloqueado por intentos fallidos: {}", email);
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of(
+                        "error", "ACCOUNT_LOCKED",
+                        "message", "Cuenta bloqueada por intentos fallidos. Contacte al administrador"
+                ));
+    }
+
     /**
      * ⚠️ ENDPOINT TEMPORAL - Solo para debugging - ELIMINAR después del testing
      */
@@ -152,8 +192,17 @@ public class AuthController {
     @PostMapping("/logout")
     public ResponseEntity<?> logout(@RequestHeader("Authorization") String authHeader) {
         try {
-            // En un sistema más avanzado, aquí agregaríamos el token a una blacklist
-            // Por ahora, solo limpiamos el contexto de seguridad
+            // Revocar el token hasta su expiración y descartar su verificación cacheada
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                String token = authHeader.substring(7);
+                try {
+                    Claims claims = jwtTokenUtil.parseToken(token);
+                    tokenRevocationService.revoke(claims.getId(), claims.get("userId", Long.class), claims.getExpiration());
+                } catch (JwtException e) {
+                    log.debug("Logout con token inválido o expirado: {}", e.getMessage());
+                }
+                jwtTokenUtil.evictVerifiedToken(token);
+            }
             SecurityContextHolder.clearContext();
 
             log.info("Usuario deslogueado exitosamente");
@@ -210,6 +259,11 @@ public class AuthController {
                         .body(Map.of("error", "EXPIRED_TOKEN", "message", "Token expirado"));
             }
 
+            if (tokenRevocationService.isRevoked(jwtTokenUtil.getTokenIdFromToken(token))) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "REVOKED_TOKEN", "message", "Token revocado"));
+            }
+
             String newToken = jwtTokenUtil.refreshToken(token);
 
             return ResponseEntity.ok(Map.of(
@@ -325,7 +379,8 @@ public class AuthController {
             }
 
             String token = authHeader.substring(7);
-            boolean isValid = jwtTokenUtil.validateToken(token);
+            boolean isValid = jwtTokenUtil.validateToken(token)
+                    && !tokenRevocationService.isRevoked(jwtTokenUtil.getTokenIdFromToken(token));
 
             if (isValid) {
                 return ResponseEntity.ok(Map.of(
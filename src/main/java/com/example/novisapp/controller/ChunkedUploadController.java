@@ -0,0 +1,193 @@
+package com.example.novisapp.controller;
+
+import com.example.novisapp.dto.DocumentResponseDTO;
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentCategory;
+import com.example.novisapp.entity.DocumentUploadSession;
+import com.example.novisapp.entity.User;
+import com.example.novisapp.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Endpoints de upload reanudable por partes.
+ * Flujo: POST /documents/uploads -> PUT /documents/uploads/{id}?offset=N (cuerpo binario, cabecera
+ * X-Chunk-Checksum con el SHA-256 en Base64) -> POST /documents/uploads/{id}/complete.
+ * Ante un corte, GET /documents/uploads/{id} devuelve receivedBytes para reanudar.
+ */
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @PostMapping("/documents/uploads")
+    public ResponseEntity<?> initUpload(
+            @RequestParam("userId") Long userId,
+            @RequestParam(value = "caseId", required = false) Long caseId,
+            @RequestParam("fileName") String fileName,
+            @RequestParam("fileSize") long fileSize,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "category", required = false) DocumentCategory category,
+            @RequestParam(value = "description", required = false) String description,
+            HttpServletRequest request) {
+
+        try {
+            log.debug("Init chunked upload - Case: {}, User: {}, File: {} ({} bytes)", caseId, userId, fileName, fileSize);
+
+            DocumentUploadSession session = chunkedUploadService.initUpload(caseId, userId, fileName, contentType,
+                    fileSize, category, description, request);
+
+            Map<String, Object> response = sessionResponse(session);
+            response.put("message", "Sesión de upload creada");
+            response.put("chunkSize", chunkedUploadService.getRecommendedChunkSize());
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (Exception e) {
+            log.error("Init chunked upload error - File: {}, Error: {}", fileName, e.getMessage(), e);
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/documents/uploads/{uploadId}")
+    public ResponseEntity<?> getUploadStatus(@PathVariable String uploadId) {
+
+        try {
+            return ResponseEntity.ok(sessionResponse(chunkedUploadService.getSession(uploadId)));
+
+        } catch (Exception e) {
+            log.error("Get chunked upload error - ID: {}, Error: {}", uploadId, e.getMessage());
+            return errorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @PutMapping("/documents/uploads/{uploadId}")
+    public ResponseEntity<?> putChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            @RequestHeader(value = "X-Chunk-Checksum", required = false) String checksum,
+            HttpServletRequest request,
+            Authentication authentication) {
+
+        try {
+            long length = request.getContentLengthLong();
+            log.debug("Put chunk - ID: {}, Offset: {}, Length: {}", uploadId, offset, length);
+
+            // Cuerpo binario leído directamente del request: no pasa por el resolver multipart ni por tmpdir
+            DocumentUploadSession session;
+            try (InputStream in = request.getInputStream()) {
+                session = chunkedUploadService.putChunk(uploadId, currentUserId(authentication), offset, length, checksum, in);
+            }
+
+            return ResponseEntity.ok(sessionResponse(session));
+
+        } catch (IllegalStateException e) {
+            log.warn("Put chunk conflict - ID: {}, Offset: {}, Error: {}", uploadId, offset, e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            try {
+                errorResponse.put("receivedBytes", chunkedUploadService.getSession(uploadId).getReceivedBytes());
+            } catch (Exception ignored) {
+                // La sesión no existe: solo se devuelve el mensaje
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Put chunk rejected - ID: {}, Offset: {}, Error: {}", uploadId, offset, e.getMessage());
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+
+        } catch (Exception e) {
+            log.error("Put chunk error - ID: {}, Offset: {}, Error: {}", uploadId, offset, e.getMessage(), e);
+            return errorResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @PostMapping("/documents/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId, Authentication authentication) {
+
+        try {
+            log.info("Complete chunked upload - ID: {}", uploadId);
+
+            Document document = chunkedUploadService.completeUpload(uploadId, currentUserId(authentication));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Documento subido exitosamente");
+            response.put("document", DocumentResponseDTO.fromDocument(document));
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            log.warn("Complete chunked upload conflict - ID: {}, Error: {}", uploadId, e.getMessage());
+            return errorResponse(HttpStatus.CONFLICT, e.getMessage());
+
+        } catch (Exception e) {
+            log.error("Complete chunked upload error - ID: {}, Error: {}", uploadId, e.getMessage(), e);
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/documents/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId, Authentication authentication) {
+
+        try {
+            chunkedUploadService.abortUpload(uploadId, currentUserId(authentication));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Upload cancelado");
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Abort chunked upload error - ID: {}, Error: {}", uploadId, e.getMessage(), e);
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // =================================================
+    // MÉTODOS AUXILIARES
+    // =================================================
+
+    private Map<String, Object> sessionResponse(DocumentUploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("uploadId", session.getId());
+        response.put("status", session.getStatus());
+        response.put("fileName", session.getOriginalFileName());
+        response.put("totalSize", session.getTotalSize());
+        response.put("receivedBytes", session.getReceivedBytes());
+        response.put("expiresAt", session.getExpiresAt());
+        if (session.getDocumentId() != null) {
+            response.put("documentId", session.getDocumentId());
+        }
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(HttpStatus status, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
+    private Long currentUserId(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
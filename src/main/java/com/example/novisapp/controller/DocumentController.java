@@ -3,24 +3,46 @@ package com.example.novisapp.controller;
 import com.azure.storage.blob.BlobServiceClient;
 import com.example.novisapp.entity.Document;
 import com.example.novisapp.entity.DocumentCategory;
+import com.example.novisapp.entity.DocumentVersion;
 import com.example.novisapp.dto.DocumentResponseDTO;
+import com.example.novisapp.dto.DocumentSearchHitDTO;
+import com.example.novisapp.security.ClientIpResolver;
+import com.example.novisapp.service.DocumentArchiveService;
+import com.example.novisapp.service.DocumentEncryptionService;
+import com.example.novisapp.service.DocumentRenditionService;
+import com.example.novisapp.service.DocumentRetentionService;
+import com.example.novisapp.service.DocumentScanService;
+import com.example.novisapp.service.DocumentSearchIndexService;
 import com.example.novisapp.service.DocumentService;
+import com.example.novisapp.service.DocumentStatisticsService;
+import com.example.novisapp.service.DocumentStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.nio.channels.Channels;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controlador REST para gestión documental avanzada con debugging completo
@@ -34,7 +56,16 @@ import java.util.Map;
 public class DocumentController {
 
     private final DocumentService documentService;
-    private final BlobServiceClient blobServiceClient; // Para debugging de Azure
+    private final DocumentStorage documentStorage;
+    private final DocumentSearchIndexService documentSearchIndexService;
+    private final DocumentRenditionService documentRenditionService;
+    private final DocumentStatisticsService documentStatisticsService;
+    private final DocumentArchiveService documentArchiveService;
+    private final DocumentRetentionService documentRetentionService;
+    private final DocumentScanService documentScanService;
+    private final DocumentEncryptionService documentEncryptionService;
+    private final ClientIpResolver clientIpResolver;
+    private final ObjectProvider<BlobServiceClient> blobServiceClientProvider; // Para debugging de Azure (solo backend azure)
 
     // =================================================
     // ENDPOINTS DE UPLOAD CON DEBUGGING
@@ -59,7 +90,7 @@ public class DocumentController {
             log.debug("File type: {}", file.getContentType());
             log.debug("Category: {}", category);
             log.debug("Description: {}", description);
-            log.debug("Request IP: {}", getClientIpAddress(request));
+            log.debug("Request IP: {}", clientIpResolver.resolve(request));
             log.debug("User-Agent: {}", request.getHeader("User-Agent"));
             log.debug("Content-Length header: {}", request.getHeader("Content-Length"));
             log.debug("================================");
@@ -170,25 +201,48 @@ public class DocumentController {
     // =================================================
 
     @GetMapping("/documents/{documentId}/download")
-    public ResponseEntity<byte[]> downloadDocument(
+    public ResponseEntity<StreamingResponseBody> downloadDocument(
             @PathVariable Long documentId,
-            @RequestParam("userId") Long userId) {
+            @RequestParam("userId") Long userId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) {
 
         try {
-            log.debug("Download request - Document: {}, User: {}", documentId, userId);
-
-            Document document = documentService.getDocumentById(documentId);
-            byte[] fileContent = documentService.downloadDocument(documentId, userId);
+            log.debug("Download request - Document: {}, User: {}, Range: {}", documentId, userId, rangeHeader);
 
-            log.debug("Download successful - File: {} ({} bytes)",
-                    document.getOriginalFileName(), fileContent.length);
+            Document document = documentService.prepareDownload(documentId, userId);
+            long fileSize = document.getFileSize();
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType(document.getMimeType()));
             headers.setContentDispositionFormData("attachment", document.getOriginalFileName());
-            headers.setContentLength(fileContent.length);
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            // Rango único (reproductores de audio/video, descargas reanudadas); varios rangos se sirven completos
+            List<HttpRange> ranges = rangeHeader != null ? HttpRange.parseRanges(rangeHeader) : List.of();
+            if (ranges.size() == 1) {
+                long start = ranges.get(0).getRangeStart(fileSize);
+                long end = ranges.get(0).getRangeEnd(fileSize);
+
+                StreamingResponseBody body = outputStream ->
+                        documentService.transferDocumentContent(document, start, end - start + 1, Channels.newChannel(outputStream));
+
+                headers.setContentLength(end - start + 1);
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+                return new ResponseEntity<>(body, headers, HttpStatus.PARTIAL_CONTENT);
+            }
+
+            // El contenido se copia del storage a la respuesta en streaming, sin buffer del archivo completo
+            StreamingResponseBody body = outputStream -> {
+                long transferred = documentService.transferDocumentContent(document, Channels.newChannel(outputStream));
+                log.debug("Download successful - File: {} ({} bytes)", document.getOriginalFileName(), transferred);
+            };
 
-            return new ResponseEntity<>(fileContent, headers, HttpStatus.OK);
+            headers.setContentLength(fileSize);
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Download range not satisfiable - Document: {}, Range: {}", documentId, rangeHeader);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).body(null);
 
         } catch (Exception e) {
             log.error("Download error - Document: {}, User: {}, Error: {}", documentId, userId, e.getMessage(), e);
@@ -196,20 +250,111 @@ public class DocumentController {
         }
     }
 
+    @GetMapping("/cases/{caseId}/documents/archive")
+    public ResponseEntity<StreamingResponseBody> downloadCaseArchive(
+            @PathVariable Long caseId,
+            @RequestParam(value = "category", required = false) DocumentCategory category,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        try {
+            log.debug("Case archive request - Case: {}, Category: {}, From: {}, To: {}", caseId, category, from, to);
+
+            // "to" es inclusivo: se exporta hasta el final de ese día
+            List<Document> documents = documentArchiveService.findArchiveDocuments(caseId, category,
+                    from != null ? from.atStartOfDay() : null,
+                    to != null ? to.plusDays(1).atStartOfDay() : null);
+
+            // El ZIP se genera al vuelo mientras se envía; no se conoce su tamaño de antemano
+            StreamingResponseBody body = outputStream ->
+                    documentArchiveService.writeArchive(caseId, documents, outputStream);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/zip"));
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename("caso-" + caseId + "-documentos.zip")
+                    .build());
+
+            log.info("Case archive started - Case: {}, Documents: {}", caseId, documents.size());
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+
+        } catch (Exception e) {
+            log.error("Case archive error - Case: {}, Error: {}", caseId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    @GetMapping("/documents/{documentId}/thumbnail")
+    public ResponseEntity<StreamingResponseBody> getThumbnail(@PathVariable Long documentId, WebRequest webRequest) {
+        return streamRendition(documentId, true, webRequest);
+    }
+
+    @GetMapping("/documents/{documentId}/preview")
+    public ResponseEntity<StreamingResponseBody> getPreview(@PathVariable Long documentId, WebRequest webRequest) {
+        return streamRendition(documentId, false, webRequest);
+    }
+
+    @GetMapping("/documents/renditions/status")
+    public ResponseEntity<?> getRenditionQueueStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("status", documentRenditionService.getQueueStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/documents/scanning/status")
+    public ResponseEntity<?> getScanQueueStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("status", documentScanService.getQueueStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Las renditions tienen nombre único por blob y nunca cambian: se sirven con caché larga y ETag
+     */
+    private ResponseEntity<StreamingResponseBody> streamRendition(Long documentId, boolean thumbnail, WebRequest webRequest) {
+        try {
+            Document document = documentService.getDocumentForRendition(documentId, thumbnail);
+            String etag = "\"" + (thumbnail ? document.getThumbnailBlobName() : document.getPreviewBlobName()) + "\"";
+
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            StreamingResponseBody body = outputStream ->
+                    documentService.transferRendition(document, thumbnail, Channels.newChannel(outputStream));
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate())
+                    .eTag(etag)
+                    .body(body);
+
+        } catch (Exception e) {
+            log.debug("Rendition not available - Document: {}, Thumbnail: {}, Error: {}", documentId, thumbnail, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
     @GetMapping("/documents/{documentId}/download-url")
     public ResponseEntity<?> getDownloadUrl(
             @PathVariable Long documentId,
-            @RequestParam(value = "expirationMinutes", defaultValue = "60") int expirationMinutes) {
+            @RequestParam(value = "expirationMinutes", defaultValue = "60") int expirationMinutes,
+            @RequestParam(value = "userId", required = false) Long userId,
+            HttpServletRequest request) {
 
         try {
             log.debug("Download URL request - Document: {}, Expiration: {} min", documentId, expirationMinutes);
 
-            String downloadUrl = documentService.getDownloadUrl(documentId, expirationMinutes);
+            String downloadUrl = documentService.getDownloadUrl(documentId, expirationMinutes,
+                    userId, clientIpResolver.resolve(request));
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("downloadUrl", downloadUrl);
             response.put("expirationMinutes", expirationMinutes);
+            response.put("storageBackend", documentStorage.getBackendName());
             response.put("timestamp", System.currentTimeMillis());
 
             return ResponseEntity.ok(response);
@@ -333,7 +478,19 @@ public class DocumentController {
     @GetMapping("/cases/{caseId}/documents/search")
     public ResponseEntity<?> searchDocuments(
             @PathVariable Long caseId,
-            @RequestParam("q") String searchTerm) {
+            @RequestParam("q") String searchTerm,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return searchDocumentsInternal(caseId, searchTerm, limit);
+    }
+
+    @GetMapping("/documents/search")
+    public ResponseEntity<?> searchAllDocuments(
+            @RequestParam("q") String searchTerm,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return searchDocumentsInternal(null, searchTerm, limit);
+    }
+
+    private ResponseEntity<?> searchDocumentsInternal(Long caseId, String searchTerm, int limit) {
 
         try {
             log.debug("Text search - Case: {}, Term: '{}'", caseId, searchTerm);
@@ -345,10 +502,10 @@ public class DocumentController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
 
-            List<Document> documents = documentService.searchDocuments(caseId, searchTerm.trim());
-            List<DocumentResponseDTO> documentDTOs = documents
+            List<DocumentSearchHitDTO> hits = documentService.searchDocumentsRanked(caseId, searchTerm.trim(), limit);
+            List<DocumentResponseDTO> documentDTOs = hits
                     .stream()
-                    .map(DocumentResponseDTO::fromDocument)
+                    .map(DocumentSearchHitDTO::getDocument)
                     .collect(java.util.stream.Collectors.toList());
 
             log.debug("Text search results: {} documents found for '{}'", documentDTOs.size(), searchTerm);
@@ -356,6 +513,8 @@ public class DocumentController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("documents", documentDTOs);
+            response.put("hits", hits);
+            response.put("fullTextIndex", documentSearchIndexService.isAvailable());
             response.put("searchTerm", searchTerm.trim());
             response.put("totalElements", documentDTOs.size());
 
@@ -378,6 +537,50 @@ public class DocumentController {
         }
     }
 
+    @GetMapping("/documents/{documentId}/access-stats")
+    public ResponseEntity<?> getAccessStatistics(@PathVariable Long documentId) {
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("statistics", documentService.getAccessStatistics(documentId));
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Access stats error - ID: {}, Error: {}", documentId, e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+    }
+
+    @GetMapping("/documents/search-index/status")
+    public ResponseEntity<?> getSearchIndexStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("status", documentSearchIndexService.getStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/documents/search-index/rebuild")
+    public ResponseEntity<?> rebuildSearchIndex() {
+        log.info("Search index rebuild requested");
+
+        boolean started = documentSearchIndexService.startRebuild();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", started);
+        response.put("message", started ?
+                "Reconstrucción del índice iniciada en segundo plano" :
+                "El índice no está disponible o ya hay una reconstrucción en curso");
+        return started ? ResponseEntity.accepted().body(response) : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     @GetMapping("/documents/{documentId}")
     public ResponseEntity<?> getDocumentById(@PathVariable Long documentId) {
 
@@ -465,6 +668,95 @@ public class DocumentController {
         }
     }
 
+    // =================================================
+    // ENDPOINTS DE VERSIONADO
+    // =================================================
+
+    @PostMapping(value = "/documents/{documentId}/versions", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadNewVersion(
+            @PathVariable Long documentId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("userId") Long userId,
+            @RequestParam(value = "changeNote", required = false) String changeNote,
+            HttpServletRequest request) {
+
+        try {
+            log.info("New version upload - Document: {}, User: {}, File: {} ({})",
+                    documentId, userId, file.getOriginalFilename(), formatFileSize(file.getSize()));
+
+            Document document = documentService.uploadNewVersion(documentId, userId, file, changeNote, request);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Nueva versión subida exitosamente");
+            response.put("document", DocumentResponseDTO.fromDocument(document));
+            response.put("version", document.getVersion());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("New version error - Document: {}, User: {}, Error: {}", documentId, userId, e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
+    @GetMapping("/documents/{documentId}/versions")
+    public ResponseEntity<?> getVersionHistory(@PathVariable Long documentId) {
+
+        try {
+            List<DocumentVersion> versions = documentService.getVersionHistory(documentId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("versions", versions);
+            response.put("total", versions.size());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Version history error - Document: {}, Error: {}", documentId, e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+    }
+
+    @GetMapping("/documents/{documentId}/versions/{versionNumber}/download")
+    public ResponseEntity<StreamingResponseBody> downloadVersion(
+            @PathVariable Long documentId,
+            @PathVariable Integer versionNumber,
+            @RequestParam("userId") Long userId) {
+
+        try {
+            DocumentVersion version = documentService.prepareVersionDownload(documentId, versionNumber, userId);
+
+            // La versión se reconstruye concatenando sus chunks directamente en la respuesta
+            StreamingResponseBody body = outputStream ->
+                    documentService.transferVersionContent(version, Channels.newChannel(outputStream));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(version.getMimeType() != null ?
+                    MediaType.parseMediaType(version.getMimeType()) : MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentDispositionFormData("attachment", version.getOriginalFileName());
+            headers.setContentLength(version.getFileSize());
+
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+
+        } catch (Exception e) {
+            log.error("Version download error - Document: {}, Version: {}, Error: {}",
+                    documentId, versionNumber, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
     // =================================================
     // ENDPOINTS DE ESTADÍSTICAS
     // =================================================
@@ -495,6 +787,109 @@ public class DocumentController {
         }
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/documents/statistics/reconcile")
+    public ResponseEntity<?> reconcileDocumentStatistics() {
+
+        try {
+            log.info("Document statistics reconciliation requested");
+
+            Map<String, Object> result = documentStatisticsService.reconcile();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Estadísticas documentales recalculadas");
+            response.put("result", result);
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Statistics reconciliation error: {}", e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/documents/retention/run")
+    public ResponseEntity<?> runRetentionSweep() {
+
+        try {
+            log.info("Document retention sweep requested");
+
+            boolean started = documentRetentionService.startManualSweep();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", started);
+            response.put("message", started ? "Barrido de retención iniciado en segundo plano" :
+                    "El barrido de retención está deshabilitado o ya en ejecución");
+            response.put("status", documentRetentionService.getStatus());
+
+            return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(response);
+
+        } catch (Exception e) {
+            log.error("Retention sweep error: {}", e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    @GetMapping("/documents/retention/status")
+    public ResponseEntity<?> getRetentionStatus() {
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("status", documentRetentionService.getStatus());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Retention status error: {}", e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/documents/encryption/rotate-keys")
+    public ResponseEntity<?> rotateEncryptionKeys(@RequestParam(value = "batchSize", defaultValue = "200") int batchSize) {
+
+        try {
+            log.info("Encryption key rotation requested");
+
+            Map<String, Object> result = documentEncryptionService.rotateDataKeys(Math.max(1, Math.min(batchSize, 1000)));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Claves de datos reenvueltas con la clave maestra activa");
+            response.put("result", result);
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Key rotation error: {}", e.getMessage(), e);
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     @GetMapping("/documents/categories")
     public ResponseEntity<?> getAvailableCategories() {
 
@@ -547,6 +942,13 @@ public class DocumentController {
         try {
             log.debug("=== AZURE STORAGE DEBUG ===");
 
+            status.put("storageBackend", documentStorage.getBackendName());
+            BlobServiceClient blobServiceClient = blobServiceClientProvider.getIfAvailable();
+            if (blobServiceClient == null) {
+                status.put("status", "AZURE_DISABLED");
+                return ResponseEntity.ok(status);
+            }
+
             status.put("accountName", blobServiceClient.getAccountName());
             status.put("serviceUrl", blobServiceClient.getAccountUrl());
 
@@ -577,26 +979,6 @@ public class DocumentController {
     // MÉTODOS UTILITARIOS PRIVADOS
     // =================================================
 
-    private String getClientIpAddress(HttpServletRequest request) {
-        if (request == null) return "unknown";
-
-        String[] headerNames = {
-                "X-Forwarded-For", "X-Real-IP", "Proxy-Client-IP",
-                "WL-Proxy-Client-IP", "HTTP_X_FORWARDED_FOR", "HTTP_X_FORWARDED",
-                "HTTP_X_CLUSTER_CLIENT_IP", "HTTP_CLIENT_IP", "HTTP_FORWARDED_FOR",
-                "HTTP_FORWARDED", "HTTP_VIA", "REMOTE_ADDR"
-        };
-
-        for (String header : headerNames) {
-            String ip = request.getHeader(header);
-            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
-                return ip.split(",")[0].trim();
-            }
-        }
-
-        return request.getRemoteAddr();
-    }
-
     private String formatFileSize(long bytes) {
         if (bytes < 1024) return bytes + " B";
         if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
@@ -1,21 +1,24 @@
 package com.example.novisapp.controller;
 
+import com.example.novisapp.dto.CaseListItemDTO;
 import com.example.novisapp.entity.*;
 import com.example.novisapp.repository.ClientRepository;
 import com.example.novisapp.repository.LegalCaseRepository;
 import com.example.novisapp.repository.UserRepository;
 import com.example.novisapp.service.CaseLawyerAssignmentService; // ✅ AGREGADO
+import com.example.novisapp.service.CaseChangedEvent;
+import com.example.novisapp.service.CaseNumberService;
+import com.example.novisapp.service.CaseStatisticsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus; // ✅ AGREGADO
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import lombok.extern.slf4j.Slf4j;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @RestController
@@ -36,6 +39,15 @@ public class LegalCaseController {
     @Autowired
     private CaseLawyerAssignmentService assignmentService; // ✅ AGREGADO
 
+    @Autowired
+    private CaseNumberService caseNumberService;
+
+    @Autowired
+    private CaseStatisticsService caseStatisticsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // ============================================================================
     // ENDPOINTS PRINCIPALES - CRUD COMPLETO
     // ============================================================================
@@ -53,48 +65,34 @@ public class LegalCaseController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Pageable pageable = PageRequest.of(page, size, Sort.by("updatedAt").descending());
-            List<LegalCase> casesList;
+            // Orden fijo en la consulta (updatedAt desc); la página solo aporta offset y tamaño
+            Pageable pageable = PageRequest.of(page, size);
 
+            CaseStatus caseStatus = null;
             if (status != null && !status.trim().isEmpty()) {
                 try {
-                    CaseStatus caseStatus = CaseStatus.valueOf(status.toUpperCase());
-                    casesList = legalCaseRepository.findByStatusOrderByCreatedAtDesc(caseStatus);
+                    caseStatus = CaseStatus.valueOf(status.toUpperCase());
                 } catch (IllegalArgumentException e) {
-                    casesList = legalCaseRepository.findAll();
+                    log.debug("Ignoring unknown status filter: {}", status);
                 }
-            } else if (search != null && !search.trim().isEmpty()) {
-                casesList = legalCaseRepository.findByTitleContainingIgnoreCase(search);
-            } else {
-                Page<LegalCase> casePage = legalCaseRepository.findAll(pageable);
-                casesList = casePage.getContent();
-
-                List<Map<String, Object>> safeCases = new ArrayList<>();
-                for (LegalCase legalCase : casesList) {
-                    safeCases.add(createCaseInfo(legalCase));
-                }
-
-                response.put("status", "SUCCESS");
-                response.put("cases", safeCases);
-                response.put("total", casePage.getTotalElements());
-                response.put("totalPages", casePage.getTotalPages());
-                response.put("currentPage", page);
-                response.put("pageSize", size);
-                response.put("message", "Casos obtenidos exitosamente");
-                return ResponseEntity.ok(response);
             }
+            String searchText = search != null && !search.trim().isEmpty() ? search.trim() : null;
+
+            // Una consulta paginada (proyección) + una consulta de conteo + una consulta de equipos de la página
+            Page<CaseListItemDTO> casePage = legalCaseRepository.findCaseListPage(caseStatus, searchText, pageable);
+            Map<Long, List<Map<String, Object>>> lawyersByCase = loadAssignedLawyers(casePage.getContent());
 
             List<Map<String, Object>> safeCases = new ArrayList<>();
-            for (LegalCase legalCase : casesList) {
-                safeCases.add(createCaseInfo(legalCase));
+            for (CaseListItemDTO item : casePage.getContent()) {
+                safeCases.add(createCaseInfo(item, lawyersByCase.getOrDefault(item.getId(), new ArrayList<>())));
             }
 
             response.put("status", "SUCCESS");
             response.put("cases", safeCases);
-            response.put("total", casesList.size());
-            response.put("totalPages", 1);
-            response.put("currentPage", 0);
-            response.put("pageSize", casesList.size());
+            response.put("total", casePage.getTotalElements());
+            response.put("totalPages", casePage.getTotalPages());
+            response.put("currentPage", page);
+            response.put("pageSize", size);
             response.put("message", "Casos obtenidos exitosamente");
 
             return ResponseEntity.ok(response);
@@ -156,6 +154,7 @@ public class LegalCaseController {
             legalCase.setComplexity(CaseComplexity.MEDIUM);
 
             LegalCase savedCase = legalCaseRepository.save(legalCase);
+            eventPublisher.publishEvent(new CaseChangedEvent(savedCase.getId(), CaseChangedEvent.ChangeType.CREATED));
 
             response.put("status", "SUCCESS");
             response.put("message", "Caso creado exitosamente");
@@ -179,7 +178,7 @@ public class LegalCaseController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Optional<LegalCase> caseOptional = legalCaseRepository.findById(id);
+            Optional<LegalCase> caseOptional = legalCaseRepository.findDetailById(id);
 
             if (caseOptional.isPresent()) {
                 response.put("status", "SUCCESS");
@@ -268,6 +267,7 @@ public class LegalCaseController {
             }
 
             LegalCase updatedCase = legalCaseRepository.save(existingCase);
+            eventPublisher.publishEvent(new CaseChangedEvent(id, CaseChangedEvent.ChangeType.UPDATED));
 
             response.put("status", "SUCCESS");
             response.put("message", "Caso actualizado exitosamente");
@@ -301,6 +301,7 @@ public class LegalCaseController {
             LegalCase existingCase = caseOptional.get();
             existingCase.setStatus(CaseStatus.CANCELLED);
             legalCaseRepository.save(existingCase);
+            eventPublisher.publishEvent(new CaseChangedEvent(id, CaseChangedEvent.ChangeType.CANCELLED));
 
             response.put("status", "SUCCESS");
             response.put("message", "Caso cancelado exitosamente");
@@ -521,26 +522,8 @@ public class LegalCaseController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Map<String, Object> statistics = new HashMap<>();
-
-            statistics.put("totalCases", legalCaseRepository.count());
-            statistics.put("activeCases", legalCaseRepository.findActiveCases().size());
-            statistics.put("completedCases", legalCaseRepository.countByStatus(CaseStatus.COMPLETED));
-            statistics.put("closedCases", legalCaseRepository.countByStatus(CaseStatus.CLOSED));
-
-            List<Object[]> statusStats = legalCaseRepository.getCaseCountByStatus();
-            List<Map<String, Object>> casesByStatus = new ArrayList<>();
-            for (Object[] stat : statusStats) {
-                Map<String, Object> statusStat = new HashMap<>();
-                statusStat.put("status", stat[0].toString());
-                statusStat.put("count", stat[1]);
-                casesByStatus.add(statusStat);
-            }
-            statistics.put("casesByStatus", casesByStatus);
-
-            statistics.put("urgentCases", legalCaseRepository.findUrgentCases().size());
-            statistics.put("casesWithoutPrimaryLawyer", legalCaseRepository.findCasesWithoutPrimaryLawyerAssigned().size());
-            statistics.put("casesNeedingMoreLawyers", legalCaseRepository.findCasesNeedingMoreLawyers().size());
+            // Instantánea en memoria: una consulta agregada solo tras cambios en casos o equipos
+            Map<String, Object> statistics = caseStatisticsService.getStatistics();
 
             response.put("status", "SUCCESS");
             response.put("statistics", statistics);
@@ -696,6 +679,70 @@ public class LegalCaseController {
         return caseInfo;
     }
 
+    /**
+     * Misma forma que createCaseInfo, a partir de la proyección del listado (sin cargas lazy)
+     */
+    private Map<String, Object> createCaseInfo(CaseListItemDTO item, List<Map<String, Object>> lawyersList) {
+        Map<String, Object> caseInfo = new HashMap<>();
+
+        caseInfo.put("id", item.getId());
+        caseInfo.put("caseNumber", item.getCaseNumber());
+        caseInfo.put("title", item.getTitle());
+        caseInfo.put("description", item.getDescription());
+        caseInfo.put("status", item.getStatus().name());
+        caseInfo.put("statusDisplay", item.getStatus().getDisplayName());
+        caseInfo.put("priority", item.getPriority());
+        caseInfo.put("createdAt", item.getCreatedAt() != null ? item.getCreatedAt().toString() : null);
+        caseInfo.put("updatedAt", item.getUpdatedAt() != null ? item.getUpdatedAt().toString() : null);
+
+        if (item.getClientId() != null) {
+            Map<String, Object> clientInfo = new HashMap<>();
+            clientInfo.put("id", item.getClientId());
+            clientInfo.put("name", item.getClientName());
+            clientInfo.put("email", item.getClientEmail());
+            caseInfo.put("client", clientInfo);
+        }
+
+        caseInfo.put("assignedLawyers", lawyersList);
+        caseInfo.put("lawyerCount", lawyersList.size());
+
+        if (item.getPrimaryLawyerId() != null) {
+            Map<String, Object> primaryInfo = new HashMap<>();
+            primaryInfo.put("id", item.getPrimaryLawyerId());
+            primaryInfo.put("name", item.getPrimaryLawyerFullName());
+            primaryInfo.put("email", item.getPrimaryLawyerEmail());
+            caseInfo.put("primaryLawyer", primaryInfo);
+        } else {
+            caseInfo.put("primaryLawyer", null);
+        }
+
+        return caseInfo;
+    }
+
+    /**
+     * Abogados asignados de todos los casos de la página con una sola consulta
+     */
+    private Map<Long, List<Map<String, Object>>> loadAssignedLawyers(List<CaseListItemDTO> cases) {
+        Map<Long, List<Map<String, Object>>> lawyersByCase = new HashMap<>();
+        if (cases.isEmpty()) {
+            return lawyersByCase;
+        }
+
+        List<Long> caseIds = new ArrayList<>();
+        for (CaseListItemDTO item : cases) {
+            caseIds.add(item.getId());
+        }
+
+        for (Object[] row : legalCaseRepository.findAssignedLawyersForCases(caseIds)) {
+            Map<String, Object> lawyerInfo = new HashMap<>();
+            lawyerInfo.put("id", row[1]);
+            lawyerInfo.put("name", row[2] + " " + row[3]);
+            lawyerInfo.put("email", row[4]);
+            lawyersByCase.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(lawyerInfo);
+        }
+        return lawyersByCase;
+    }
+
     private Map<String, Object> createDetailedCaseInfo(LegalCase legalCase) {
         Map<String, Object> caseInfo = createCaseInfo(legalCase);
 
@@ -752,8 +799,7 @@ public class LegalCaseController {
     }
 
     private String generateCaseNumber() {
-        String datePrefix = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        long count = legalCaseRepository.count() + 1;
-        return String.format("NVS-%s-%04d", datePrefix, count);
+        // Bloques reservados por nodo: único entre peticiones concurrentes y sin count() por alta
+        return caseNumberService.nextCaseNumber();
     }
 }
\ No newline at end of file
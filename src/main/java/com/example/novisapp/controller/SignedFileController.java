@@ -0,0 +1,73 @@
+package com.example.novisapp.controller;
+
+import com.example.novisapp.dto.StoredBlobInfo;
+import com.example.novisapp.security.DownloadTokenService;
+import com.example.novisapp.service.DocumentStorage;
+import com.example.novisapp.service.LocalFileSystemDocumentStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Handler estático para URLs de descarga firmadas del backend local.
+ * No consulta la base de datos: la firma HMAC del token es la autorización.
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "novis.storage.backend", havingValue = "local")
+public class SignedFileController {
+
+    private final DownloadTokenService downloadTokenService;
+    private final DocumentStorage documentStorage;
+
+    @GetMapping(LocalFileSystemDocumentStorage.SIGNED_FILES_PATH + "{token}")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable String token) {
+        try {
+            DownloadTokenService.SignedBlob signedBlob = downloadTokenService.verify(token);
+            if (signedBlob == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            StoredBlobInfo info = documentStorage.stat(signedBlob.getContainerName(), signedBlob.getBlobName());
+            if (info == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+
+            long maxAge = Math.max(0, Duration.between(Instant.now(), signedBlob.getExpiresAt()).getSeconds());
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(info.getContentType() != null ?
+                    MediaType.parseMediaType(info.getContentType()) : MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentLength(info.getSize());
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename(signedBlob.getFileName(), StandardCharsets.UTF_8)
+                    .build());
+            headers.setCacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePrivate());
+
+            StreamingResponseBody body = outputStream -> documentStorage.transferTo(
+                    signedBlob.getContainerName(), signedBlob.getBlobName(), 0, -1, Channels.newChannel(outputStream));
+
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+
+        } catch (Exception e) {
+            log.error("Signed download error: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
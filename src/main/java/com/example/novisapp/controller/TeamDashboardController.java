@@ -1,11 +1,15 @@
 package com.example.novisapp.controller;
 
-import com.example.novisapp.entity.CaseStatus;
-import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.dto.BatchAssignmentPlanDTO;
+import com.example.novisapp.dto.LawyerAssignmentCountsDTO;
 import com.example.novisapp.entity.User;
 import com.example.novisapp.entity.UserRole; // ✅ IMPORT AGREGADO
 import com.example.novisapp.repository.LegalCaseRepository;
 import com.example.novisapp.repository.UserRepository;
+import com.example.novisapp.service.BatchTeamAssignmentService;
+import com.example.novisapp.service.CaseStatisticsService;
+import com.example.novisapp.service.LawyerWorkloadService;
+import com.example.novisapp.service.WorkloadCounterService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +31,18 @@ public class TeamDashboardController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LawyerWorkloadService lawyerWorkloadService;
+
+    @Autowired
+    private CaseStatisticsService caseStatisticsService;
+
+    @Autowired
+    private BatchTeamAssignmentService batchTeamAssignmentService;
+
+    @Autowired
+    private WorkloadCounterService workloadCounterService;
+
     /**
      * Dashboard básico de equipos
      */
@@ -38,22 +54,24 @@ public class TeamDashboardController {
             // Obtener todos los abogados disponibles
             List<User> allLawyers = userRepository.findAvailableLawyers();
 
-            // Obtener casos activos (no cerrados)
-            List<LegalCase> activeCases = legalCaseRepository.findByStatusNot(CaseStatus.CLOSED);
+            // Casos no cerrados desde la instantánea de estadísticas (sin consulta si está vigente)
+            Map<String, Object> caseStats = caseStatisticsService.getStatistics();
+            long totalCases = (Long) caseStats.get("totalCases") - (Long) caseStats.get("closedCases");
 
             // Calcular estadísticas básicas
-            long totalCases = activeCases.size();
             int totalLawyers = allLawyers.size();
             double averageCasesPerLawyer = totalLawyers > 0 ? (double) totalCases / totalLawyers : 0;
 
-            // Calcular carga de trabajo por abogado
+            // Carga de trabajo por abogado: una consulta agrupada (cacheada) para todos
+            Map<Long, LawyerAssignmentCountsDTO> assignmentCounts = lawyerWorkloadService.getAssignmentCounts();
             List<Map<String, Object>> lawyerWorkload = allLawyers.stream()
                     .map(lawyer -> {
-                        List<LegalCase> lawyerCases = legalCaseRepository.findCasesAssignedToLawyer(lawyer.getId());
+                        LawyerAssignmentCountsDTO counts = assignmentCounts.get(lawyer.getId());
                         Map<String, Object> data = new HashMap<>();
                         data.put("lawyer_id", lawyer.getId());
                         data.put("lawyer_name", lawyer.getFullName());
-                        data.put("case_count", lawyerCases.size());
+                        data.put("case_count", counts != null ? counts.getActiveAssignments() : 0L);
+                        data.put("cases_by_role", counts != null ? counts.getActiveAssignmentsByRole() : Map.of());
                         data.put("email", lawyer.getEmail());
                         return data;
                     })
@@ -140,6 +158,34 @@ public class TeamDashboardController {
         }
     }
 
+    /**
+     * Asignar equipos a todos los casos abiertos sin equipo, balanceando la carga.
+     * Con dryRun=true (por defecto) solo devuelve el plan.
+     */
+    @PostMapping("/assign/backlog")
+    public ResponseEntity<Map<String, Object>> assignBacklog(@RequestParam(defaultValue = "true") boolean dryRun) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            BatchAssignmentPlanDTO plan = batchTeamAssignmentService.assignBacklog(dryRun);
+
+            response.put("success", true);
+            response.put("message", plan.getMessage());
+            response.put("plan", plan);
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", "Plan no aplicado: " + e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error en asignación por lotes: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     /**
      * Obtener estadísticas de carga de trabajo
      */
@@ -149,17 +195,19 @@ public class TeamDashboardController {
 
         try {
             List<User> lawyers = userRepository.findAvailableLawyers();
-            List<LegalCase> activeCases = legalCaseRepository.findByStatusNot(CaseStatus.CLOSED);
+            long activeCases = legalCaseRepository.countActiveCases();
 
             // Calcular estadísticas básicas
             Map<String, Object> summary = new HashMap<>();
             summary.put("total_lawyers", lawyers.size());
-            summary.put("total_active_cases", activeCases.size());
+            summary.put("total_active_cases", activeCases);
             summary.put("average_cases_per_lawyer",
-                    lawyers.size() > 0 ? (double) activeCases.size() / lawyers.size() : 0);
+                    lawyers.size() > 0 ? (double) activeCases / lawyers.size() : 0);
 
             stats.put("success", true);
             stats.put("summary", summary);
+            // Última reconciliación de User.currentWorkload con las asignaciones (deriva encontrada y corregida)
+            stats.put("workload_counters", workloadCounterService.getStatus());
 
             return ResponseEntity.ok(stats);
 
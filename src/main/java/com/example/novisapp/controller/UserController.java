@@ -6,10 +6,16 @@ import com.example.novisapp.dto.*;
 import com.example.novisapp.entity.User;
 import com.example.novisapp.entity.UserRole;
 import com.example.novisapp.repository.UserRepository;
+import com.example.novisapp.security.JwtTokenUtil;
+import com.example.novisapp.security.UserStatusCache;
+import com.example.novisapp.service.LawyerAvailabilityChangedEvent;
+import com.example.novisapp.service.LoginAttemptService;
+import com.example.novisapp.service.TokenRevocationService;
 import com.example.novisapp.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -37,6 +43,11 @@ public class UserController {
     private final UserRepository userRepository;
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
+    private final UserStatusCache userStatusCache;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginAttemptService loginAttemptService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========================================
     // ENDPOINTS DE USUARIOS
@@ -226,6 +237,8 @@ public class UserController {
             }
 
             User updatedUser = userRepository.save(user);
+            userStatusCache.evict(id);
+            eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(id)));
             UserDTO userDTO = convertToUserDTO(updatedUser);
 
             log.info("Usuario actualizado exitosamente: {}", updatedUser.getEmail());
@@ -259,6 +272,8 @@ public class UserController {
             }
 
             userRepository.deleteById(id);
+            userStatusCache.evict(id);
+            eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(id)));
 
             log.info("Usuario eliminado: {}", user.getEmail());
             return ResponseEntity.ok(ApiResponseDTO.success(null, "Usuario eliminado exitosamente"));
@@ -298,6 +313,11 @@ public class UserController {
                 }
 
                 User updatedUser = userRepository.save(user);
+                userStatusCache.evict(id);
+                eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(id)));
+                if (isActive) {
+                    loginAttemptService.clear(user.getEmail());
+                }
                 UserDTO userDTO = convertToUserDTO(updatedUser);
 
                 String status = isActive ? "activado" : "desactivado";
@@ -363,6 +383,8 @@ public class UserController {
             user.setAccountNonLocked(true);
 
             userRepository.save(user);
+            userStatusCache.evict(id);
+            loginAttemptService.clear(user.getEmail());
 
             // Respuesta con la contraseña temporal (solo para admin)
             Map<String, String> response = new HashMap<>();
@@ -475,6 +497,37 @@ public class UserController {
         }
     }
 
+    // ========================================
+    // MÉTRICAS DE AUTENTICACIÓN
+    // ========================================
+
+    /**
+     * GET /api/users/auth/token-cache - Aciertos y costo medio de la verificación de tokens
+     */
+    @GetMapping("/users/auth/token-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponseDTO<Map<String, Object>>> getTokenCacheStats() {
+        return ResponseEntity.ok(ApiResponseDTO.success(jwtTokenUtil.getVerifiedCacheStats()));
+    }
+
+    /**
+     * GET /api/users/auth/login-attempts - Rechazos del limitador de login y escrituras pendientes
+     */
+    @GetMapping("/users/auth/login-attempts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponseDTO<Map<String, Object>>> getLoginAttemptStatus() {
+        return ResponseEntity.ok(ApiResponseDTO.success(loginAttemptService.getStatus()));
+    }
+
+    /**
+     * GET /api/users/auth/revocations - Estado de la lista de revocación de tokens
+     */
+    @GetMapping("/users/auth/revocations")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponseDTO<Map<String, Object>>> getRevocationStatus() {
+        return ResponseEntity.ok(ApiResponseDTO.success(tokenRevocationService.getStatus()));
+    }
+
     // ========================================
     // ENDPOINTS DE ABOGADOS
     // ========================================
@@ -0,0 +1,53 @@
+package com.example.novisapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan de asignación por lotes de los casos abiertos sin equipo (vista previa o resultado aplicado)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchAssignmentPlanDTO {
+    private boolean dryRun;
+    private boolean applied;
+    private String message;
+    private int totalCases;
+    private int balancingMoves;
+    private int maxCasesPerLawyer;
+    private List<PlannedTeamDTO> teams = new ArrayList<>();
+    private List<UnassignedCaseDTO> unassignedCases = new ArrayList<>();
+    // Carga de cada abogado candidato después del plan
+    private Map<Long, Integer> projectedWorkload = new HashMap<>();
+    private LocalDateTime generatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PlannedTeamDTO {
+        private Long caseId;
+        private String caseNumber;
+        private String priority;
+        private String complexity;
+        private String specialty;
+        // El primero es el abogado principal (LEAD)
+        private List<Long> lawyerIds;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UnassignedCaseDTO {
+        private Long caseId;
+        private String caseNumber;
+        private String reason;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.novisapp.dto;
+
+import com.example.novisapp.entity.CaseStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila plana del listado de casos: caso, cliente y abogado principal en una sola consulta
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseListItemDTO {
+    private Long id;
+    private String caseNumber;
+    private String title;
+    private String description;
+    private CaseStatus status;
+    private String priority;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long clientId;
+    private String clientName;
+    private String clientEmail;
+    private Long primaryLawyerId;
+    private String primaryLawyerFirstName;
+    private String primaryLawyerLastName;
+    private String primaryLawyerEmail;
+
+    public String getPrimaryLawyerFullName() {
+        return primaryLawyerId != null ? primaryLawyerFirstName + " " + primaryLawyerLastName : null;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.novisapp.dto;
 
 import com.example.novisapp.entity.DocumentCategory;
 import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentScanStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -31,6 +32,7 @@ public class DocumentResponseDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long accessCount;
+    private DocumentScanStatus scanStatus;
 
     // Solo IDs, no objetos completos
     private Long caseId;
@@ -59,6 +61,7 @@ public class DocumentResponseDTO {
                 .createdAt(document.getCreatedAt())
                 .updatedAt(document.getUpdatedAt())
                 .accessCount(document.getAccessCount())
+                .scanStatus(document.getScanStatus())
                 // Solo IDs para evitar lazy loading
                 .caseId(document.getLegalCase() != null ? document.getLegalCase().getId() : null)
                 .caseName(document.getLegalCase() != null ? document.getLegalCase().getTitle() : null)
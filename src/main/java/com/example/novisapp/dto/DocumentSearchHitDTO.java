@@ -0,0 +1,24 @@
+package com.example.novisapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Resultado de búsqueda en el índice full-text de documentos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSearchHitDTO {
+    private Long documentId;
+    private Long caseId;
+    private Float score;
+    // Campo -> fragmentos resaltados con <b>...</b>
+    private Map<String, String> highlights;
+    private DocumentResponseDTO document;
+}
@@ -0,0 +1,26 @@
+package com.example.novisapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conteo de asignaciones de un abogado (consulta agrupada sobre case_lawyer_assignments)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LawyerAssignmentCountsDTO {
+    private Long lawyerId;
+    private long totalAssignments;
+    private long activeAssignments;
+    private Map<String, Long> assignmentsByStatus = new HashMap<>();
+    private Map<String, Long> activeAssignmentsByRole = new HashMap<>();
+
+    public LawyerAssignmentCountsDTO(Long lawyerId) {
+        this.lawyerId = lawyerId;
+    }
+}
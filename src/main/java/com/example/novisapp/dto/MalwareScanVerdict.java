@@ -0,0 +1,27 @@
+package com.example.novisapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Veredicto de un analizador antimalware sobre el contenido de un documento
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MalwareScanVerdict {
+    private boolean infected;
+    private String signature; // Nombre de la amenaza detectada (solo si infected)
+    private long scannedBytes;
+
+    public static MalwareScanVerdict clean(long scannedBytes) {
+        return new MalwareScanVerdict(false, null, scannedBytes);
+    }
+
+    public static MalwareScanVerdict infected(String signature, long scannedBytes) {
+        return new MalwareScanVerdict(true, signature, scannedBytes);
+    }
+}
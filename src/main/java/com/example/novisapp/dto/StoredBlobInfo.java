@@ -0,0 +1,25 @@
+package com.example.novisapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadatos de un objeto almacenado en el backend de documentos
+ * (Azure Blob Storage o sistema de archivos local)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredBlobInfo {
+    private String containerName;
+    private String blobName;
+    private Long size;
+    private String contentType;
+    private LocalDateTime lastModified;
+    private String location;
+}
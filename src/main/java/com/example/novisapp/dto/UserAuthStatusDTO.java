@@ -0,0 +1,26 @@
+package com.example.novisapp.dto;
+
+import com.example.novisapp.entity.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado de autenticación de un usuario (solo las columnas que invalidan un token emitido)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAuthStatusDTO {
+    private Long userId;
+    private UserRole role;
+    private Boolean active;
+    private Boolean enabled;
+    private Boolean accountNonLocked;
+
+    public boolean allowsAuthentication() {
+        return !Boolean.FALSE.equals(active)
+                && !Boolean.FALSE.equals(enabled)
+                && !Boolean.FALSE.equals(accountNonLocked);
+    }
+}
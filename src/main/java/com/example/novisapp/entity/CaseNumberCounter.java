@@ -0,0 +1,35 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contador de números de caso por día (NVS-yyyyMMdd-NNNN).
+ * Cada nodo reserva bloques de números incrementando next_value en una sola sentencia;
+ * dentro del bloque la asignación es en memoria.
+ */
+@Entity
+@Table(name = "case_number_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CaseNumberCounter {
+
+    // Día del contador (yyyyMMdd)
+    @Id
+    @Column(name = "counter_key", length = 20)
+    private String counterKey;
+
+    // Primer número aún no reservado por ningún nodo
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -65,6 +65,37 @@ public class Document {
     @Column(length = 64)
     private String fileHash; // SHA-256 para integridad
 
+    // Renditions de imágenes (mismo container que el original)
+    @Column(length = 255)
+    private String thumbnailBlobName;
+
+    @Column(length = 255)
+    private String previewBlobName;
+
+    // Cifrado en reposo (null = contenido en claro): clave de datos envuelta con la clave maestra encryptionKeyId
+    @Column(length = 50)
+    private String encryptionKeyId;
+
+    @Column(length = 100)
+    private String encryptedDataKey;
+
+    @Column
+    private Integer encryptionSegmentSize;
+
+    // Análisis antimalware (null = no analizado: documento previo o análisis deshabilitado)
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private DocumentScanStatus scanStatus;
+
+    @Column(length = 255)
+    private String scanResult;
+
+    @Column
+    private Integer scanAttempts;
+
+    @Column
+    private LocalDateTime scanUpdatedAt;
+
     @Builder.Default
     @Column(nullable = false)
     private Boolean isActive = true;
@@ -163,6 +194,15 @@ public class Document {
         this.lastAccessedAt = LocalDateTime.now();
     }
 
+    public boolean isEncrypted() {
+        return encryptedDataKey != null;
+    }
+
+    // En cuarentena mientras el análisis no lo libere
+    public boolean isQuarantined() {
+        return scanStatus != null && scanStatus != DocumentScanStatus.CLEAN;
+    }
+
     // Método para soft delete
     public void softDelete() {
         this.isActive = false;
@@ -0,0 +1,46 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de auditoría de acceso a documentos (p. ej. emisión de URL firmada).
+ * Se escribe en lotes desde DocumentAccessAuditService, sin tocar la fila del documento.
+ */
+@Entity
+@Table(name = "document_access_logs", indexes = {
+        @Index(name = "idx_document_access_logs_document", columnList = "document_id, event_time")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentAccessLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "event_type", nullable = false, length = 30)
+    private String eventType; // SIGNED_URL_ISSUED, etc.
+
+    @Column(name = "ip_address", length = 45)
+    private String ipAddress;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "event_time", nullable = false)
+    private LocalDateTime eventTime;
+}
@@ -0,0 +1,32 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chunk del almacén direccionado por contenido (SHA-256 en hexadecimal).
+ * Un mismo chunk se comparte entre todas las versiones que lo contienen.
+ */
+@Entity
+@Table(name = "document_chunks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentChunk {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Integer size;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
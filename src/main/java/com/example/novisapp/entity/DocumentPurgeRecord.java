@@ -0,0 +1,60 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro archivado de un documento purgado por la política de retención.
+ * Conserva los metadatos mínimos (trazabilidad legal) una vez eliminados la fila y el contenido.
+ */
+@Entity
+@Table(name = "document_purge_log", indexes = {
+        @Index(name = "idx_document_purge_log_case", columnList = "case_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentPurgeRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "case_id")
+    private Long caseId;
+
+    @Column(name = "original_file_name", nullable = false)
+    private String originalFileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 50)
+    private DocumentCategory category;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "file_hash", length = 64)
+    private String fileHash;
+
+    // SOFT_DELETED_EXPIRED | ORPHAN_EXPIRED
+    @Column(nullable = false, length = 30)
+    private String reason;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    @Column(name = "purged_at", nullable = false)
+    private LocalDateTime purgedAt;
+}
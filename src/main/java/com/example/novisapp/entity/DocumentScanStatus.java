@@ -0,0 +1,30 @@
+package com.example.novisapp.entity;
+
+/**
+ * Estados del análisis antimalware de un documento.
+ * Todo estado distinto de CLEAN mantiene el documento en cuarentena (sin descargas).
+ */
+public enum DocumentScanStatus {
+
+    PENDING("En cuarentena", "En cola para análisis antimalware"),
+    SCANNING("Analizando", "Tomado por un worker de análisis"),
+    CLEAN("Liberado", "Análisis sin amenazas"),
+    INFECTED("Bloqueado", "El analizador detectó una amenaza"),
+    FAILED("Fallido", "Se agotaron los reintentos de análisis");
+
+    private final String displayName;
+    private final String description;
+
+    DocumentScanStatus(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contador precalculado de documentos activos por ámbito y dimensión.
+ * - scopeId: id del caso, o GLOBAL_SCOPE (0) para el total del sistema
+ * - dimension/dimKey: TOTAL, CATEGORY/{categoría}, FILE_TYPE/{tipo}, ORPHAN (solo global)
+ * Se actualiza en la misma transacción que el upload, borrado o (des)asignación del documento.
+ */
+@Entity
+@Table(name = "document_statistics", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_document_statistics_scope", columnNames = {"scope_id", "dimension", "dim_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentStatistic {
+
+    public static final long GLOBAL_SCOPE = 0L;
+
+    public static final String DIMENSION_TOTAL = "TOTAL";
+    public static final String DIMENSION_CATEGORY = "CATEGORY";
+    public static final String DIMENSION_FILE_TYPE = "FILE_TYPE";
+    public static final String DIMENSION_ORPHAN = "ORPHAN";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+
+    @Column(nullable = false, length = 20)
+    private String dimension;
+
+    @Column(name = "dim_key", nullable = false, length = 50)
+    private String dimKey;
+
+    @Builder.Default
+    @Column(name = "document_count", nullable = false)
+    private Long documentCount = 0L;
+
+    @Builder.Default
+    @Column(name = "total_bytes", nullable = false)
+    private Long totalBytes = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
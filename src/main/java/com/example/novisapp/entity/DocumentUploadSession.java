@@ -0,0 +1,108 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sesión de carga reanudable por partes (evidencias grandes de audio/video).
+ * El cliente envía fragmentos secuenciales; receivedBytes es el offset desde el que debe reanudar.
+ */
+@Entity
+@Table(name = "document_upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_status_expires", columnList = "status, expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentUploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "case_id")
+    private Long caseId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "original_file_name", nullable = false)
+    private String originalFileName;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 50)
+    private DocumentCategory category;
+
+    @Column(length = 1000)
+    private String description;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Builder.Default
+    @Column(name = "received_bytes", nullable = false)
+    private Long receivedBytes = 0L;
+
+    @Builder.Default
+    @Column(name = "chunk_count", nullable = false)
+    private Integer chunkCount = 0;
+
+    @Column(name = "container_name", nullable = false, length = 100)
+    private String containerName;
+
+    @Column(name = "blob_name", nullable = false)
+    private String blobName;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private UploadSessionStatus status = UploadSessionStatus.IN_PROGRESS;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    // Cifrado en reposo: la clave de datos se genera al iniciar la sesión y pasa al Document al completar
+    @Column(name = "encryption_key_id", length = 50)
+    private String encryptionKeyId;
+
+    @Column(name = "encrypted_data_key", length = 100)
+    private String encryptedDataKey;
+
+    @Column(name = "encryption_segment_size")
+    private Integer encryptionSegmentSize;
+
+    @Column(name = "upload_ip_address", length = 45)
+    private String uploadIpAddress;
+
+    @Column(name = "user_agent", length = 500)
+    private String userAgent;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public boolean isEncrypted() {
+        return encryptedDataKey != null;
+    }
+}
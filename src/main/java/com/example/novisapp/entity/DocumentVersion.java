@@ -0,0 +1,67 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versión de un documento. El contenido se guarda como lista de chunks (document_version_chunks)
+ * en el almacén deduplicado; la versión vigente además está materializada en el blob del Document.
+ */
+@Entity
+@Table(name = "document_versions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_document_versions_number", columnNames = {"document_id", "version_number"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "version_number", nullable = false)
+    private Integer versionNumber;
+
+    @Column(name = "previous_version_id")
+    private Long previousVersionId;
+
+    @Column(name = "original_file_name", nullable = false)
+    private String originalFileName;
+
+    @Column(name = "mime_type", length = 100)
+    private String mimeType;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "file_hash", length = 64)
+    private String fileHash;
+
+    @Column(name = "chunk_count", nullable = false)
+    private Integer chunkCount;
+
+    // Bytes realmente escritos en el almacén (chunks nuevos); el resto se reutilizó
+    @Column(name = "stored_bytes", nullable = false)
+    private Long storedBytes;
+
+    @Column(name = "uploaded_by_id")
+    private Long uploadedById;
+
+    @Column(name = "change_note", length = 1000)
+    private String changeNote;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
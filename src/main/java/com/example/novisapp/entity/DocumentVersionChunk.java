@@ -0,0 +1,41 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Posición de un chunk dentro de una versión. Recorrer por sequence reconstruye el archivo.
+ */
+@Entity
+@Table(name = "document_version_chunks", indexes = {
+        @Index(name = "idx_version_chunks_version_seq", columnList = "version_id, sequence", unique = true),
+        @Index(name = "idx_version_chunks_hash", columnList = "chunk_hash")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentVersionChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "version_id", nullable = false)
+    private Long versionId;
+
+    @Column(nullable = false)
+    private Integer sequence;
+
+    @Column(name = "chunk_hash", nullable = false, length = 64)
+    private String chunkHash;
+
+    @Column(name = "chunk_offset", nullable = false)
+    private Long chunkOffset;
+
+    @Column(name = "chunk_length", nullable = false)
+    private Integer chunkLength;
+}
@@ -0,0 +1,52 @@
+package com.example.novisapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Punto de control persistente de un job de mantenimiento por lotes (keyset).
+ * Permite reanudar un barrido interrumpido (reinicio, fin de ventana horaria) donde quedó.
+ */
+@Entity
+@Table(name = "maintenance_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MaintenanceCheckpoint {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    // Último id procesado del recorrido actual (0 = inicio de un recorrido nuevo)
+    @Builder.Default
+    @Column(name = "last_processed_id", nullable = false)
+    private Long lastProcessedId = 0L;
+
+    @Builder.Default
+    @Column(name = "processed_items", nullable = false)
+    private Long processedItems = 0L;
+
+    @Builder.Default
+    @Column(name = "reclaimed_bytes", nullable = false)
+    private Long reclaimedBytes = 0L;
+
+    @Builder.Default
+    @Column(name = "failed_items", nullable = false)
+    private Long failedItems = 0L;
+
+    @Column(name = "pass_started_at")
+    private LocalDateTime passStartedAt;
+
+    @Column(name = "last_pass_completed_at")
+    private LocalDateTime lastPassCompletedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
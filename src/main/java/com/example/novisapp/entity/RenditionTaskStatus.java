@@ -0,0 +1,28 @@
+package com.example.novisapp.entity;
+
+/**
+ * Estados de las tareas de generación de miniaturas/previsualizaciones
+ */
+public enum RenditionTaskStatus {
+
+    PENDING("Pendiente", "En cola para procesamiento"),
+    PROCESSING("Procesando", "Tomada por un worker"),
+    COMPLETED("Completada", "Renditions generadas"),
+    FAILED("Fallida", "Se agotaron los reintentos");
+
+    private final String displayName;
+    private final String description;
+
+    RenditionTaskStatus(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
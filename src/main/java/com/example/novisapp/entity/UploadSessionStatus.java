@@ -0,0 +1,28 @@
+package com.example.novisapp.entity;
+
+/**
+ * Estados de una sesión de carga por partes (uploads reanudables)
+ */
+public enum UploadSessionStatus {
+
+    IN_PROGRESS("En progreso", "Recibiendo fragmentos"),
+    COMPLETED("Completada", "Documento creado a partir de los fragmentos"),
+    ABORTED("Cancelada", "Cancelada por el cliente o rechazada al completar"),
+    EXPIRED("Expirada", "Abandonada y eliminada por el barrido periódico");
+
+    private final String displayName;
+    private final String description;
+
+    UploadSessionStatus(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.novisapp.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -49,7 +50,8 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Boolean active = true;
 
-    @Column(name = "current_workload")
+    // Solo se modifica con UPDATE atómicos (WorkloadCounterService): un save con un valor leído antes no la pisa
+    @Column(name = "current_workload", updatable = false)
     private Integer currentWorkload = 0; // Número de casos activos asignados
 
     @Column(length = 20)
@@ -77,7 +79,8 @@ public class User implements UserDetails {
     @Column(name = "failed_login_attempts")
     private Integer failedLoginAttempts = 0;
 
-    // Relación con casos asignados
+    // Relación con casos asignados (no se serializa: los endpoints que devuelven usuarios no la cargan)
+    @JsonIgnore
     @ManyToMany(mappedBy = "assignedLawyers", fetch = FetchType.LAZY)
     private Set<LegalCase> assignedCases = new HashSet<>();
 
@@ -126,7 +129,12 @@ public class User implements UserDetails {
     }
 
     public boolean isAvailable() {
-        return active && (currentWorkload == null || currentWorkload < 10);
+        return isAvailable(10);
+    }
+
+    // Con el máximo configurado (novis.teams.max-cases-per-lawyer)
+    public boolean isAvailable(int maxCases) {
+        return active && (currentWorkload == null || currentWorkload < maxCases);
     }
 
     // ✅ MÉTODOS ADICIONALES PARA JWT
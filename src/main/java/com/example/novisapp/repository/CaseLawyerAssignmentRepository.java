@@ -5,6 +5,7 @@ import com.example.novisapp.entity.AssignmentStatus;
 import com.example.novisapp.entity.LegalCase;
 import com.example.novisapp.entity.User;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,13 +26,15 @@ public interface CaseLawyerAssignmentRepository extends JpaRepository<CaseLawyer
     // ========================================
 
     /**
-     * Buscar todas las asignaciones de un caso
+     * Buscar todas las asignaciones de un caso (con el abogado en la misma consulta)
      */
+    @EntityGraph(attributePaths = "user")
     List<CaseLawyerAssignment> findByLegalCaseId(Long caseId);
 
     /**
-     * Buscar asignaciones por status de un caso
+     * Buscar asignaciones por status de un caso (con el abogado en la misma consulta)
      */
+    @EntityGraph(attributePaths = "user")
     List<CaseLawyerAssignment> findByLegalCaseIdAndStatus(Long caseId, AssignmentStatus status);
 
     /**
@@ -127,6 +131,21 @@ public interface CaseLawyerAssignmentRepository extends JpaRepository<CaseLawyer
     // ESTADÍSTICAS Y REPORTES (CORREGIDAS)
     // ========================================
 
+    /**
+     * Asignaciones por abogado, estado y rol en una sola consulta agrupada:
+     * [userId, status, role, count]
+     */
+    @Query("SELECT cla.user.id, cla.status, cla.role, COUNT(cla) FROM CaseLawyerAssignment cla " +
+            "GROUP BY cla.user.id, cla.status, cla.role")
+    List<Object[]> countAssignmentsByLawyerStatusAndRole();
+
+    /**
+     * Asignaciones que cuentan como carga, por abogado: [userId, count]
+     */
+    @Query("SELECT cla.user.id, COUNT(cla) FROM CaseLawyerAssignment cla " +
+            "WHERE cla.status IN :statuses GROUP BY cla.user.id")
+    List<Object[]> countAssignmentsByLawyer(@Param("statuses") Collection<AssignmentStatus> statuses);
+
     /**
      * Contar casos sin asignar (CORREGIDO: usar enum)
      */
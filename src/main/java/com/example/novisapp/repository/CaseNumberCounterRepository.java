@@ -0,0 +1,41 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.CaseNumberCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio de contadores de números de caso
+ */
+@Repository
+public interface CaseNumberCounterRepository extends JpaRepository<CaseNumberCounter, String> {
+
+    /**
+     * Reservar un bloque: incremento atómico que bloquea la fila hasta el commit
+     */
+    @Modifying
+    @Query("UPDATE CaseNumberCounter c SET c.nextValue = c.nextValue + :blockSize, c.updatedAt = :now " +
+            "WHERE c.counterKey = :counterKey")
+    int reserveBlock(@Param("counterKey") String counterKey,
+                     @Param("blockSize") long blockSize,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Crear el contador del día. INSERT explícito (no merge): si otro nodo lo creó antes,
+     * falla por clave duplicada en lugar de sobrescribir su valor
+     */
+    @Modifying
+    @Query(value = "INSERT INTO case_number_counters (counter_key, next_value, updated_at) " +
+            "VALUES (:counterKey, :nextValue, :now)", nativeQuery = true)
+    int createCounter(@Param("counterKey") String counterKey,
+                      @Param("nextValue") long nextValue,
+                      @Param("now") LocalDateTime now);
+
+    @Query("SELECT c.nextValue FROM CaseNumberCounter c WHERE c.counterKey = :counterKey")
+    Long findNextValue(@Param("counterKey") String counterKey);
+}
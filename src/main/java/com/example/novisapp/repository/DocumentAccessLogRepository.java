@@ -0,0 +1,23 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentAccessLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio de eventos de auditoría de acceso a documentos
+ */
+@Repository
+public interface DocumentAccessLogRepository extends JpaRepository<DocumentAccessLog, Long> {
+
+    /**
+     * Últimos eventos de un documento
+     */
+    @Query("SELECT l FROM DocumentAccessLog l WHERE l.documentId = :documentId ORDER BY l.eventTime DESC")
+    List<DocumentAccessLog> findRecentByDocumentId(@Param("documentId") Long documentId, Pageable pageable);
+}
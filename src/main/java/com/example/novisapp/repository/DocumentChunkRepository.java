@@ -0,0 +1,12 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio del almacén de chunks direccionado por contenido
+ */
+@Repository
+public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, String> {
+}
@@ -0,0 +1,12 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentPurgeRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio del archivo de documentos purgados
+ */
+@Repository
+public interface DocumentPurgeRecordRepository extends JpaRepository<DocumentPurgeRecord, Long> {
+}
@@ -0,0 +1,81 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentRenditionTask;
+import com.example.novisapp.entity.RenditionTaskStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de la cola persistente de renditions de documentos
+ */
+@Repository
+public interface DocumentRenditionTaskRepository extends JpaRepository<DocumentRenditionTask, Long> {
+
+    /**
+     * Siguientes tareas pendientes en orden de llegada
+     */
+    @Query("SELECT t FROM DocumentRenditionTask t WHERE t.status = :status ORDER BY t.id ASC")
+    List<DocumentRenditionTask> findByStatusOrdered(@Param("status") RenditionTaskStatus status, Pageable pageable);
+
+    /**
+     * Contar tareas por estado
+     */
+    long countByStatus(RenditionTaskStatus status);
+
+    /**
+     * Reclamar una tarea pendiente (devuelve 1 solo para el worker que la obtiene)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentRenditionTask t SET t.status = :processing, t.attempts = t.attempts + 1, t.updatedAt = :now " +
+            "WHERE t.id = :taskId AND t.status = :pending")
+    int claim(@Param("taskId") Long taskId,
+              @Param("pending") RenditionTaskStatus pending,
+              @Param("processing") RenditionTaskStatus processing,
+              @Param("now") LocalDateTime now);
+
+    /**
+     * Actualizar el estado de una tarea
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentRenditionTask t SET t.status = :status, t.lastError = :lastError, t.updatedAt = :now WHERE t.id = :taskId")
+    int updateStatus(@Param("taskId") Long taskId,
+                     @Param("status") RenditionTaskStatus status,
+                     @Param("lastError") String lastError,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Devolver a la cola las tareas que quedaron en proceso (reinicio o worker caído) y aún tienen intentos
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentRenditionTask t SET t.status = :pending WHERE t.status = :processing AND t.updatedAt < :staleBefore " +
+            "AND t.attempts < :maxAttempts")
+    int requeueStale(@Param("pending") RenditionTaskStatus pending,
+                     @Param("processing") RenditionTaskStatus processing,
+                     @Param("staleBefore") LocalDateTime staleBefore,
+                     @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Marcar como fallidas las tareas huérfanas que agotaron los intentos (p. ej. una imagen que tumba al worker)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentRenditionTask t SET t.status = :failed, t.lastError = :lastError, t.updatedAt = :now " +
+            "WHERE t.status = :processing AND t.updatedAt < :staleBefore AND t.attempts >= :maxAttempts")
+    int failExhaustedStale(@Param("failed") RenditionTaskStatus failed,
+                           @Param("processing") RenditionTaskStatus processing,
+                           @Param("staleBefore") LocalDateTime staleBefore,
+                           @Param("maxAttempts") int maxAttempts,
+                           @Param("lastError") String lastError,
+                           @Param("now") LocalDateTime now);
+}
@@ -2,14 +2,18 @@ package com.example.novisapp.repository;
 
 import com.example.novisapp.entity.DocumentCategory;
 import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentScanStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,6 +42,13 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d FROM Document d WHERE d.isActive = true ORDER BY d.createdAt DESC")
     Page<Document> findAllActive(Pageable pageable);
 
+    /**
+     * De los ids dados, los que deben seguir en el índice de búsqueda (activos y fuera de cuarentena)
+     */
+    @Query("SELECT d.id FROM Document d WHERE d.id IN :ids AND d.isActive = true " +
+           "AND (d.scanStatus IS NULL OR d.scanStatus = :clean)")
+    List<Long> findIndexableIds(@Param("ids") Collection<Long> ids, @Param("clean") DocumentScanStatus clean);
+
     /**
      * Contar TODOS los documentos activos
      */
@@ -190,6 +201,19 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d FROM Document d WHERE d.createdAt BETWEEN :startDate AND :endDate AND d.isActive = true ORDER BY d.createdAt DESC")
     List<Document> findByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Documentos de un caso para exportación, con filtros opcionales de categoría y fechas [startDate, endDate)
+     */
+    @Query("SELECT d FROM Document d WHERE d.legalCase.id = :caseId AND d.isActive = true " +
+           "AND (:category IS NULL OR d.category = :category) " +
+           "AND (:startDate IS NULL OR d.createdAt >= :startDate) " +
+           "AND (:endDate IS NULL OR d.createdAt < :endDate) " +
+           "ORDER BY d.category ASC, d.createdAt ASC")
+    List<Document> findForArchive(@Param("caseId") Long caseId,
+                                  @Param("category") DocumentCategory category,
+                                  @Param("startDate") LocalDateTime startDate,
+                                  @Param("endDate") LocalDateTime endDate);
+
     /**
      * Buscar documentos recientes (últimos N días)
      */
@@ -322,6 +346,14 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d.fileType, COUNT(d) FROM Document d WHERE d.isActive = true GROUP BY d.fileType")
     List<Object[]> countByFileType();
 
+    /**
+     * Agregado completo de documentos activos por caso, categoría y tipo (reconciliación de estadísticas).
+     * Cada fila: [caseId (null si no tiene caso), category, fileType, count, totalBytes]
+     */
+    @Query("SELECT c.id, d.category, d.fileType, COUNT(d), COALESCE(SUM(d.fileSize), 0) FROM Document d " +
+           "LEFT JOIN d.legalCase c WHERE d.isActive = true GROUP BY c.id, d.category, d.fileType")
+    List<Object[]> aggregateActiveByCaseCategoryAndFileType();
+
     /**
      * Documentos más accedidos
      */
@@ -356,12 +388,128 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d FROM Document d WHERE d.createdAt < :cutoffDate AND d.isActive = false")
     List<Document> findOldDeletedDocuments(@Param("cutoffDate") LocalDateTime cutoffDate);
 
+    /**
+     * Candidatos a purga por retención, recorridos por keyset (id ascendente):
+     * eliminados (soft delete) antes del corte y, opcionalmente, huérfanos sin actividad desde el corte
+     */
+    @Query("SELECT d FROM Document d LEFT JOIN d.legalCase c WHERE d.id > :lastId AND (" +
+           "(d.isActive = false AND d.deletedAt < :cutoff) OR " +
+           "(:includeOrphans = true AND c.id IS NULL AND d.isActive = true AND d.createdAt < :cutoff " +
+           "AND (d.lastAccessedAt IS NULL OR d.lastAccessedAt < :cutoff))) ORDER BY d.id ASC")
+    List<Document> findRetentionCandidates(@Param("lastId") Long lastId,
+                                           @Param("cutoff") LocalDateTime cutoff,
+                                           @Param("includeOrphans") boolean includeOrphans,
+                                           Pageable pageable);
+
     /**
      * Buscar documentos huérfanos (sin caso válido)
      */
     @Query("SELECT d FROM Document d WHERE d.legalCase IS NULL OR d.legalCase.id NOT IN (SELECT c.id FROM LegalCase c)")
     List<Document> findOrphanedDocuments();
 
+    // ============================================
+    // RENDITIONS (MINIATURAS / PREVISUALIZACIONES)
+    // ============================================
+
+    /**
+     * Registrar las renditions generadas sin cargar ni versionar la entidad completa
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.thumbnailBlobName = :thumbnailBlobName, d.previewBlobName = :previewBlobName WHERE d.id = :documentId")
+    int updateRenditions(@Param("documentId") Long documentId,
+                         @Param("thumbnailBlobName") String thumbnailBlobName,
+                         @Param("previewBlobName") String previewBlobName);
+
+    // ============================================
+    // ANÁLISIS ANTIMALWARE (CUARENTENA)
+    // ============================================
+
+    /**
+     * Siguientes documentos en cola de análisis, en orden de llegada
+     */
+    @Query("SELECT d.id FROM Document d WHERE d.scanStatus = :status ORDER BY d.id ASC")
+    List<Long> findIdsByScanStatus(@Param("status") DocumentScanStatus status, Pageable pageable);
+
+    long countByScanStatus(DocumentScanStatus status);
+
+    /**
+     * Reclamar un documento para análisis (devuelve 1 solo para el worker que lo obtiene)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.scanStatus = :scanning, d.scanAttempts = COALESCE(d.scanAttempts, 0) + 1, " +
+           "d.scanUpdatedAt = :now WHERE d.id = :documentId AND d.scanStatus = :pending")
+    int claimForScan(@Param("documentId") Long documentId,
+                     @Param("pending") DocumentScanStatus pending,
+                     @Param("scanning") DocumentScanStatus scanning,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Registrar el veredicto solo si el documento sigue en el estado esperado
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.scanStatus = :status, d.scanResult = :scanResult, d.scanUpdatedAt = :now " +
+           "WHERE d.id = :documentId AND d.scanStatus = :expectedStatus")
+    int updateScanStatus(@Param("documentId") Long documentId,
+                         @Param("expectedStatus") DocumentScanStatus expectedStatus,
+                         @Param("status") DocumentScanStatus status,
+                         @Param("scanResult") String scanResult,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * Devolver a la cola los análisis que quedaron en curso (reinicio o worker caído) y aún tienen intentos
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.scanStatus = :pending WHERE d.scanStatus = :scanning AND d.scanUpdatedAt < :staleBefore " +
+           "AND (d.scanAttempts IS NULL OR d.scanAttempts < :maxAttempts)")
+    int requeueStaleScans(@Param("pending") DocumentScanStatus pending,
+                          @Param("scanning") DocumentScanStatus scanning,
+                          @Param("staleBefore") LocalDateTime staleBefore,
+                          @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Marcar como fallidos los análisis huérfanos que agotaron los intentos (p. ej. un archivo que tumba al worker)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.scanStatus = :failed, d.scanResult = :scanResult, d.scanUpdatedAt = :now " +
+           "WHERE d.scanStatus = :scanning AND d.scanUpdatedAt < :staleBefore AND d.scanAttempts >= :maxAttempts")
+    int failExhaustedStaleScans(@Param("failed") DocumentScanStatus failed,
+                                @Param("scanning") DocumentScanStatus scanning,
+                                @Param("staleBefore") LocalDateTime staleBefore,
+                                @Param("maxAttempts") int maxAttempts,
+                                @Param("scanResult") String scanResult,
+                                @Param("now") LocalDateTime now);
+
+    // ============================================
+    // CIFRADO EN REPOSO
+    // ============================================
+
+    /**
+     * Documentos cuya clave de datos está envuelta con una clave maestra distinta de la activa (keyset por id)
+     */
+    @Query("SELECT d FROM Document d WHERE d.encryptedDataKey IS NOT NULL AND d.encryptionKeyId <> :activeKeyId " +
+           "AND d.id > :lastId ORDER BY d.id ASC")
+    List<Document> findForKeyRotation(@Param("activeKeyId") String activeKeyId,
+                                      @Param("lastId") Long lastId,
+                                      Pageable pageable);
+
+    /**
+     * Sustituir la clave envuelta solo si no cambió desde que se leyó
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.encryptionKeyId = :newKeyId, d.encryptedDataKey = :newWrappedKey " +
+           "WHERE d.id = :documentId AND d.encryptionKeyId = :expectedKeyId AND d.encryptedDataKey = :expectedWrappedKey")
+    int updateEncryptionKey(@Param("documentId") Long documentId,
+                            @Param("expectedKeyId") String expectedKeyId,
+                            @Param("expectedWrappedKey") String expectedWrappedKey,
+                            @Param("newKeyId") String newKeyId,
+                            @Param("newWrappedKey") String newWrappedKey);
+
     // ============================================
     // MÉTODOS DE CONVENIENCIA PARA EL FRONTEND
     // ============================================
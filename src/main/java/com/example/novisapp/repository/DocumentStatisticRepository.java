@@ -0,0 +1,62 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentStatistic;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio de contadores precalculados de documentos
+ */
+@Repository
+public interface DocumentStatisticRepository extends JpaRepository<DocumentStatistic, Long> {
+
+    /**
+     * Todos los contadores de un ámbito (caso o global) en una sola lectura
+     */
+    @Query("SELECT s FROM DocumentStatistic s WHERE s.scopeId = :scopeId")
+    List<DocumentStatistic> findByScopeId(@Param("scopeId") Long scopeId);
+
+    /**
+     * Número de documentos activos del ámbito
+     */
+    @Query("SELECT s.documentCount FROM DocumentStatistic s WHERE s.scopeId = :scopeId AND s.dimension = 'TOTAL'")
+    Optional<Long> findTotalCount(@Param("scopeId") Long scopeId);
+
+    /**
+     * Aplicar un delta de forma atómica, creando la fila si no existe (MERGE con HOLDLOCK en SQL Server)
+     */
+    @Modifying
+    @Query(value = "MERGE INTO document_statistics WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :scopeId AS scope_id, :dimension AS dimension, :dimKey AS dim_key) AS s " +
+            "ON t.scope_id = s.scope_id AND t.dimension = s.dimension AND t.dim_key = s.dim_key " +
+            "WHEN MATCHED THEN UPDATE SET t.document_count = t.document_count + :countDelta, " +
+            "t.total_bytes = t.total_bytes + :bytesDelta, t.updated_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED THEN INSERT (scope_id, dimension, dim_key, document_count, total_bytes, updated_at) " +
+            "VALUES (:scopeId, :dimension, :dimKey, :countDelta, :bytesDelta, SYSDATETIME());",
+            nativeQuery = true)
+    int applyDelta(@Param("scopeId") Long scopeId,
+                   @Param("dimension") String dimension,
+                   @Param("dimKey") String dimKey,
+                   @Param("countDelta") long countDelta,
+                   @Param("bytesDelta") long bytesDelta);
+
+    /**
+     * Bloqueo exclusivo de la tabla hasta el fin de la transacción (reconciliación completa):
+     * los deltas concurrentes esperan en su MERGE y se aplican sobre los valores recalculados
+     */
+    @Query(value = "SELECT COUNT(*) FROM document_statistics WITH (TABLOCKX, HOLDLOCK)", nativeQuery = true)
+    long lockAllStatistics();
+
+    /**
+     * Vaciar la tabla (usado por la reconciliación completa)
+     */
+    @Modifying
+    @Query("DELETE FROM DocumentStatistic s")
+    int deleteAllStatistics();
+}
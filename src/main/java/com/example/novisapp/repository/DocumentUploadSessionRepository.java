@@ -0,0 +1,90 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentUploadSession;
+import com.example.novisapp.entity.UploadSessionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de sesiones de carga reanudable
+ */
+@Repository
+public interface DocumentUploadSessionRepository extends JpaRepository<DocumentUploadSession, String> {
+
+    /**
+     * Sesiones abandonadas (sin actividad hasta su expiración)
+     */
+    @Query("SELECT s FROM DocumentUploadSession s WHERE s.status = :status AND s.expiresAt < :now ORDER BY s.expiresAt ASC")
+    List<DocumentUploadSession> findExpired(@Param("status") UploadSessionStatus status,
+                                            @Param("now") LocalDateTime now,
+                                            Pageable pageable);
+
+    /**
+     * Registrar un fragmento aceptado. Solo avanza si el offset coincide con lo ya recibido,
+     * de modo que un fragmento duplicado o concurrente no puede contarse dos veces.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentUploadSession s SET s.receivedBytes = :newOffset, s.chunkCount = s.chunkCount + 1, " +
+            "s.expiresAt = :expiresAt, s.updatedAt = :now " +
+            "WHERE s.id = :id AND s.receivedBytes = :offset AND s.status = :status")
+    int advance(@Param("id") String id,
+                @Param("offset") Long offset,
+                @Param("newOffset") Long newOffset,
+                @Param("status") UploadSessionStatus status,
+                @Param("expiresAt") LocalDateTime expiresAt,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Cerrar una sesión (completada, cancelada o expirada)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentUploadSession s SET s.status = :status, s.documentId = :documentId, s.lastError = :lastError, " +
+            "s.updatedAt = :now WHERE s.id = :id AND s.status = :expectedStatus")
+    int close(@Param("id") String id,
+              @Param("expectedStatus") UploadSessionStatus expectedStatus,
+              @Param("status") UploadSessionStatus status,
+              @Param("documentId") Long documentId,
+              @Param("lastError") String lastError,
+              @Param("now") LocalDateTime now);
+
+    /**
+     * Sesiones en curso cuya clave de datos está envuelta con una clave maestra distinta de la activa (keyset por id)
+     */
+    @Query("SELECT s FROM DocumentUploadSession s WHERE s.status = :status AND s.encryptedDataKey IS NOT NULL " +
+            "AND s.encryptionKeyId <> :activeKeyId AND s.id > :lastId ORDER BY s.id ASC")
+    List<DocumentUploadSession> findForKeyRotation(@Param("status") UploadSessionStatus status,
+                                                   @Param("activeKeyId") String activeKeyId,
+                                                   @Param("lastId") String lastId,
+                                                   Pageable pageable);
+
+    /**
+     * Sustituir la clave envuelta solo si no cambió desde que se leyó
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentUploadSession s SET s.encryptionKeyId = :newKeyId, s.encryptedDataKey = :newWrappedKey " +
+            "WHERE s.id = :id AND s.encryptionKeyId = :expectedKeyId AND s.encryptedDataKey = :expectedWrappedKey")
+    int updateEncryptionKey(@Param("id") String id,
+                            @Param("expectedKeyId") String expectedKeyId,
+                            @Param("expectedWrappedKey") String expectedWrappedKey,
+                            @Param("newKeyId") String newKeyId,
+                            @Param("newWrappedKey") String newWrappedKey);
+
+    /**
+     * Registrar el tipo real detectado en la cabecera del primer fragmento
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentUploadSession s SET s.contentType = :contentType WHERE s.id = :id")
+    int updateContentType(@Param("id") String id, @Param("contentType") String contentType);
+}
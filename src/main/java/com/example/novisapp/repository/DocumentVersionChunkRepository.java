@@ -0,0 +1,22 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentVersionChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio de la composición en chunks de cada versión
+ */
+@Repository
+public interface DocumentVersionChunkRepository extends JpaRepository<DocumentVersionChunk, Long> {
+
+    /**
+     * Chunks de una versión en orden de reconstrucción
+     */
+    @Query("SELECT c FROM DocumentVersionChunk c WHERE c.versionId = :versionId ORDER BY c.sequence ASC")
+    List<DocumentVersionChunk> findByVersionIdOrdered(@Param("versionId") Long versionId);
+}
@@ -0,0 +1,35 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.DocumentVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio de versiones de documentos
+ */
+@Repository
+public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, Long> {
+
+    /**
+     * Historial completo de un documento (usa el índice único document_id + version_number)
+     */
+    @Query("SELECT v FROM DocumentVersion v WHERE v.documentId = :documentId ORDER BY v.versionNumber DESC")
+    List<DocumentVersion> findHistory(@Param("documentId") Long documentId);
+
+    /**
+     * Versión concreta de un documento
+     */
+    @Query("SELECT v FROM DocumentVersion v WHERE v.documentId = :documentId AND v.versionNumber = :versionNumber")
+    Optional<DocumentVersion> findByDocumentIdAndVersionNumber(@Param("documentId") Long documentId,
+                                                               @Param("versionNumber") Integer versionNumber);
+
+    /**
+     * Verificar si el documento ya tiene historial en el almacén de chunks
+     */
+    boolean existsByDocumentId(Long documentId);
+}
@@ -1,16 +1,21 @@
 package com.example.novisapp.repository;
 
 // ✅ IMPORTS CORREGIDOS - Todos los enums deben estar en entity
+import com.example.novisapp.dto.CaseListItemDTO;
 import com.example.novisapp.entity.CaseStatus;
 import com.example.novisapp.entity.Country;
 import com.example.novisapp.entity.LegalSpecialty;
 import com.example.novisapp.entity.LegalCase;
 import com.example.novisapp.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -149,9 +154,12 @@ public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
     List<LegalCase> findActiveCasesAssignedToLawyer(@Param("lawyerId") Long lawyerId);
 
     /**
-     * Buscar TODOS los casos asignados a un abogado (activos e inactivos)
+     * Buscar TODOS los casos asignados a un abogado (activos e inactivos).
+     * Filtro por subconsulta para que el fetch de assignedLawyers traiga el equipo completo.
      */
-    @Query("SELECT lc FROM LegalCase lc JOIN lc.assignedLawyers u WHERE u.id = :lawyerId")
+    @EntityGraph(attributePaths = {"client", "primaryLawyer", "assignedLawyers"})
+    @Query("SELECT lc FROM LegalCase lc WHERE EXISTS " +
+            "(SELECT u.id FROM LegalCase c JOIN c.assignedLawyers u WHERE c = lc AND u.id = :lawyerId)")
     List<LegalCase> findCasesAssignedToLawyer(@Param("lawyerId") Long lawyerId);
 
     /**
@@ -197,6 +205,21 @@ public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
     // ESTADÍSTICAS Y REPORTES
     // ========================================
 
+    /**
+     * Contadores de casos por estado en una sola pasada:
+     * [status, total, urgentes, sin abogado principal, con menos de 2 abogados].
+     * El tamaño del equipo sale de un conteo agrupado, no de un SIZE() correlacionado por caso.
+     */
+    @Query(value = "SELECT lc.status, COUNT(*), " +
+            "SUM(CASE WHEN lc.priority IN ('HIGH', 'URGENT') THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN lc.primary_lawyer_id IS NULL THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN COALESCE(team.lawyer_count, 0) < 2 THEN 1 ELSE 0 END) " +
+            "FROM legal_cases lc " +
+            "LEFT JOIN (SELECT legal_case_id, COUNT(*) AS lawyer_count " +
+            "FROM case_lawyer_assignments GROUP BY legal_case_id) team ON team.legal_case_id = lc.id " +
+            "GROUP BY lc.status", nativeQuery = true)
+    List<Object[]> getCaseStatisticsByStatus();
+
     /**
      * Contar casos sin equipo asignado
      */
@@ -332,6 +355,7 @@ public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
     /**
      * Casos activos
      */
+    @EntityGraph(attributePaths = {"client", "primaryLawyer", "assignedLawyers"})
     @Query("SELECT lc FROM LegalCase lc WHERE lc.status IN ('OPEN', 'IN_PROGRESS')")
     List<LegalCase> findActiveCases();
 
@@ -356,6 +380,7 @@ public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
     /**
      * Buscar casos abiertos sin equipo asignado - NUEVO
      */
+    @EntityGraph(attributePaths = {"client", "primaryLawyer"})
     @Query("SELECT lc FROM LegalCase lc WHERE lc.status = 'OPEN' AND SIZE(lc.assignedLawyers) = 0")
     List<LegalCase> findOpenCasesWithoutTeam();
 
@@ -392,6 +417,7 @@ public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
     /**
      * Buscar casos urgentes que necesitan atención - NUEVO
      */
+    @EntityGraph(attributePaths = {"client", "primaryLawyer", "assignedLawyers"})
     @Query("SELECT lc FROM LegalCase lc WHERE lc.priority IN ('HIGH', 'URGENT') AND lc.status IN ('OPEN', 'IN_PROGRESS')")
     List<LegalCase> findUrgentCases();
 
@@ -456,6 +482,50 @@ public interface LegalCaseRepository extends JpaRepository<LegalCase, Long> {
                          @Param("clientId") Long clientId,
                          @Param("searchText") String searchText);
 
+    // ========================================
+    // LISTADO PAGINADO (PROYECCIÓN)
+    // ========================================
+
+    /**
+     * Página del listado de casos como proyección plana (caso + cliente + abogado principal).
+     * Filtros de estado y título combinables; el total sale de la consulta de conteo.
+     */
+    @Query(value = "SELECT new com.example.novisapp.dto.CaseListItemDTO(" +
+            "lc.id, lc.caseNumber, lc.title, lc.description, lc.status, lc.priority, lc.createdAt, lc.updatedAt, " +
+            "c.id, c.name, c.email, p.id, p.firstName, p.lastName, p.email) " +
+            "FROM LegalCase lc LEFT JOIN lc.client c LEFT JOIN lc.primaryLawyer p WHERE " +
+            "(:status IS NULL OR lc.status = :status) AND " +
+            "(:searchText IS NULL OR LOWER(lc.title) LIKE LOWER(CONCAT('%', :searchText, '%'))) " +
+            "ORDER BY lc.updatedAt DESC, lc.id DESC",
+            countQuery = "SELECT COUNT(lc) FROM LegalCase lc WHERE " +
+                    "(:status IS NULL OR lc.status = :status) AND " +
+                    "(:searchText IS NULL OR LOWER(lc.title) LIKE LOWER(CONCAT('%', :searchText, '%')))")
+    Page<CaseListItemDTO> findCaseListPage(@Param("status") CaseStatus status,
+                                           @Param("searchText") String searchText,
+                                           Pageable pageable);
+
+    /**
+     * Abogados asignados a un conjunto de casos en una sola consulta:
+     * [caseId, lawyerId, firstName, lastName, email]
+     */
+    @Query("SELECT lc.id, u.id, u.firstName, u.lastName, u.email " +
+            "FROM LegalCase lc JOIN lc.assignedLawyers u WHERE lc.id IN :caseIds")
+    List<Object[]> findAssignedLawyersForCases(@Param("caseIds") Collection<Long> caseIds);
+
+    /**
+     * Caso con cliente, abogado principal y equipo en una sola consulta (vista de detalle)
+     */
+    @EntityGraph(attributePaths = {"client", "primaryLawyer", "assignedLawyers"})
+    @Query("SELECT lc FROM LegalCase lc WHERE lc.id = :id")
+    Optional<LegalCase> findDetailById(@Param("id") Long id);
+
+    /**
+     * Números de caso con un prefijo, del mayor al menor (longitud primero: 10000 > 9999)
+     */
+    @Query("SELECT lc.caseNumber FROM LegalCase lc WHERE lc.caseNumber LIKE CONCAT(:prefix, '%') " +
+            "ORDER BY LENGTH(lc.caseNumber) DESC, lc.caseNumber DESC")
+    List<String> findCaseNumbersWithPrefix(@Param("prefix") String prefix, Pageable pageable);
+
     // ========================================
     // MÉTODOS PARA REPORTES AVANZADOS (NUEVOS)
     // ========================================
@@ -0,0 +1,12 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.MaintenanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio de puntos de control de jobs de mantenimiento
+ */
+@Repository
+public interface MaintenanceCheckpointRepository extends JpaRepository<MaintenanceCheckpoint, String> {
+}
@@ -0,0 +1,41 @@
+package com.example.novisapp.repository;
+
+import com.example.novisapp.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de tokens revocados
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    boolean existsByJti(String jti);
+
+    /**
+     * Versión actual de la lista de revocación (el id nunca se reutiliza)
+     */
+    @Query("SELECT COALESCE(MAX(r.id), 0) FROM RevokedToken r")
+    Long findCurrentVersion();
+
+    /**
+     * Revocaciones vigentes registradas después de la versión indicada
+     */
+    @Query("SELECT r FROM RevokedToken r WHERE r.id > :afterId AND r.expiresAt > :now ORDER BY r.id")
+    List<RevokedToken> findActiveAfter(@Param("afterId") Long afterId, @Param("now") LocalDateTime now);
+
+    /**
+     * Purgar revocaciones de tokens ya expirados
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,14 +1,18 @@
 package com.example.novisapp.repository;
 
+import com.example.novisapp.dto.UserAuthStatusDTO;
 import com.example.novisapp.entity.User;
 import com.example.novisapp.entity.UserRole; // ✅ USAR SOLO LA VERSIÓN DE ENTITY
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -63,6 +67,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByIdAndActiveTrue(Long id);
 
+    /**
+     * Estado de autenticación (activo, habilitado, bloqueado y rol) sin cargar la entidad
+     */
+    @Query("SELECT new com.example.novisapp.dto.UserAuthStatusDTO(u.id, u.role, u.active, u.enabled, u.accountNonLocked) " +
+            "FROM User u WHERE u.id = :id")
+    Optional<UserAuthStatusDTO> findAuthStatusById(@Param("id") Long id);
+
     /**
      * Verificar si existe por email
      */
@@ -249,6 +260,44 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.active = true AND u.failedLoginAttempts > 0 ORDER BY u.failedLoginAttempts DESC")
     List<User> findUsersWithFailedAttempts();
 
+    // ========================================
+    // CARGA DE TRABAJO (ACTUALIZACIONES ATÓMICAS)
+    // ========================================
+
+    /**
+     * Sumar casos a la carga en la base de datos (sin leer y reescribir el valor)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.currentWorkload = COALESCE(u.currentWorkload, 0) + :delta WHERE u.id IN :userIds")
+    int incrementWorkload(@Param("userIds") Collection<Long> userIds, @Param("delta") int delta);
+
+    /**
+     * Restar casos a la carga en la base de datos, sin bajar de 0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.currentWorkload = CASE WHEN COALESCE(u.currentWorkload, 0) > :delta " +
+            "THEN u.currentWorkload - :delta ELSE 0 END WHERE u.id IN :userIds")
+    int decrementWorkload(@Param("userIds") Collection<Long> userIds, @Param("delta") int delta);
+
+    /**
+     * Corregir la carga solo si no cambió desde que se leyó (no pisa incrementos concurrentes)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.currentWorkload = :actual " +
+            "WHERE u.id = :userId AND COALESCE(u.currentWorkload, 0) = :expected")
+    int reconcileWorkload(@Param("userId") Long userId,
+                          @Param("expected") int expected,
+                          @Param("actual") int actual);
+
+    /**
+     * Carga registrada de todos los usuarios: [userId, currentWorkload]
+     */
+    @Query("SELECT u.id, COALESCE(u.currentWorkload, 0) FROM User u")
+    List<Object[]> findAllWorkloads();
+
     // ========================================
     // MÉTODOS DE COMPATIBILIDAD
     // ========================================
@@ -0,0 +1,62 @@
+package com.example.novisapp.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * IP del cliente detrás del proxy de Azure App Service.
+ * getRemoteAddr() devuelve la dirección del proxy; cada proxy de confianza añade al final de X-Forwarded-For
+ * la dirección desde la que recibió la petición. Las entradas de la izquierda (y cabeceras como X-Real-IP)
+ * las controla el cliente: solo se usa la entrada que añadió el proxy más externo de confianza.
+ * Se usa en auditoría de documentos y en los límites de login por IP.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    // Número de proxies de confianza que añaden una entrada a X-Forwarded-For (App Service: 1)
+    @Value("${novis.security.trusted-proxy-hops:1}")
+    private int trustedProxyHops;
+
+    public String resolve(HttpServletRequest request) {
+        if (request == null) return null;
+        if (trustedProxyHops <= 0) return request.getRemoteAddr();
+
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(FORWARDED_FOR);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String entry : headers.nextElement().split(",")) {
+                if (!entry.isBlank()) hops.add(entry.trim());
+            }
+        }
+        if (hops.isEmpty()) {
+            return request.getRemoteAddr();
+        }
+
+        // Con menos entradas que proxies de confianza, todas las añadieron ellos
+        String ip = hops.get(Math.max(0, hops.size() - trustedProxyHops));
+        return stripPort(ip);
+    }
+
+    /**
+     * Azure añade el puerto de origen ("203.0.113.7:52114", "[2001:db8::1]:52114"): sin quitarlo,
+     * cada conexión del mismo cliente contaría como una IP distinta
+     */
+    private String stripPort(String ip) {
+        if (ip.startsWith("[")) {
+            int end = ip.indexOf(']');
+            return end > 0 ? ip.substring(1, end) : ip;
+        }
+        int colon = ip.indexOf(':');
+        if (colon > 0 && colon == ip.lastIndexOf(':')) {
+            return ip.substring(0, colon);
+        }
+        return ip;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.novisapp.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Tokens HMAC-SHA256 para URLs de descarga firmadas del backend local.
+ * Formato: base64url(container \n blob \n fileName \n expiraEpochSeg) + "." + base64url(hmac)
+ */
+@Component
+@Slf4j
+public class DownloadTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public DownloadTokenService(@Value("${novis.storage.signed-url.secret:${jwt.secret}}") String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("No se pudo inicializar " + ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Firmar el acceso a un blob hasta la fecha de expiración indicada
+     */
+    public String sign(String containerName, String blobName, String fileName, Instant expiresAt) {
+        String payload = String.join("\n", containerName, blobName,
+                fileName != null ? fileName : blobName, String.valueOf(expiresAt.getEpochSecond()));
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(macs.get().doFinal(payloadBytes));
+    }
+
+    /**
+     * Verificar firma y expiración. Devuelve null si el token no es válido.
+     */
+    public SignedBlob verify(String token) {
+        if (token == null) return null;
+
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) return null;
+
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payloadBytes = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+
+            if (!MessageDigest.isEqual(signature, macs.get().doFinal(payloadBytes))) {
+                log.warn("Token de descarga con firma inválida");
+                return null;
+            }
+
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\n", -1);
+            if (parts.length != 4) return null;
+
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+            if (expiresAt.isBefore(Instant.now())) {
+                log.debug("Token de descarga expirado para blob {}/{}", parts[0], parts[1]);
+                return null;
+            }
+
+            return new SignedBlob(parts[0], parts[1], parts[2], expiresAt);
+        } catch (IllegalArgumentException e) {
+            log.warn("Token de descarga malformado: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SignedBlob {
+        private String containerName;
+        private String blobName;
+        private String fileName;
+        private Instant expiresAt;
+    }
+}
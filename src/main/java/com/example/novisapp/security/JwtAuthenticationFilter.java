@@ -1,15 +1,20 @@
 package com.example.novisapp.security;
 
+import com.example.novisapp.entity.User;
+import com.example.novisapp.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -23,6 +28,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final UserDetailsService userDetailsService;
     private final JwtTokenUtil jwtTokenUtil;
+    private final UserStatusCache userStatusCache;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Autenticación por claims: el principal sale del token y solo se consulta el estado cacheado del usuario
+    @Value("${jwt.claims-authentication.enabled:true}")
+    private boolean claimsAuthenticationEnabled;
 
     @Override
     protected void doFilterInternal(
@@ -32,7 +43,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String requestTokenHeader = request.getHeader("Authorization");
         final String jwtToken;
-        final String username;
+        final Claims claims;
 
         // Verificar si el header Authorization está presente y tiene el formato correcto
         if (requestTokenHeader == null || !requestTokenHeader.startsWith("Bearer ")) {
@@ -44,21 +55,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwtToken = requestTokenHeader.substring(7);
 
         try {
-            // Extraer username del token
-            username = jwtTokenUtil.getUsernameFromToken(jwtToken);
+            // Verificar firma y expiración una sola vez
+            claims = jwtTokenUtil.parseToken(jwtToken);
         } catch (Exception e) {
             log.error("Unable to get JWT Token or JWT Token has expired: {}", e.getMessage());
             filterChain.doFilter(request, response);
             return;
         }
 
-        // Validar el token y configurar el contexto de seguridad
+        // Token revocado por logout: consulta solo en memoria
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            log.warn("Revoked JWT Token used for user: {}", claims.getSubject());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        final String username = claims.getSubject();
+
+        // Configurar el contexto de seguridad
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = resolvePrincipal(claims, username);
 
-            // Si el token es válido, configurar Spring Security para establecer manualmente la autenticación
-            if (jwtTokenUtil.validateToken(jwtToken, userDetails)) {
+            if (userDetails != null) {
 
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
@@ -82,6 +101,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Obtener el principal del token. Con claims completos no hay consulta a la tabla users
+     * (salvo el estado cacheado); los tokens sin userId/role usan la carga tradicional del usuario.
+     */
+    private UserDetails resolvePrincipal(Claims claims, String username) {
+        if (claimsAuthenticationEnabled) {
+            User user = jwtTokenUtil.getUserFromClaims(claims);
+            if (user != null) {
+                return userStatusCache.isAllowed(user.getId(), user.getRole()) ? user : null;
+            }
+        }
+
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            return userDetails.isAccountNonLocked() ? userDetails : null;
+        } catch (UsernameNotFoundException e) {
+            log.warn("JWT Token user not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
@@ -97,4 +137,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 path.startsWith("/webjars/") ||
                 path.equals("/favicon.ico");
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,30 @@
 package com.example.novisapp.security;
 
 import com.example.novisapp.entity.User;
+import com.example.novisapp.entity.UserRole;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 @Component
@@ -24,8 +37,55 @@ public class JwtTokenUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.verified-cache.enabled:true}")
+    private boolean verifiedCacheEnabled;
+
+    @Value("${jwt.verified-cache.max-size:20000}")
+    private long verifiedCacheMaxSize;
+
+    // Clave y parser inmutables: se construyen una sola vez
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Tokens ya verificados (digest SHA-256 del token -> claims), cada entrada expira con su token
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    // Costo de autenticación medido en parseToken, separado por acierto/fallo de caché
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.expiresAt - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
     // Extraer username (email) del token
@@ -44,14 +104,91 @@ public class JwtTokenUtil {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verificar firma y expiración una sola vez y devolver los claims.
+     * Lanza JwtException (incluida ExpiredJwtException) si el token no es válido.
+     */
+    public Claims parseToken(String token) {
+        long start = System.nanoTime();
+        String digest = null;
+        if (verifiedCacheEnabled) {
+            digest = digest(token);
+            VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+            if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+                hitNanos.add(System.nanoTime() - start);
+                hitCount.increment();
+                return cached.claims;
+            }
+        }
+
+        // Con la caché desactivada todas las verificaciones cuentan como fallo: sirve de línea base
+        Claims claims = getAllClaimsFromToken(token);
+        if (digest != null && claims.getExpiration() != null) {
+            verifiedTokens.put(digest, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        }
+        missNanos.add(System.nanoTime() - start);
+        missCount.increment();
+        return claims;
+    }
+
+    /**
+     * Descartar un token de la caché de verificación (logout)
+     */
+    public void evictVerifiedToken(String token) {
+        verifiedTokens.invalidate(digest(token));
+    }
+
+    /**
+     * Métricas de la caché de verificación: tasa de aciertos y costo medio por request
+     */
+    public Map<String, Object> getVerifiedCacheStats() {
+        CacheStats stats = verifiedTokens.stats();
+        long misses = missCount.sum();
+        long hits = hitCount.sum();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", verifiedCacheEnabled);
+        result.put("size", verifiedTokens.estimatedSize());
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        result.put("evictions", stats.evictionCount());
+        result.put("avgHitMicros", hits > 0 ? hitNanos.sum() / hits / 1000.0 : 0.0);
+        result.put("avgMissMicros", misses > 0 ? missNanos.sum() / misses / 1000.0 : 0.0);
+        return result;
+    }
+
+    /**
+     * Construir el principal a partir de los claims, sin consultar la base de datos.
+     * Devuelve null si el token no trae userId o role (tokens emitidos sin ellos).
+     * El usuario resultante no está gestionado por JPA: solo contiene los datos del token.
+     */
+    public User getUserFromClaims(Claims claims) {
+        Long userId = claims.get("userId", Long.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+
+        User user = new User();
+        user.setId(userId);
+        user.setEmail(claims.getSubject());
+        user.setFirstName(claims.get("firstName", String.class));
+        user.setLastName(claims.get("lastName", String.class));
+        user.setSpecialization(claims.get("specialization", String.class));
+        try {
+            user.setRole(UserRole.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown role in JWT token: {}", role);
+            return null;
+        }
+        return user;
+    }
+
     // Extraer todos los claims del token
     private Claims getAllClaimsFromToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (JwtException e) {
             log.error("Error parsing JWT token: {}", e.getMessage());
             throw e;
@@ -89,6 +226,7 @@ public class JwtTokenUtil {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(getSigningKey(), SignatureAlgorithm.HS512)
@@ -123,6 +261,10 @@ public class JwtTokenUtil {
         return claims.get("userId", Long.class);
     }
 
+    public String getTokenIdFromToken(String token) {
+        return getClaimFromToken(token, Claims::getId);
+    }
+
     public String getRoleFromToken(String token) {
         Claims claims = getAllClaimsFromToken(token);
         return claims.get("role", String.class);
@@ -142,6 +284,8 @@ public class JwtTokenUtil {
     public String refreshToken(String token) {
         try {
             final Claims claims = getAllClaimsFromToken(token);
+            // Identificador propio: revocar el token anterior no afecta al nuevo
+            claims.setId(UUID.randomUUID().toString());
             claims.setIssuedAt(new Date());
             claims.setExpiration(new Date(System.currentTimeMillis() + expiration));
 
@@ -155,6 +299,15 @@ public class JwtTokenUtil {
         }
     }
 
+    private String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
     // Obtener tiempo restante del token en milisegundos
     public Long getTokenRemainingTime(String token) {
         try {
@@ -165,4 +318,14 @@ public class JwtTokenUtil {
             return 0L;
         }
     }
+
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private VerifiedToken(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
\ No newline at end of file
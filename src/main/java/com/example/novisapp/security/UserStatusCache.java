@@ -0,0 +1,75 @@
+package com.example.novisapp.security;
+
+import com.example.novisapp.dto.UserAuthStatusDTO;
+import com.example.novisapp.entity.UserRole;
+import com.example.novisapp.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caché de corta duración del estado de autenticación de cada usuario.
+ * Con autenticación por claims el filtro JWT no carga el usuario; este estado es lo único que consulta
+ * para que una desactivación, un bloqueo o un cambio de rol invaliden los tokens ya emitidos.
+ * - Una consulta de proyección por usuario como máximo cada ttl-seconds
+ * - Los cambios hechos en este nodo se aplican de inmediato (evict); en otros nodos, al expirar la entrada
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserStatusCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${jwt.user-status.cache-ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${jwt.user-status.cache-max-size:10000}")
+    private long maxSize;
+
+    private Cache<Long, Optional<UserAuthStatusDTO>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Verificar que el usuario del token sigue activo, desbloqueado y con el rol que declara el token
+     */
+    public boolean isAllowed(Long userId, UserRole tokenRole) {
+        Optional<UserAuthStatusDTO> status = cache.get(userId, userRepository::findAuthStatusById);
+        if (status.isEmpty()) {
+            log.debug("User {} from token no longer exists", userId);
+            return false;
+        }
+        if (!status.get().allowsAuthentication()) {
+            log.debug("User {} is inactive or locked", userId);
+            return false;
+        }
+        if (status.get().getRole() != tokenRole) {
+            log.debug("Role of user {} changed since the token was issued", userId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Descartar el estado cacheado tras modificar el usuario
+     */
+    public void evict(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.novisapp.service;
+
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
+import com.azure.storage.blob.sas.BlobSasPermission;
+import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.example.novisapp.dto.StoredBlobInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Backend de almacenamiento sobre Azure Blob Storage (backend por defecto)
+ */
+@Component
+@ConditionalOnProperty(name = "novis.storage.backend", havingValue = "azure", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class AzureBlobDocumentStorage implements DocumentStorage {
+
+    private final BlobServiceClient blobServiceClient;
+
+    @Override
+    public String getBackendName() {
+        return "azure";
+    }
+
+    @Override
+    public String put(String containerName, String blobName, InputStream data, long length,
+                      String contentType, String contentDisposition) throws IOException {
+        BlobClient blobClient = getBlobClient(containerName, blobName);
+
+        try {
+            blobClient.upload(data, length, true);
+            blobClient.setHttpHeaders(new BlobHttpHeaders()
+                    .setContentType(contentType)
+                    .setContentDisposition(contentDisposition));
+        } catch (BlobStorageException e) {
+            throw new IOException("Error subiendo blob " + containerName + "/" + blobName + ": " + e.getMessage(), e);
+        }
+
+        return blobClient.getBlobUrl();
+    }
+
+    @Override
+    public void stageBlock(String containerName, String blobName, int blockIndex, long offset,
+                           InputStream data, long length) throws IOException {
+        try {
+            getBlobClient(containerName, blobName).getBlockBlobClient()
+                    .stageBlock(blockId(blockIndex), data, length);
+        } catch (BlobStorageException e) {
+            throw new IOException("Error subiendo bloque " + blockIndex + " de " + containerName + "/" + blobName +
+                    ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String commitBlocks(String containerName, String blobName, int blockCount, long totalLength,
+                               String contentType, String contentDisposition) throws IOException {
+        List<String> blockIds = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            blockIds.add(blockId(i));
+        }
+
+        BlockBlobClient blockBlobClient = getBlobClient(containerName, blobName).getBlockBlobClient();
+        try {
+            blockBlobClient.commitBlockListWithResponse(new BlockBlobCommitBlockListOptions(blockIds)
+                    .setHeaders(new BlobHttpHeaders()
+                            .setContentType(contentType)
+                            .setContentDisposition(contentDisposition)), null, null);
+        } catch (BlobStorageException e) {
+            throw new IOException("Error confirmando bloques de " + containerName + "/" + blobName + ": " + e.getMessage(), e);
+        }
+
+        return blockBlobClient.getBlobUrl();
+    }
+
+    @Override
+    public void discardBlocks(String containerName, String blobName) {
+        // Azure elimina automáticamente los bloques no confirmados a los 7 días;
+        // mientras no haya commit no existe blob que borrar.
+        log.debug("Bloques pendientes descartados (expiran en Azure): {}/{}", containerName, blobName);
+    }
+
+    @Override
+    public InputStream get(String containerName, String blobName, long offset, long count) throws IOException {
+        BlobRange range = count < 0 ? new BlobRange(offset) : new BlobRange(offset, count);
+        try {
+            return getBlobClient(containerName, blobName)
+                    .openInputStream(new BlobInputStreamOptions().setRange(range));
+        } catch (BlobStorageException e) {
+            throw new IOException("Error leyendo blob " + containerName + "/" + blobName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean delete(String containerName, String blobName) throws IOException {
+        try {
+            return getBlobClient(containerName, blobName).deleteIfExists();
+        } catch (BlobStorageException e) {
+            throw new IOException("Error eliminando blob " + containerName + "/" + blobName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean exists(String containerName, String blobName) {
+        return getBlobClient(containerName, blobName).exists();
+    }
+
+    @Override
+    public StoredBlobInfo stat(String containerName, String blobName) throws IOException {
+        BlobClient blobClient = getBlobClient(containerName, blobName);
+        try {
+            BlobProperties properties = blobClient.getProperties();
+            return StoredBlobInfo.builder()
+                    .containerName(containerName)
+                    .blobName(blobName)
+                    .size(properties.getBlobSize())
+                    .contentType(properties.getContentType())
+                    .lastModified(properties.getLastModified() != null ?
+                            properties.getLastModified().toLocalDateTime() : null)
+                    .location(blobClient.getBlobUrl())
+                    .build();
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Error consultando blob " + containerName + "/" + blobName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String generateDownloadUrl(String containerName, String blobName, String fileName, Duration validity) throws IOException {
+        BlobClient blobClient = getBlobClient(containerName, blobName);
+
+        BlobServiceSasSignatureValues sasValues = new BlobServiceSasSignatureValues(
+                OffsetDateTime.now().plus(validity),
+                new BlobSasPermission().setReadPermission(true))
+                .setContentDisposition("attachment; filename=\"" + fileName + "\"");
+
+        try {
+            return blobClient.getBlobUrl() + "?" + blobClient.generateSas(sasValues);
+        } catch (RuntimeException e) {
+            // generateSas requiere credenciales de cuenta (AccountKey en la connection string)
+            throw new IOException("No se pudo generar SAS para " + containerName + "/" + blobName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Los IDs de bloque deben ser Base64 y de igual longitud dentro del mismo blob
+     */
+    private String blockId(int blockIndex) {
+        return Base64.getEncoder().encodeToString(String.format("%010d", blockIndex).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BlobClient getBlobClient(String containerName, String blobName) {
+        return blobServiceClient
+                .getBlobContainerClient(containerName)
+                .getBlobClient(blobName);
+    }
+}
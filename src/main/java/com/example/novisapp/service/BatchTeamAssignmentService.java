@@ -0,0 +1,343 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.BatchAssignmentPlanDTO;
+import com.example.novisapp.dto.TeamAssignmentResult;
+import com.example.novisapp.entity.CaseComplexity;
+import com.example.novisapp.entity.Country;
+import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.entity.LegalSpecialty;
+import com.example.novisapp.repository.LegalCaseRepository;
+import com.example.novisapp.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Asignación por lotes de los casos abiertos sin equipo, balanceando la carga entre todos los abogados.
+ * - Puntuación en paralelo: abogados elegibles (especialidad) y penalización por país para cada caso
+ * - Asignación inicial en orden de prioridad (y de menos candidatos a más), eligiendo los de menor costo
+ * - Balanceo iterativo: un abogado del plan se cambia por otro elegible mientras el costo baje;
+ *   cada movimiento reduce estrictamente el potencial Σ carga·(carga+1)/2 + Σ penalizaciones, así que termina
+ * - Ningún abogado supera novis.teams.max-cases-per-lawyer
+ * - El plan se aplica en una sola transacción: si un caso falla no se asigna ninguno
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchTeamAssignmentService {
+
+    // Un abogado de otro país cuesta como un caso más de carga
+    private static final double COUNTRY_MISMATCH_PENALTY = 1.0;
+    private static final int MAX_BALANCING_ROUNDS = 100;
+    private static final List<String> PRIORITY_ORDER = List.of("URGENT", "HIGH", "MEDIUM", "LOW");
+
+    private final LegalCaseRepository legalCaseRepository;
+    private final UserRepository userRepository;
+    private final SimplifiedTeamService simplifiedTeamService;
+    private final LawyerAvailabilityIndex availabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${novis.teams.max-cases-per-lawyer:10}")
+    private int maxCasesPerLawyer;
+
+    @Value("${novis.teams.min-lawyers-per-case:2}")
+    private int minLawyersPerCase;
+
+    @Value("${novis.teams.batch.scoring-threads:4}")
+    private int scoringThreads;
+
+    private ForkJoinPool scoringPool;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        scoringPool = new ForkJoinPool(scoringThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scoringPool.shutdown();
+    }
+
+    /**
+     * Calcula el plan para todo el backlog y, si no es dryRun, lo aplica en una transacción
+     *
+     * @throws IllegalStateException si ya hay un lote en curso o un caso del plan no se pudo asignar
+     */
+    public BatchAssignmentPlanDTO assignBacklog(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una asignación por lotes en curso");
+        }
+
+        try {
+            if (dryRun) {
+                return buildPlan().toDto(true, false, "Vista previa: no se asignó ningún caso", maxCasesPerLawyer);
+            }
+
+            return transactionTemplate.execute(status -> {
+                // El plan se calcula dentro de la transacción que lo aplica
+                Plan plan = buildPlan();
+                for (Demand demand : plan.demands) {
+                    if (demand.team == null) continue;
+                    TeamAssignmentResult result = simplifiedTeamService.assignTeamToCase(
+                            demand.legalCase.getId(), demand.teamIds(plan.candidates));
+                    if (!result.isSuccess()) {
+                        throw new IllegalStateException("Caso " + demand.legalCase.getCaseNumber() + ": " + result.getMessage());
+                    }
+                }
+                log.info("Asignación por lotes aplicada: {} casos", plan.assignedCount());
+                return plan.toDto(false, true, "Equipos asignados a " + plan.assignedCount() + " casos", maxCasesPerLawyer);
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private Plan buildPlan() {
+        List<LegalCase> cases = legalCaseRepository.findUnassignedOpenCases();
+        List<Candidate> candidates = userRepository.findAvailableLawyers().stream()
+                .map(lawyer -> new Candidate(
+                        lawyer.getId(),
+                        availabilityIndex.parseSpecialties(lawyer.getSpecialization()),
+                        Country.fromString(lawyer.getCountry()),
+                        lawyer.getCurrentWorkload() != null ? lawyer.getCurrentWorkload() : 0))
+                .collect(Collectors.toList());
+
+        // Puntuación caso × abogado en paralelo (solo lectura de candidates)
+        List<Demand> demands = scoringPool.submit(() -> cases.parallelStream()
+                        .map(legalCase -> score(legalCase, candidates))
+                        .collect(Collectors.toList()))
+                .join();
+
+        demands.sort(Comparator
+                .comparingInt((Demand demand) -> priorityRank(demand.legalCase.getPriority()))
+                .thenComparingInt(demand -> demand.eligible.length)
+                .thenComparing(demand -> demand.legalCase.getId()));
+
+        Plan plan = new Plan(candidates, demands);
+        demands.forEach(demand -> pickTeam(demand, candidates));
+        plan.balancingMoves = rebalance(demands, candidates);
+
+        log.info("Plan por lotes: {} casos, {} con equipo, {} movimientos de balanceo",
+                demands.size(), plan.assignedCount(), plan.balancingMoves);
+        return plan;
+    }
+
+    private Demand score(LegalCase legalCase, List<Candidate> candidates) {
+        LegalSpecialty specialty = legalCase.getRequiredSpecialty();
+        Country country = legalCase.getCountry();
+
+        int[] eligible = new int[candidates.size()];
+        double[] penalty = new double[candidates.size()];
+        int count = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            if (specialty != null && !candidate.specialties.contains(specialty)) continue;
+            eligible[count] = i;
+            penalty[count] = candidate.country == country ? 0 : COUNTRY_MISMATCH_PENALTY;
+            count++;
+        }
+        return new Demand(legalCase, teamSize(legalCase), Arrays.copyOf(eligible, count), Arrays.copyOf(penalty, count));
+    }
+
+    /**
+     * Tamaño del equipo: el mínimo de la complejidad (nunca menos que min-lawyers-per-case),
+     * uno más en casos de alta prioridad sin pasar del recomendado
+     */
+    private int teamSize(LegalCase legalCase) {
+        CaseComplexity complexity = legalCase.getComplexity() != null ? legalCase.getComplexity() : CaseComplexity.MEDIUM;
+        int size = Math.max(minLawyersPerCase, complexity.getMinimumLawyers());
+        if (legalCase.isHighPriority() && size < complexity.getRecommendedLawyers()) {
+            size++;
+        }
+        return size;
+    }
+
+    private void pickTeam(Demand demand, List<Candidate> candidates) {
+        List<Integer> available = new ArrayList<>();
+        for (int slot = 0; slot < demand.eligible.length; slot++) {
+            if (candidates.get(demand.eligible[slot]).load < maxCasesPerLawyer) {
+                available.add(slot);
+            }
+        }
+
+        if (available.size() < minLawyersPerCase) {
+            demand.reason = demand.eligible.length == 0
+                    ? "Sin abogados de la especialidad " + demand.legalCase.getRequiredSpecialty()
+                    : "Abogados de la especialidad sin capacidad (máximo " + maxCasesPerLawyer + " casos)";
+            return;
+        }
+
+        available.sort(Comparator
+                .comparingDouble((Integer slot) -> demand.cost(slot, candidates))
+                .thenComparing(slot -> candidates.get(demand.eligible[slot]).id));
+
+        int size = Math.min(demand.teamSize, available.size());
+        demand.team = new int[size];
+        for (int i = 0; i < size; i++) {
+            demand.team[i] = available.get(i);
+            candidates.get(demand.eligible[demand.team[i]]).load++;
+        }
+    }
+
+    /**
+     * Cambiar un abogado del plan por otro elegible cuando su costo (con el caso añadido)
+     * es menor que el del actual sin él
+     */
+    private int rebalance(List<Demand> demands, List<Candidate> candidates) {
+        int moves = 0;
+        for (int round = 0; round < MAX_BALANCING_ROUNDS; round++) {
+            boolean moved = false;
+            for (Demand demand : demands) {
+                if (demand.team == null) continue;
+                for (int i = 0; i < demand.team.length; i++) {
+                    Candidate current = candidates.get(demand.eligible[demand.team[i]]);
+                    double currentCost = current.load - 1 + demand.penalty[demand.team[i]];
+
+                    int best = -1;
+                    double bestCost = currentCost;
+                    for (int slot = 0; slot < demand.eligible.length; slot++) {
+                        Candidate candidate = candidates.get(demand.eligible[slot]);
+                        if (candidate.load >= maxCasesPerLawyer || demand.inTeam(slot)) continue;
+                        double cost = demand.cost(slot, candidates);
+                        if (cost < bestCost) {
+                            best = slot;
+                            bestCost = cost;
+                        }
+                    }
+
+                    if (best >= 0) {
+                        current.load--;
+                        candidates.get(demand.eligible[best]).load++;
+                        demand.team[i] = best;
+                        moves++;
+                        moved = true;
+                    }
+                }
+            }
+            if (!moved) break;
+        }
+        return moves;
+    }
+
+    private int priorityRank(String priority) {
+        int rank = PRIORITY_ORDER.indexOf(priority);
+        return rank >= 0 ? rank : PRIORITY_ORDER.indexOf("MEDIUM");
+    }
+
+    /**
+     * Abogado candidato; load es la carga proyectada con el plan en curso
+     */
+    private static final class Candidate {
+        private final Long id;
+        private final Set<LegalSpecialty> specialties;
+        private final Country country;
+        private int load;
+
+        private Candidate(Long id, Set<LegalSpecialty> specialties, Country country, int load) {
+            this.id = id;
+            this.specialties = specialties;
+            this.country = country;
+            this.load = load;
+        }
+    }
+
+    /**
+     * Un caso del backlog: candidatos elegibles (índices en candidates) con su penalización,
+     * y el equipo elegido como posiciones dentro de eligible
+     */
+    private static final class Demand {
+        private final LegalCase legalCase;
+        private final int teamSize;
+        private final int[] eligible;
+        private final double[] penalty;
+        private int[] team;
+        private String reason;
+
+        private Demand(LegalCase legalCase, int teamSize, int[] eligible, double[] penalty) {
+            this.legalCase = legalCase;
+            this.teamSize = teamSize;
+            this.eligible = eligible;
+            this.penalty = penalty;
+        }
+
+        private double cost(int slot, List<Candidate> candidates) {
+            return candidates.get(eligible[slot]).load + penalty[slot];
+        }
+
+        private boolean inTeam(int slot) {
+            for (int member : team) {
+                if (member == slot) return true;
+            }
+            return false;
+        }
+
+        private List<Long> teamIds(List<Candidate> candidates) {
+            return Arrays.stream(team)
+                    .mapToObj(slot -> candidates.get(eligible[slot]).id)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final class Plan {
+        private final List<Candidate> candidates;
+        private final List<Demand> demands;
+        private int balancingMoves;
+
+        private Plan(List<Candidate> candidates, List<Demand> demands) {
+            this.candidates = candidates;
+            this.demands = demands;
+        }
+
+        private int assignedCount() {
+            return (int) demands.stream().filter(demand -> demand.team != null).count();
+        }
+
+        private BatchAssignmentPlanDTO toDto(boolean dryRun, boolean applied, String message, int maxCasesPerLawyer) {
+            BatchAssignmentPlanDTO dto = new BatchAssignmentPlanDTO();
+            dto.setDryRun(dryRun);
+            dto.setApplied(applied);
+            dto.setMessage(message);
+            dto.setTotalCases(demands.size());
+            dto.setBalancingMoves(balancingMoves);
+            dto.setMaxCasesPerLawyer(maxCasesPerLawyer);
+            dto.setGeneratedAt(LocalDateTime.now());
+
+            for (Demand demand : demands) {
+                LegalCase legalCase = demand.legalCase;
+                if (demand.team != null) {
+                    dto.getTeams().add(new BatchAssignmentPlanDTO.PlannedTeamDTO(
+                            legalCase.getId(),
+                            legalCase.getCaseNumber(),
+                            legalCase.getPriority(),
+                            legalCase.getComplexity() != null ? legalCase.getComplexity().name() : null,
+                            legalCase.getRequiredSpecialty() != null ? legalCase.getRequiredSpecialty().name() : null,
+                            demand.teamIds(candidates)));
+                } else {
+                    dto.getUnassignedCases().add(new BatchAssignmentPlanDTO.UnassignedCaseDTO(
+                            legalCase.getId(), legalCase.getCaseNumber(), demand.reason));
+                }
+            }
+            candidates.forEach(candidate -> dto.getProjectedWorkload().put(candidate.id, candidate.load));
+            return dto;
+        }
+    }
+}
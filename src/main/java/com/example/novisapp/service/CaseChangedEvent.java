@@ -0,0 +1,23 @@
+package com.example.novisapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Evento publicado cuando cambia un caso o su equipo de abogados.
+ * Los consumidores (estadísticas, cargas de trabajo) lo reciben tras el commit.
+ */
+@Data
+@AllArgsConstructor
+public class CaseChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        CANCELLED,
+        TEAM_CHANGED
+    }
+
+    private Long caseId;
+    private ChangeType changeType;
+}
@@ -6,12 +6,14 @@ import com.example.novisapp.repository.LegalCaseRepository;
 import com.example.novisapp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +24,8 @@ public class CaseLawyerAssignmentService {
     private final CaseLawyerAssignmentRepository assignmentRepository;
     private final LegalCaseRepository legalCaseRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WorkloadCounterService workloadCounterService;
 
     /**
      * Asignar abogados a un caso
@@ -61,12 +65,17 @@ public class CaseLawyerAssignmentService {
 
         // 4. Desactivar asignaciones actuales
         List<CaseLawyerAssignment> currentAssignments = assignmentRepository.findByLegalCaseIdAndStatus(caseId, AssignmentStatus.ACTIVE);
+        List<User> releasedLawyers = new ArrayList<>();
         for (CaseLawyerAssignment assignment : currentAssignments) {
             assignment.deactivate();
             assignment.setEndDate(LocalDateTime.now());
+            if (!workloadCounterService.countsForWorkload(assignment.getStatus())) {
+                releasedLawyers.add(assignment.getUser());
+            }
             log.debug("Desactivando asignación existente: {}", assignment.getId());
         }
         assignmentRepository.saveAll(currentAssignments);
+        workloadCounterService.decrement(releasedLawyers);
 
         // 5. Crear nuevas asignaciones
         List<CaseLawyerAssignment> newAssignments = new ArrayList<>();
@@ -97,17 +106,13 @@ public class CaseLawyerAssignmentService {
 
             newAssignments.add(assignment);
 
-            // Actualizar carga de trabajo del abogado
-            Integer currentWorkload = lawyer.getCurrentWorkload() != null ? lawyer.getCurrentWorkload() : 0;
-            lawyer.setCurrentWorkload(currentWorkload + 1);
-
             log.debug("Creando nueva asignación - Abogado: {} ({}), Rol: {}, Especialidad: {}",
                     lawyer.getFullName(), lawyer.getId(), assignment.getRole(), specialty);
         }
 
         // 6. Guardar nuevas asignaciones
         assignmentRepository.saveAll(newAssignments);
-        userRepository.saveAll(validLawyers);
+        workloadCounterService.increment(validLawyers);
 
         // 7. Actualizar el caso (SIN tocar assignedLawyers para evitar conflictos)
         legalCase.setTeamAssigned(true);
@@ -122,6 +127,9 @@ public class CaseLawyerAssignmentService {
         // La relación se maneja completamente a través de CaseLawyerAssignment
 
         LegalCase updatedCase = legalCaseRepository.save(legalCase);
+        eventPublisher.publishEvent(new CaseChangedEvent(caseId, CaseChangedEvent.ChangeType.TEAM_CHANGED));
+        eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(
+                Stream.concat(validLawyers.stream(), releasedLawyers.stream()).map(User::getId).collect(Collectors.toSet())));
 
         log.info("✅ Asignación completada - Caso: {}, {} abogados asignados", caseId, validLawyers.size());
 
@@ -201,18 +209,19 @@ public class CaseLawyerAssignmentService {
                 .filter(assignment -> assignment.getUser().getId().equals(lawyerId))
                 .collect(Collectors.toList());
 
+        List<User> releasedLawyers = new ArrayList<>();
         for (CaseLawyerAssignment assignment : assignments) {
             assignment.deactivate();
             assignment.setEndDate(LocalDateTime.now());
-
-            // Actualizar carga de trabajo
-            User lawyer = assignment.getUser();
-            Integer currentWorkload = lawyer.getCurrentWorkload() != null ? lawyer.getCurrentWorkload() : 0;
-            lawyer.setCurrentWorkload(Math.max(0, currentWorkload - 1));
-            userRepository.save(lawyer);
+            if (!workloadCounterService.countsForWorkload(assignment.getStatus())) {
+                releasedLawyers.add(assignment.getUser());
+            }
         }
 
         assignmentRepository.saveAll(assignments);
+        workloadCounterService.decrement(releasedLawyers);
+        eventPublisher.publishEvent(new CaseChangedEvent(caseId, CaseChangedEvent.ChangeType.TEAM_CHANGED));
+        eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(lawyerId)));
         log.info("✅ Abogado removido del caso");
     }
 
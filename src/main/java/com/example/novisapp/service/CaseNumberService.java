@@ -0,0 +1,137 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.repository.CaseNumberCounterRepository;
+import com.example.novisapp.repository.LegalCaseRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asignación de números de caso NVS-yyyyMMdd-NNNN únicos entre nodos.
+ * - Cada nodo reserva bloques de block-size números en case_number_counters (un UPDATE atómico por bloque)
+ * - Dentro del bloque, cada número es un incremento en memoria
+ * - El contador de un día nuevo arranca después del mayor número ya existente con ese prefijo
+ * Los números reservados y no usados (reinicio del nodo, cambio de día) quedan como huecos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CaseNumberService {
+
+    private static final String CASE_NUMBER_PREFIX = "NVS-";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final CaseNumberCounterRepository counterRepository;
+    private final LegalCaseRepository legalCaseRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${novis.cases.number.block-size:20}")
+    private long blockSize;
+
+    // La reserva se confirma aunque la transacción que crea el caso haga rollback
+    private TransactionTemplate reserveTransaction;
+
+    // Bloque actual de este nodo: [nextNumber, blockEnd)
+    private String currentDay;
+    private long nextNumber;
+    private long blockEnd;
+
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reservedBlocks = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        reserveTransaction = new TransactionTemplate(transactionManager);
+        reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Siguiente número de caso; solo consulta la base de datos al agotar el bloque o cambiar de día
+     */
+    public synchronized String nextCaseNumber() {
+        String day = LocalDate.now().format(DAY_FORMAT);
+        if (!day.equals(currentDay) || nextNumber >= blockEnd) {
+            reserveBlock(day);
+        }
+        allocated.increment();
+        return String.format("%s%s-%04d", CASE_NUMBER_PREFIX, day, nextNumber++);
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("blockSize", blockSize);
+        status.put("currentDay", currentDay);
+        status.put("remainingInBlock", currentDay != null ? blockEnd - nextNumber : 0);
+        status.put("allocated", allocated.sum());
+        status.put("reservedBlocks", reservedBlocks.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void reserveBlock(String day) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long end = reserveTransaction.execute(status -> reserveOrCreate(day));
+                currentDay = day;
+                blockEnd = end;
+                nextNumber = end - blockSize;
+                reservedBlocks.increment();
+                log.debug("Bloque de números de caso reservado para {}: [{}, {})", day, nextNumber, blockEnd);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Otro nodo creó el contador del día a la vez: la fila ya existe, se reintenta con UPDATE
+                if (attempt >= MAX_RESERVE_ATTEMPTS) throw e;
+                log.debug("Contador de números de caso {} creado concurrentemente, reintentando", day);
+            }
+        }
+    }
+
+    /**
+     * @return el nuevo next_value del contador; el bloque reservado es [next_value - blockSize, next_value)
+     */
+    private long reserveOrCreate(String day) {
+        LocalDateTime now = LocalDateTime.now();
+        if (counterRepository.reserveBlock(day, blockSize, now) > 0) {
+            return counterRepository.findNextValue(day);
+        }
+
+        long first = highestExistingNumber(day) + 1;
+        counterRepository.createCounter(day, first + blockSize, now);
+        log.info("Contador de números de caso creado para {} desde {}", day, first);
+        return first + blockSize;
+    }
+
+    /**
+     * Mayor sufijo ya usado con el prefijo del día (casos creados antes de existir el contador)
+     */
+    private long highestExistingNumber(String day) {
+        String prefix = CASE_NUMBER_PREFIX + day + "-";
+        List<String> numbers = legalCaseRepository.findCaseNumbersWithPrefix(prefix, PageRequest.of(0, 1));
+        if (numbers.isEmpty()) return 0;
+        try {
+            return Long.parseLong(numbers.get(0).substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            log.warn("Número de caso con formato inesperado: {}", numbers.get(0));
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.CaseStatus;
+import com.example.novisapp.repository.LegalCaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas de casos servidas desde memoria.
+ * - Todos los contadores salen de una única consulta agregada (sumas condicionales por estado)
+ * - Los cambios de casos y equipos marcan la instantánea como obsoleta; la siguiente lectura la recalcula,
+ *   de modo que una ráfaga de cambios cuesta una sola consulta
+ * - Un refresco periódico recoge los cambios hechos en otros nodos
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CaseStatisticsService {
+
+    // Estados considerados activos (mismo criterio que findActiveCases)
+    private static final Set<CaseStatus> ACTIVE_STATUSES = Set.of(CaseStatus.OPEN, CaseStatus.IN_PROGRESS);
+
+    private final LegalCaseRepository legalCaseRepository;
+
+    private volatile Map<String, Object> snapshot;
+    private volatile boolean stale = true;
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+
+    /**
+     * Instantánea actual de estadísticas (inmutable)
+     */
+    public Map<String, Object> getStatistics() {
+        reads.increment();
+        Map<String, Object> current = snapshot;
+        if (current == null || stale) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Invalidar la instantánea tras el commit del cambio
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCaseChanged(CaseChangedEvent event) {
+        stale = true;
+    }
+
+    /**
+     * Cambios de otros nodos: la instantánea no vive más que el intervalo de refresco
+     */
+    @Scheduled(fixedDelayString = "${novis.cases.statistics.refresh-interval-ms:60000}")
+    public void expireSnapshot() {
+        stale = true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("stale", stale);
+        status.put("generatedAt", snapshot != null ? snapshot.get("generatedAt") : null);
+        status.put("reads", reads.sum());
+        status.put("refreshes", refreshes.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private synchronized Map<String, Object> refresh() {
+        // Otro hilo pudo recalcular mientras se esperaba el lock
+        if (snapshot != null && !stale) {
+            return snapshot;
+        }
+        // Se limpia antes de consultar: un cambio concurrente vuelve a marcarla
+        stale = false;
+
+        long totalCases = 0;
+        long activeCases = 0;
+        long completedCases = 0;
+        long closedCases = 0;
+        long urgentCases = 0;
+        long casesWithoutPrimaryLawyer = 0;
+        long casesNeedingMoreLawyers = 0;
+        List<Map<String, Object>> casesByStatus = new ArrayList<>();
+
+        try {
+            for (Object[] row : legalCaseRepository.getCaseStatisticsByStatus()) {
+                CaseStatus status = CaseStatus.valueOf(row[0].toString());
+                long count = toLong(row[1]);
+
+                totalCases += count;
+                if (status == CaseStatus.COMPLETED) completedCases = count;
+                if (status == CaseStatus.CLOSED) closedCases = count;
+                if (ACTIVE_STATUSES.contains(status)) {
+                    activeCases += count;
+                    urgentCases += toLong(row[2]);
+                    casesWithoutPrimaryLawyer += toLong(row[3]);
+                    casesNeedingMoreLawyers += toLong(row[4]);
+                }
+
+                Map<String, Object> statusStat = new HashMap<>();
+                statusStat.put("status", status.name());
+                statusStat.put("count", count);
+                casesByStatus.add(statusStat);
+            }
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalCases", totalCases);
+        statistics.put("activeCases", activeCases);
+        statistics.put("completedCases", completedCases);
+        statistics.put("closedCases", closedCases);
+        statistics.put("casesByStatus", Collections.unmodifiableList(casesByStatus));
+        statistics.put("urgentCases", urgentCases);
+        statistics.put("casesWithoutPrimaryLawyer", casesWithoutPrimaryLawyer);
+        statistics.put("casesNeedingMoreLawyers", casesNeedingMoreLawyers);
+        statistics.put("generatedAt", LocalDateTime.now().toString());
+
+        snapshot = Collections.unmodifiableMap(statistics);
+        refreshes.increment();
+        log.debug("Estadísticas de casos recalculadas: {} casos", totalCases);
+        return snapshot;
+    }
+
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentCategory;
+import com.example.novisapp.entity.DocumentUploadSession;
+import com.example.novisapp.entity.UploadSessionStatus;
+import com.example.novisapp.repository.DocumentUploadSessionRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uploads reanudables por partes para evidencias grandes (audio/video).
+ * - init: valida el destino y crea la sesión
+ * - putChunk: cada fragmento va en streaming directo a un bloque del storage (sin multipart ni tmpdir),
+ *   se verifica su SHA-256 y solo entonces avanza el offset de la sesión
+ * - complete: confirma los bloques y crea el Document con el hash calculado de forma incremental
+ * Las sesiones sin actividad expiran y un barrido periódico descarta sus bloques.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadService {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final DocumentUploadSessionRepository sessionRepository;
+    private final DocumentService documentService;
+    private final DocumentStorage documentStorage;
+    private final DocumentContentSniffer documentContentSniffer;
+    private final DocumentEncryptionService documentEncryptionService;
+
+    // Estado en memoria por sesión: lock de fragmentos y hash incremental del archivo
+    private final ConcurrentHashMap<String, UploadState> uploadStates = new ConcurrentHashMap<>();
+
+    @Value("${novis.documents.chunked-upload.max-file-size:2147483648}") // 2GB
+    private long maxFileSize;
+
+    @Value("${novis.documents.chunked-upload.chunk-size:8388608}") // 8MB
+    private long recommendedChunkSize;
+
+    @Value("${novis.documents.chunked-upload.max-chunk-size:33554432}") // 32MB
+    private long maxChunkSize;
+
+    @Value("${novis.documents.chunked-upload.session-ttl-minutes:1440}")
+    private int sessionTtlMinutes;
+
+    @Value("${novis.documents.chunked-upload.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    public long getRecommendedChunkSize() {
+        return recommendedChunkSize;
+    }
+
+    /**
+     * Iniciar una carga por partes
+     */
+    public DocumentUploadSession initUpload(Long caseId, Long userId, String originalFileName, String contentType,
+                                           long totalSize, DocumentCategory category, String description,
+                                           HttpServletRequest request) {
+        if (totalSize <= 0) {
+            throw new RuntimeException("El archivo está vacío");
+        }
+        if (totalSize > maxFileSize) {
+            throw new RuntimeException("El archivo excede el tamaño máximo permitido: " +
+                    (maxFileSize / 1024 / 1024) + "MB");
+        }
+
+        DocumentUploadSession session = documentService.prepareUploadSession(caseId, userId, originalFileName,
+                contentType, totalSize, category, description, request);
+        session.setId(UUID.randomUUID().toString());
+        session.setExpiresAt(LocalDateTime.now().plusMinutes(sessionTtlMinutes));
+
+        DocumentUploadSession savedSession = sessionRepository.save(session);
+        uploadStates.put(savedSession.getId(), new UploadState(newDigest()));
+
+        log.info("Sesión de upload por partes iniciada: {} - {} ({} bytes), caso: {}",
+                savedSession.getId(), originalFileName, totalSize, caseId);
+        return savedSession;
+    }
+
+    /**
+     * Obtener la sesión (el cliente reanuda desde receivedBytes)
+     */
+    public DocumentUploadSession getSession(String uploadId) {
+        return sessionRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Sesión de upload no encontrada: " + uploadId));
+    }
+
+    /**
+     * Recibir un fragmento en el offset indicado.
+     * IllegalStateException: offset distinto del esperado (el cliente debe consultar la sesión y reanudar).
+     * IllegalArgumentException: fragmento inválido o checksum incorrecto (el cliente debe reenviarlo).
+     */
+    public DocumentUploadSession putChunk(String uploadId, Long userId, long offset, long length, String checksum,
+                                          InputStream data) throws IOException {
+        if (checksum == null || checksum.isBlank()) {
+            throw new IllegalArgumentException("El checksum SHA-256 del fragmento es obligatorio");
+        }
+        if (length <= 0 || length > maxChunkSize) {
+            throw new IllegalArgumentException("Tamaño de fragmento inválido: " + length +
+                    " (máximo " + maxChunkSize + " bytes)");
+        }
+
+        UploadState state = lockState(uploadId, userId);
+        try {
+            DocumentUploadSession session = getSession(uploadId);
+            requireInProgress(session);
+
+            if (offset != session.getReceivedBytes()) {
+                throw new IllegalStateException("Offset inválido: se esperaba " + session.getReceivedBytes());
+            }
+            if (offset + length > session.getTotalSize()) {
+                throw new IllegalArgumentException("El fragmento excede el tamaño declarado del archivo");
+            }
+            if (session.isEncrypted() && offset + length < session.getTotalSize()
+                    && length % session.getEncryptionSegmentSize() != 0) {
+                throw new IllegalArgumentException("En documentos cifrados cada fragmento salvo el último debe ser múltiplo de " +
+                        session.getEncryptionSegmentSize() + " bytes");
+            }
+
+            // El tipo real se valida con la cabecera del primer fragmento, antes de recibir el resto del archivo
+            if (offset == 0) {
+                data = documentContentSniffer.prepare(data);
+                session.setContentType(sniffFirstChunk(session, data));
+            }
+
+            // El hash del archivo se actualiza sobre una copia: solo se adopta si el fragmento es válido
+            MessageDigest chunkDigest = newDigest();
+            MessageDigest fileDigest = state.fileDigest != null && state.digestedBytes == offset ?
+                    cloneDigest(state.fileDigest) : null;
+
+            InputStream in = new DigestInputStream(data, chunkDigest);
+            if (fileDigest != null) {
+                in = new DigestInputStream(in, fileDigest);
+            }
+
+            if (session.isEncrypted()) {
+                // Fragmento alineado a segmento: se cifra de forma independiente y ocupa su posición en el blob cifrado
+                DocumentEncryptionService.DataKey dataKey = documentEncryptionService.dataKeyOf(session);
+                documentStorage.stageBlock(session.getContainerName(), session.getBlobName(), session.getChunkCount(),
+                        documentEncryptionService.storedOffset(dataKey, offset),
+                        documentEncryptionService.encrypt(in, dataKey, session.getTotalSize(), offset),
+                        documentEncryptionService.storedRangeLength(dataKey, length));
+            } else {
+                documentStorage.stageBlock(session.getContainerName(), session.getBlobName(),
+                        session.getChunkCount(), offset, in, length);
+            }
+
+            String actualChecksum = Base64.getEncoder().encodeToString(chunkDigest.digest());
+            if (!actualChecksum.equals(checksum.trim())) {
+                throw new IllegalArgumentException("El checksum del fragmento no coincide");
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plusMinutes(sessionTtlMinutes);
+            if (sessionRepository.advance(uploadId, offset, offset + length, UploadSessionStatus.IN_PROGRESS,
+                    expiresAt, now) != 1) {
+                throw new IllegalStateException("La sesión cambió mientras se recibía el fragmento");
+            }
+
+            state.fileDigest = fileDigest;
+            state.digestedBytes = fileDigest != null ? offset + length : -1;
+
+            session.setReceivedBytes(offset + length);
+            session.setChunkCount(session.getChunkCount() + 1);
+            session.setExpiresAt(expiresAt);
+            return session;
+
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Confirmar los bloques y crear el documento
+     */
+    public Document completeUpload(String uploadId, Long userId) throws IOException {
+        UploadState state = lockState(uploadId, userId);
+        try {
+            DocumentUploadSession session = getSession(uploadId);
+            requireInProgress(session);
+
+            if (!session.getReceivedBytes().equals(session.getTotalSize())) {
+                throw new IllegalStateException("Upload incompleto: recibidos " + session.getReceivedBytes() +
+                        " de " + session.getTotalSize() + " bytes");
+            }
+
+            long storedLength = session.isEncrypted() ?
+                    documentEncryptionService.storedLength(documentEncryptionService.dataKeyOf(session), session.getTotalSize()) :
+                    session.getTotalSize();
+            String blobUrl = documentStorage.commitBlocks(session.getContainerName(), session.getBlobName(),
+                    session.getChunkCount(), storedLength, session.getContentType(),
+                    "attachment; filename=\"" + session.getOriginalFileName() + "\"");
+
+            String fileHash = state.fileDigest != null && state.digestedBytes == session.getTotalSize() ?
+                    Base64.getEncoder().encodeToString(state.fileDigest.digest()) :
+                    rehashStoredContent(session);
+
+            Document document;
+            try {
+                document = documentService.registerStoredDocument(session, blobUrl, fileHash);
+            } catch (RuntimeException e) {
+                documentStorage.delete(session.getContainerName(), session.getBlobName());
+                sessionRepository.close(uploadId, UploadSessionStatus.IN_PROGRESS, UploadSessionStatus.ABORTED,
+                        null, truncate(e.getMessage()), LocalDateTime.now());
+                uploadStates.remove(uploadId);
+                throw e;
+            }
+
+            sessionRepository.close(uploadId, UploadSessionStatus.IN_PROGRESS, UploadSessionStatus.COMPLETED,
+                    document.getId(), null, LocalDateTime.now());
+            uploadStates.remove(uploadId);
+
+            return document;
+
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Cancelar una carga y descartar sus bloques
+     */
+    public void abortUpload(String uploadId, Long userId) throws IOException {
+        DocumentUploadSession owned = getOwnedSession(uploadId, userId);
+        if (owned.getStatus() != UploadSessionStatus.IN_PROGRESS) {
+            uploadStates.remove(uploadId);
+            return;
+        }
+
+        UploadState state = lockState(uploadId, userId);
+        try {
+            DocumentUploadSession session = getSession(uploadId);
+            if (sessionRepository.close(uploadId, UploadSessionStatus.IN_PROGRESS, UploadSessionStatus.ABORTED,
+                    null, "Cancelada por el cliente", LocalDateTime.now()) == 1) {
+                documentStorage.discardBlocks(session.getContainerName(), session.getBlobName());
+                log.info("Sesión de upload por partes cancelada: {}", uploadId);
+            }
+            uploadStates.remove(uploadId);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Barrido de sesiones abandonadas: se marcan como expiradas y se descartan sus bloques
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.chunked-upload.sweep-interval-ms:900000}")
+    public void sweepExpiredUploads() {
+        int expired = 0;
+        List<DocumentUploadSession> sessions;
+        do {
+            sessions = sessionRepository.findExpired(UploadSessionStatus.IN_PROGRESS, LocalDateTime.now(),
+                    PageRequest.of(0, sweepBatchSize));
+
+            for (DocumentUploadSession session : sessions) {
+                try {
+                    if (sessionRepository.close(session.getId(), UploadSessionStatus.IN_PROGRESS,
+                            UploadSessionStatus.EXPIRED, null, "Sesión expirada", LocalDateTime.now()) != 1) {
+                        continue;
+                    }
+                    documentStorage.discardBlocks(session.getContainerName(), session.getBlobName());
+                    // Por si el proceso cayó entre el commit de bloques y el registro del documento
+                    documentStorage.delete(session.getContainerName(), session.getBlobName());
+                    uploadStates.remove(session.getId());
+                    expired++;
+                } catch (Exception e) {
+                    log.error("Error descartando la sesión de upload {}: {}", session.getId(), e.getMessage());
+                }
+            }
+        } while (sessions.size() == sweepBatchSize);
+
+        if (expired > 0) {
+            log.info("Sesiones de upload por partes expiradas: {}", expired);
+        }
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    /**
+     * Validar el tipo real contra la extensión; si no coincide la sesión se cancela (reintentar no cambiaría nada)
+     */
+    private String sniffFirstChunk(DocumentUploadSession session, InputStream data) throws IOException {
+        String detectedType;
+        try {
+            detectedType = documentContentSniffer.detectAndValidate(data, session.getOriginalFileName());
+        } catch (RuntimeException e) {
+            sessionRepository.close(session.getId(), UploadSessionStatus.IN_PROGRESS, UploadSessionStatus.ABORTED,
+                    null, truncate(e.getMessage()), LocalDateTime.now());
+            uploadStates.remove(session.getId());
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+
+        sessionRepository.updateContentType(session.getId(), detectedType);
+        return detectedType;
+    }
+
+    /**
+     * Sesión del usuario que la creó; para cualquier otro se comporta como inexistente
+     */
+    private DocumentUploadSession getOwnedSession(String uploadId, Long userId) {
+        DocumentUploadSession session = getSession(uploadId);
+        if (userId == null || !userId.equals(session.getUserId())) {
+            throw new RuntimeException("Sesión de upload no encontrada: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * Estado en memoria de una sesión en curso del usuario, ya bloqueado.
+     * Se comprueba la sesión antes de crear el estado: un uploadId inventado o cerrado no deja entradas en el mapa.
+     */
+    private UploadState lockState(String uploadId, Long userId) {
+        requireInProgress(getOwnedSession(uploadId, userId));
+
+        UploadState state = uploadStates.computeIfAbsent(uploadId, id -> new UploadState(null));
+        state.lock.lock();
+        return state;
+    }
+
+    private void requireInProgress(DocumentUploadSession session) {
+        if (session.getStatus() != UploadSessionStatus.IN_PROGRESS) {
+            throw new IllegalStateException("La sesión de upload no está activa: " + session.getStatus());
+        }
+    }
+
+    /**
+     * Sin hash incremental (p. ej. tras un reinicio) se recalcula leyendo el objeto ya confirmado
+     */
+    private String rehashStoredContent(DocumentUploadSession session) throws IOException {
+        log.debug("Recalculando hash de la sesión {} desde el almacenamiento", session.getId());
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(documentEncryptionService.openContent(session), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    private String truncate(String message) {
+        if (message == null) return null;
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private static final class UploadState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private MessageDigest fileDigest;
+        private long digestedBytes;
+
+        private UploadState(MessageDigest fileDigest) {
+            this.fileDigest = fileDigest;
+            this.digestedBytes = fileDigest != null ? 0 : -1;
+        }
+    }
+}
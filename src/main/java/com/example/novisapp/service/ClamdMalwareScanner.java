@@ -0,0 +1,97 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.MalwareScanVerdict;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Adaptador para clamd (protocolo INSTREAM sobre TCP).
+ * El contenido se envía en tramas [longitud big-endian de 4 bytes][datos] terminadas por una trama de longitud 0;
+ * clamd responde "stream: OK", "stream: <firma> FOUND" o "... ERROR".
+ */
+@Component
+@ConditionalOnProperty(name = "novis.documents.scanner.type", havingValue = "clamd")
+@Slf4j
+public class ClamdMalwareScanner implements MalwareScanner {
+
+    private static final byte[] INSTREAM_COMMAND = "zINSTREAM\0".getBytes(StandardCharsets.US_ASCII);
+    private static final String FOUND_SUFFIX = " FOUND";
+    private static final String OK_SUFFIX = " OK";
+
+    @Value("${novis.documents.scanner.clamd.host:localhost}")
+    private String host;
+
+    @Value("${novis.documents.scanner.clamd.port:3310}")
+    private int port;
+
+    @Value("${novis.documents.scanner.clamd.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${novis.documents.scanner.clamd.read-timeout-ms:120000}")
+    private int readTimeoutMs;
+
+    @Value("${novis.documents.scanner.clamd.chunk-size:65536}")
+    private int chunkSize;
+
+    @Override
+    public String getName() {
+        return "clamd";
+    }
+
+    @Override
+    public MalwareScanVerdict scan(InputStream content) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            socket.setSoTimeout(readTimeoutMs);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), chunkSize + 4));
+            out.write(INSTREAM_COMMAND);
+
+            byte[] buffer = new byte[chunkSize];
+            long scannedBytes = 0;
+            int read;
+            while ((read = content.read(buffer)) > 0) {
+                out.writeInt(read);
+                out.write(buffer, 0, read);
+                scannedBytes += read;
+            }
+            out.writeInt(0);
+            out.flush();
+
+            String response = readResponse(socket.getInputStream());
+            log.debug("Respuesta de clamd ({} bytes analizados): {}", scannedBytes, response);
+
+            if (response.endsWith(FOUND_SUFFIX)) {
+                String signature = response.substring(response.indexOf(':') + 1, response.length() - FOUND_SUFFIX.length()).trim();
+                return MalwareScanVerdict.infected(signature, scannedBytes);
+            }
+            if (response.endsWith(OK_SUFFIX)) {
+                return MalwareScanVerdict.clean(scannedBytes);
+            }
+            // Límite StreamMaxLength superado, error interno, etc.: nunca se trata como limpio
+            throw new IOException("Respuesta inesperada de clamd: " + response);
+        }
+    }
+
+    /**
+     * Respuesta terminada en NUL (modo z)
+     */
+    private String readResponse(InputStream in) throws IOException {
+        StringBuilder response = new StringBuilder();
+        int value;
+        while ((value = in.read()) > 0) {
+            response.append((char) value);
+        }
+        return response.toString().trim();
+    }
+}
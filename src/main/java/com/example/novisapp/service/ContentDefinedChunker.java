@@ -0,0 +1,99 @@
+package com.example.novisapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Chunking definido por contenido (estilo FastCDC con gear hash).
+ * Los cortes dependen solo de los bytes recientes, de modo que una edición local en un archivo
+ * solo cambia los chunks que la rodean y el resto se deduplica entre versiones.
+ * - Se saltan los primeros minSize bytes de cada chunk (no se puede cortar antes)
+ * - Antes del tamaño medio se usa una máscara más exigente y después una más laxa (normalización)
+ * La tabla gear usa una semilla fija: cambiarla invalidaría la deduplicación con chunks ya guardados.
+ */
+public final class ContentDefinedChunker {
+
+    private static final long GEAR_SEED = 0x4E4F564953L; // "NOVIS"
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(GEAR_SEED);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final int minSize;
+    private final int averageSize;
+    private final int maxSize;
+    private final long strictMask;
+    private final long relaxedMask;
+
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        if (minSize <= 0 || minSize >= averageSize || averageSize >= maxSize) {
+            throw new IllegalArgumentException("Se requiere 0 < min < average < max");
+        }
+        this.minSize = minSize;
+        this.averageSize = averageSize;
+        this.maxSize = maxSize;
+
+        int bits = 31 - Integer.numberOfLeadingZeros(averageSize);
+        // Bits altos del gear hash: dependen de la ventana completa de los últimos 64 bytes
+        this.strictMask = highBitsMask(bits + 1);
+        this.relaxedMask = highBitsMask(bits - 1);
+    }
+
+    /**
+     * Recorrer el stream entregando cada chunk al consumidor. El buffer se reutiliza entre llamadas.
+     */
+    public void split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[maxSize];
+        int filled = 0;
+        boolean eof = false;
+
+        while (true) {
+            while (!eof && filled < buffer.length) {
+                int read = in.read(buffer, filled, buffer.length - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+            }
+            if (filled == 0) return;
+
+            int cut = findCutPoint(buffer, filled);
+            consumer.accept(buffer, 0, cut);
+
+            System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+            filled -= cut;
+        }
+    }
+
+    private int findCutPoint(byte[] buffer, int length) {
+        if (length <= minSize) return length;
+
+        long hash = 0;
+        int normalLimit = Math.min(averageSize, length);
+        int i = minSize;
+        for (; i < normalLimit; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+            if ((hash & strictMask) == 0) return i + 1;
+        }
+        for (; i < length; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+            if ((hash & relaxedMask) == 0) return i + 1;
+        }
+        return length;
+    }
+
+    private static long highBitsMask(int bits) {
+        return bits <= 0 ? 0L : -1L << (64 - bits);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.DocumentAccessLog;
+import com.example.novisapp.repository.DocumentAccessLogRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Auditoría de accesos a documentos con escritura diferida.
+ * Los eventos se encolan en memoria y se insertan en lotes periódicamente,
+ * en lugar de actualizar la fila del documento en cada descarga.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentAccessAuditService {
+
+    public static final String EVENT_SIGNED_URL_ISSUED = "SIGNED_URL_ISSUED";
+
+    private final DocumentAccessLogRepository documentAccessLogRepository;
+
+    private final ConcurrentLinkedQueue<DocumentAccessLog> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    @Value("${novis.audit.log-access-events:true}")
+    private boolean logAccessEvents;
+
+    @Value("${novis.audit.track-ip-addresses:true}")
+    private boolean trackIpAddresses;
+
+    @Value("${novis.audit.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${novis.audit.max-pending-events:50000}")
+    private int maxPendingEvents;
+
+    /**
+     * Registrar la emisión de una URL de descarga firmada
+     */
+    public void recordSignedUrlIssued(Long documentId, Long userId, String ipAddress, LocalDateTime expiresAt) {
+        enqueue(DocumentAccessLog.builder()
+                .documentId(documentId)
+                .userId(userId)
+                .eventType(EVENT_SIGNED_URL_ISSUED)
+                .ipAddress(trackIpAddresses ? ipAddress : null)
+                .expiresAt(expiresAt)
+                .eventTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Número de eventos pendientes de persistir
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Persistir los eventos pendientes en lotes
+     */
+    @Scheduled(fixedDelayString = "${novis.audit.flush-interval-ms:5000}")
+    public void flush() {
+        while (!pendingEvents.isEmpty()) {
+            List<DocumentAccessLog> batch = new ArrayList<>(Math.min(flushBatchSize, pendingCount.get()));
+            DocumentAccessLog event;
+            while (batch.size() < flushBatchSize && (event = pendingEvents.poll()) != null) {
+                batch.add(event);
+            }
+            pendingCount.addAndGet(-batch.size());
+
+            try {
+                documentAccessLogRepository.saveAll(batch);
+                log.debug("Eventos de auditoría documental persistidos: {}", batch.size());
+            } catch (Exception e) {
+                log.error("Error persistiendo {} eventos de auditoría documental: {}", batch.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void enqueue(DocumentAccessLog event) {
+        if (!logAccessEvents) return;
+
+        if (pendingCount.incrementAndGet() > maxPendingEvents) {
+            pendingCount.decrementAndGet();
+            log.warn("Cola de auditoría documental llena ({}), evento descartado: documento {}",
+                    maxPendingEvents, event.getDocumentId());
+            return;
+        }
+        pendingEvents.add(event);
+    }
+}
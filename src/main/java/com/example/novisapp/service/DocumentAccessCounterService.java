@@ -0,0 +1,128 @@
+package com.example.novisapp.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de acceso a documentos con escritura diferida.
+ * Cada descarga incrementa un LongAdder en memoria (sin tocar la fila del documento);
+ * periódicamente se vuelcan todos los deltas con un único UPDATE en lote.
+ * Ante un reinicio se pierde como máximo un intervalo de conteo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentAccessCounterService {
+
+    private static final String FLUSH_SQL =
+            "UPDATE documents SET access_count = access_count + ?, " +
+            "last_accessed_at = CASE WHEN last_accessed_at IS NULL OR last_accessed_at < ? THEN ? ELSE last_accessed_at END " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, AccessCounter> counters = new ConcurrentHashMap<>();
+
+    @Value("${novis.documents.access-counter.flush-interval-ms:10000}")
+    private long flushIntervalMs;
+
+    /**
+     * Registrar un acceso al documento
+     */
+    public void recordAccess(Long documentId) {
+        AccessCounter counter = counters.computeIfAbsent(documentId, id -> new AccessCounter());
+        counter.lastAccessMillis = System.currentTimeMillis();
+        counter.count.increment();
+    }
+
+    /**
+     * Accesos registrados en memoria y aún no volcados a la base de datos
+     */
+    public long getPendingCount(Long documentId) {
+        AccessCounter counter = counters.get(documentId);
+        return counter != null ? counter.count.sum() : 0L;
+    }
+
+    /**
+     * Último acceso conocido en memoria (null si el documento no tiene entrada activa)
+     */
+    public LocalDateTime getPendingLastAccess(Long documentId) {
+        AccessCounter counter = counters.get(documentId);
+        if (counter == null || counter.lastAccessMillis == 0) return null;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(counter.lastAccessMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Volcar los contadores pendientes con un único batch JDBC
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.access-counter.flush-interval-ms:10000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        List<Long> documentIds = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+
+        for (Map.Entry<Long, AccessCounter> entry : counters.entrySet()) {
+            AccessCounter counter = entry.getValue();
+            long delta = counter.count.sumThenReset();
+
+            if (delta > 0) {
+                Timestamp lastAccess = new Timestamp(counter.lastAccessMillis);
+                documentIds.add(entry.getKey());
+                deltas.add(delta);
+                batchArgs.add(new Object[]{delta, lastAccess, lastAccess, entry.getKey()});
+            } else if (now - counter.lastAccessMillis > flushIntervalMs) {
+                // Documento sin accesos durante un intervalo completo: liberar la entrada
+                counters.remove(entry.getKey(), counter);
+                long lateIncrements = counter.count.sumThenReset();
+                if (lateIncrements > 0) {
+                    restore(entry.getKey(), lateIncrements, counter.lastAccessMillis);
+                }
+            }
+        }
+
+        if (batchArgs.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batchArgs);
+            log.debug("Contadores de acceso volcados: {} documentos", batchArgs.size());
+        } catch (Exception e) {
+            log.error("Error volcando contadores de acceso ({} documentos), se reintentará: {}",
+                    batchArgs.size(), e.getMessage());
+            for (int i = 0; i < documentIds.size(); i++) {
+                restore(documentIds.get(i), deltas.get(i), ((Timestamp) batchArgs.get(i)[1]).getTime());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void restore(Long documentId, long delta, long lastAccessMillis) {
+        AccessCounter counter = counters.computeIfAbsent(documentId, id -> new AccessCounter());
+        counter.lastAccessMillis = Math.max(counter.lastAccessMillis, lastAccessMillis);
+        counter.count.add(delta);
+    }
+
+    private static final class AccessCounter {
+        private final LongAdder count = new LongAdder();
+        private volatile long lastAccessMillis;
+    }
+}
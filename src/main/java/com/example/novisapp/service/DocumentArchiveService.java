@@ -0,0 +1,194 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentCategory;
+import com.example.novisapp.repository.DocumentRepository;
+import com.example.novisapp.repository.LegalCaseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportación de los documentos de un caso como ZIP generado al vuelo.
+ * - Cada archivo se copia del storage al ZipOutputStream en streaming (sin cargarlo en memoria)
+ * - Los formatos ya comprimidos se escriben sin compresión para ahorrar CPU
+ * - Se incluye un manifest.json con el SHA-256 calculado durante la exportación y el registrado al subir
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentArchiveService {
+
+    public static final String MANIFEST_ENTRY = "manifest.json";
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final DocumentRepository documentRepository;
+    private final LegalCaseRepository legalCaseRepository;
+    private final DocumentService documentService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${novis.documents.archive.store-only-types:JPG,JPEG,PNG,GIF,MP3,MP4,MOV,AVI,DOCX,XLSX,PPTX,ZIP}")
+    private String storeOnlyTypes;
+
+    @Value("${novis.documents.archive.max-documents:1000}")
+    private int maxDocuments;
+
+    /**
+     * Seleccionar los documentos a exportar (filtros opcionales)
+     */
+    @Transactional(readOnly = true)
+    public List<Document> findArchiveDocuments(Long caseId, DocumentCategory category,
+                                               LocalDateTime startDate, LocalDateTime endDate) {
+        if (!legalCaseRepository.existsById(caseId)) {
+            throw new RuntimeException("Caso legal no encontrado: " + caseId);
+        }
+
+        List<Document> documents = documentRepository.findForArchive(caseId, category, startDate, endDate);
+        if (documents.size() > maxDocuments) {
+            throw new RuntimeException("La exportación supera el máximo de " + maxDocuments +
+                    " documentos; aplique filtros de categoría o fechas");
+        }
+        return documents;
+    }
+
+    /**
+     * Escribir el ZIP en el stream de salida. Se ejecuta fuera de transacción (StreamingResponseBody).
+     */
+    public void writeArchive(Long caseId, List<Document> documents, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        Set<String> storeOnly = Arrays.stream(storeOnlyTypes.split(","))
+                .map(type -> type.trim().toUpperCase())
+                .collect(Collectors.toSet());
+
+        Set<String> usedNames = new HashSet<>();
+        List<Map<String, Object>> manifestEntries = new ArrayList<>();
+        long totalBytes = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE));
+        for (Document document : documents) {
+            String entryName = uniqueEntryName(document, usedNames);
+
+            // ZipOutputStream exige el CRC por adelantado para entradas STORED; con nivel 0 el deflater
+            // emite bloques sin comprimir y el coste de CPU es equivalente, sin leer el archivo dos veces
+            boolean precompressed = document.getFileType() != null && storeOnly.contains(document.getFileType().toUpperCase());
+            zip.setLevel(precompressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+
+            ZipEntry entry = new ZipEntry(entryName);
+            if (document.getCreatedAt() != null) {
+                entry.setTimeLocal(document.getCreatedAt());
+            }
+            zip.putNextEntry(entry);
+
+            MessageDigest digest = newDigest();
+            CountingOutputStream counter = new CountingOutputStream(
+                    new DigestOutputStream(CloseShieldOutputStream.wrap(zip), digest));
+
+            Map<String, Object> manifestEntry = new LinkedHashMap<>();
+            manifestEntry.put("path", entryName);
+            manifestEntry.put("documentId", document.getId());
+            manifestEntry.put("originalFileName", document.getOriginalFileName());
+            manifestEntry.put("category", document.getCategory());
+            manifestEntry.put("version", document.getVersion());
+            manifestEntry.put("createdAt", document.getCreatedAt());
+
+            try {
+                if (document.isQuarantined()) {
+                    manifestEntry.put("error", "En cuarentena: " + document.getScanStatus().getDisplayName());
+                } else {
+                    documentService.transferDocumentContent(document, Channels.newChannel(counter));
+                }
+            } catch (IOException e) {
+                // Solo se puede omitir el archivo si aún no se escribió nada de su contenido
+                if (counter.getByteCount() > 0) throw e;
+                log.warn("Documento {} omitido de la exportación del caso {}: {}", document.getId(), caseId, e.getMessage());
+                manifestEntry.put("error", "Contenido no disponible");
+            }
+            zip.closeEntry();
+
+            String sha256 = Base64.getEncoder().encodeToString(digest.digest());
+            manifestEntry.put("size", counter.getByteCount());
+            manifestEntry.put("sha256", sha256);
+            manifestEntry.put("uploadSha256", document.getFileHash());
+            manifestEntry.put("hashVerified", sha256.equals(document.getFileHash()));
+            manifestEntries.add(manifestEntry);
+
+            totalBytes += counter.getByteCount();
+        }
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("caseId", caseId);
+        manifest.put("generatedAt", LocalDateTime.now());
+        manifest.put("hashAlgorithm", "SHA-256 (Base64)");
+        manifest.put("documentCount", manifestEntries.size());
+        manifest.put("totalBytes", totalBytes);
+        manifest.put("documents", manifestEntries);
+
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+
+        log.info("Exportación ZIP del caso {} completada: {} documentos, {} bytes en {} ms",
+                caseId, manifestEntries.size(), totalBytes, System.currentTimeMillis() - started);
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    /**
+     * Ruta dentro del ZIP: CATEGORIA/nombre, con sufijo (n) si el nombre se repite
+     */
+    private String uniqueEntryName(Document document, Set<String> usedNames) {
+        String folder = document.getCategory() != null ? document.getCategory().name() : DocumentCategory.OTRO.name();
+        String fileName = (document.getOriginalFileName() != null ? document.getOriginalFileName() : document.getFileName())
+                .replace('/', '_').replace('\\', '_');
+
+        String candidate = folder + "/" + fileName;
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+
+        for (int n = 2; !usedNames.add(candidate.toLowerCase()); n++) {
+            candidate = folder + "/" + baseName + " (" + n + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.novisapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Evento publicado por DocumentService cuando cambia un documento.
+ * Los consumidores asíncronos (índice de búsqueda, etc.) lo reciben tras el commit.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentChangedEvent {
+
+    public enum ChangeType {
+        UPLOADED,
+        UPDATED,
+        DELETED
+    }
+
+    private Long documentId;
+    private ChangeType changeType;
+}
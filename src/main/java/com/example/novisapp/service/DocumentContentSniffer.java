@@ -0,0 +1,122 @@
+package com.example.novisapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MediaTypeRegistry;
+import org.apache.tika.mime.MimeTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Detección del tipo real de un archivo a partir de sus primeros bytes (firmas del repositorio MIME de tika-core).
+ * - Solo se leen los bytes de cabecera (mark/reset sobre un buffer acotado), nunca el archivo completo
+ * - El tipo detectado debe ser el declarado por la extensión o una especialización suya
+ *   (p. ej. la firma OLE2 genérica de un .doc o el ZIP de un .docx)
+ * - Para los formatos con firma obligatoria se rechaza también el contenido sin firma reconocible
+ */
+@Component
+@Slf4j
+public class DocumentContentSniffer {
+
+    private final MimeTypes mimeTypes = MimeTypes.getDefaultMimeTypes();
+    private final MediaTypeRegistry registry = mimeTypes.getMediaTypeRegistry();
+
+    @Value("${novis.documents.sniffing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${novis.documents.sniffing.header-bytes:8192}")
+    private int headerBytes;
+
+    @Value("${novis.documents.sniffing.signature-required-types:PDF,DOCX,XLSX,PPTX,DOC,XLS,JPG,JPEG,PNG,GIF}")
+    private String signatureRequiredTypes;
+
+    /**
+     * Envolver el stream para que admita mark/reset con el tamaño de cabecera configurado.
+     * El stream devuelto debe usarse en lugar del original tras la detección.
+     */
+    public InputStream prepare(InputStream in) {
+        return in.markSupported() ? in : new BufferedInputStream(in, headerBytes);
+    }
+
+    /**
+     * Detectar el tipo real y validarlo contra la extensión. Deja el stream en su posición inicial.
+     *
+     * @param in stream con soporte de mark/reset (ver {@link #prepare})
+     * @return tipo MIME detectado, que es el que se registra en el documento
+     */
+    public String detectAndValidate(InputStream in, String originalFileName) throws IOException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("El stream debe admitir mark/reset");
+        }
+
+        byte[] header = readHeader(in);
+
+        // Solo firma: sin la pista del nombre
+        MediaType signatureType = detect(header, null);
+        MediaType declaredType = detect(null, originalFileName);
+        // Firma + nombre: el repositorio elige la especialización cuando la firma es un supertipo del nombre
+        MediaType detectedType = detect(header, originalFileName);
+
+        if (!enabled) {
+            return detectedType.toString();
+        }
+
+        String extension = getExtension(originalFileName);
+        if (MediaType.OCTET_STREAM.equals(signatureType) && signatureRequired(extension)) {
+            log.warn("Contenido sin firma reconocible para un archivo {}: {}", extension, originalFileName);
+            throw new RuntimeException("El contenido del archivo no corresponde a un " + extension);
+        }
+
+        if (!MediaType.OCTET_STREAM.equals(declaredType) && !registry.isInstanceOf(detectedType, declaredType)) {
+            log.warn("Tipo de contenido no coincide con la extensión: {} declarado como {}, detectado {}",
+                    originalFileName, declaredType, detectedType);
+            throw new RuntimeException("El contenido del archivo (" + detectedType +
+                    ") no corresponde a su extensión " + extension);
+        }
+
+        return detectedType.toString();
+    }
+
+    /**
+     * Leer la cabecera y volver el stream a su inicio. MimeTypes pediría hasta 64KB por su cuenta;
+     * así la lectura queda acotada a headerBytes.
+     */
+    private byte[] readHeader(InputStream in) throws IOException {
+        in.mark(headerBytes);
+        try {
+            return in.readNBytes(headerBytes);
+        } finally {
+            in.reset();
+        }
+    }
+
+    private MediaType detect(byte[] header, String fileName) throws IOException {
+        Metadata metadata = new Metadata();
+        if (fileName != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
+        return mimeTypes.detect(header != null ? new ByteArrayInputStream(header) : null, metadata);
+    }
+
+    private boolean signatureRequired(String extension) {
+        Set<String> required = Arrays.stream(signatureRequiredTypes.split(","))
+                .map(type -> type.trim().toUpperCase())
+                .collect(Collectors.toSet());
+        return required.contains(extension);
+    }
+
+    private String getExtension(String fileName) {
+        if (fileName == null || !fileName.contains(".")) return "";
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toUpperCase();
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentCategory;
+import com.example.novisapp.entity.DocumentUploadSession;
+import com.example.novisapp.entity.UploadSessionStatus;
+import com.example.novisapp.repository.DocumentRepository;
+import com.example.novisapp.repository.DocumentUploadSessionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cifrado en reposo de documentos sensibles (novis.security.encrypt-sensitive-docs).
+ * - Cifrado de sobre: cada documento tiene su propia clave de datos AES-256, guardada envuelta (AES Key Wrap)
+ *   con la clave maestra activa; en el blob solo hay segmentos AES-GCM (ver SegmentedGcmCipher)
+ * - Subidas y descargas en streaming; un rango del archivo solo descifra los segmentos que lo contienen
+ * - Rotación: las claves de datos se reenvuelven con la nueva clave maestra sin reescribir ningún blob
+ * Las claves maestras se configuran como "id:claveBase64" separadas por comas; las anteriores deben
+ * mantenerse configuradas hasta completar la rotación.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentEncryptionService {
+
+    private static final String WRAP_ALGORITHM = "AESWrap";
+    private static final String KEY_ALGORITHM = "AES";
+
+    private final DocumentRepository documentRepository;
+    private final DocumentUploadSessionRepository uploadSessionRepository;
+    private final DocumentStorage documentStorage;
+
+    @Value("${novis.security.encrypt-sensitive-docs:false}")
+    private boolean encryptSensitiveDocs;
+
+    @Value("${novis.security.encryption.categories:CEDULA,PASAPORTE,ESTADO_CUENTA,DECLARACION_RENTA,EVIDENCIA,TESTIMONIO,PERITAJE}")
+    private String sensitiveCategories;
+
+    @Value("${novis.security.encryption.master-keys:}")
+    private String masterKeysConfig;
+
+    @Value("${novis.security.encryption.active-key-id:}")
+    private String activeKeyId;
+
+    @Value("${novis.security.encryption.segment-size:65536}")
+    private int segmentSize;
+
+    private final Map<String, SecretKey> masterKeys = new HashMap<>();
+    private Set<DocumentCategory> encryptedCategories;
+
+    @PostConstruct
+    public void init() {
+        for (String entry : masterKeysConfig.split(",")) {
+            if (entry.isBlank()) continue;
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("Clave maestra mal formada: se espera id:claveBase64");
+            }
+            byte[] keyBytes = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            if (keyBytes.length != 32) {
+                throw new IllegalStateException("La clave maestra " + entry.substring(0, separator) + " debe ser AES-256");
+            }
+            masterKeys.put(entry.substring(0, separator).trim(), new SecretKeySpec(keyBytes, KEY_ALGORITHM));
+        }
+
+        encryptedCategories = EnumSet.noneOf(DocumentCategory.class);
+        for (String category : sensitiveCategories.split(",")) {
+            if (!category.isBlank()) {
+                encryptedCategories.add(DocumentCategory.valueOf(category.trim().toUpperCase()));
+            }
+        }
+
+        if (encryptSensitiveDocs) {
+            if (!masterKeys.containsKey(activeKeyId)) {
+                throw new IllegalStateException("Cifrado de documentos activo sin clave maestra activa configurada");
+            }
+            log.info("Cifrado en reposo activo para {} (clave maestra {}, segmentos de {} bytes)",
+                    encryptedCategories, activeKeyId, segmentSize);
+        }
+    }
+
+    public boolean requiresEncryption(DocumentCategory category) {
+        return encryptSensitiveDocs && category != null && encryptedCategories.contains(category);
+    }
+
+    /**
+     * Generar una clave de datos nueva envuelta con la clave maestra activa
+     */
+    public DataKey newDataKey() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance(KEY_ALGORITHM);
+            generator.init(256);
+            SecretKey dataKey = generator.generateKey();
+            return new DataKey(dataKey, activeKeyId, wrap(dataKey, masterKeys.get(activeKeyId)), segmentSize);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo generar la clave de datos", e);
+        }
+    }
+
+    public void applyTo(Document document, DataKey dataKey) {
+        document.setEncryptionKeyId(dataKey.getKeyId());
+        document.setEncryptedDataKey(dataKey.getWrappedKey());
+        document.setEncryptionSegmentSize(dataKey.getSegmentSize());
+    }
+
+    public void applyTo(DocumentUploadSession session, DataKey dataKey) {
+        session.setEncryptionKeyId(dataKey.getKeyId());
+        session.setEncryptedDataKey(dataKey.getWrappedKey());
+        session.setEncryptionSegmentSize(dataKey.getSegmentSize());
+    }
+
+    public DataKey dataKeyOf(DocumentUploadSession session) {
+        return unwrapDataKey(session.getEncryptionKeyId(), session.getEncryptedDataKey(), session.getEncryptionSegmentSize());
+    }
+
+    // ==========================================
+    // ESCRITURA
+    // ==========================================
+
+    /**
+     * Stream cifrado de un tramo de texto plano que empieza en plaintextOffset (múltiplo del tamaño de segmento)
+     */
+    public InputStream encrypt(InputStream plaintext, DataKey dataKey, long plaintextLength, long plaintextOffset) {
+        SegmentedGcmCipher cipher = new SegmentedGcmCipher(dataKey.getSegmentSize());
+        return cipher.encryptingStream(plaintext, dataKey.getKey(), plaintextLength, plaintextOffset / dataKey.getSegmentSize());
+    }
+
+    public long storedLength(DataKey dataKey, long plaintextLength) {
+        return new SegmentedGcmCipher(dataKey.getSegmentSize()).ciphertextLength(plaintextLength);
+    }
+
+    /**
+     * Posición y longitud en el blob cifrado de un tramo alineado a segmento (fragmentos de una carga por partes)
+     */
+    public long storedOffset(DataKey dataKey, long plaintextOffset) {
+        return new SegmentedGcmCipher(dataKey.getSegmentSize()).ciphertextOffset(plaintextOffset / dataKey.getSegmentSize());
+    }
+
+    public long storedRangeLength(DataKey dataKey, long length) {
+        return new SegmentedGcmCipher(dataKey.getSegmentSize()).rangeCiphertextLength(length);
+    }
+
+    // ==========================================
+    // LECTURA
+    // ==========================================
+
+    /**
+     * Abrir el contenido en claro del documento (cifrado o no)
+     */
+    public InputStream openContent(Document document) throws IOException {
+        return openContent(document, 0, -1);
+    }
+
+    /**
+     * Abrir un rango del contenido en claro. count < 0 significa "hasta el final".
+     * En documentos cifrados solo se leen del storage los segmentos que cubren el rango.
+     */
+    public InputStream openContent(Document document, long offset, long count) throws IOException {
+        if (!document.isEncrypted()) {
+            return documentStorage.get(document.getContainerName(), document.getBlobName(), offset, count);
+        }
+
+        DataKey dataKey = unwrapDataKey(document.getEncryptionKeyId(), document.getEncryptedDataKey(),
+                document.getEncryptionSegmentSize());
+        return openEncrypted(document.getContainerName(), document.getBlobName(), dataKey,
+                document.getFileSize(), offset, count);
+    }
+
+    /**
+     * Abrir el contenido en claro de una carga por partes ya confirmada
+     */
+    public InputStream openContent(DocumentUploadSession session) throws IOException {
+        if (!session.isEncrypted()) {
+            return documentStorage.get(session.getContainerName(), session.getBlobName());
+        }
+        return openEncrypted(session.getContainerName(), session.getBlobName(), dataKeyOf(session),
+                session.getTotalSize(), 0, -1);
+    }
+
+    /**
+     * Copiar un rango del contenido en claro al canal destino.
+     * Sin cifrado se delega en el storage (zero-copy cuando el backend lo permite).
+     */
+    public long transferContent(Document document, long offset, long count, WritableByteChannel target) throws IOException {
+        if (!document.isEncrypted()) {
+            return documentStorage.transferTo(document.getContainerName(), document.getBlobName(), offset, count, target);
+        }
+
+        long transferred = 0;
+        try (ReadableByteChannel source = Channels.newChannel(openContent(document, offset, count))) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return transferred;
+    }
+
+    // ==========================================
+    // ROTACIÓN DE CLAVES MAESTRAS
+    // ==========================================
+
+    /**
+     * Reenvolver con la clave maestra activa las claves de datos envueltas con otras claves.
+     * Recorre por keyset y actualiza solo la columna de la clave: los blobs no se tocan.
+     * Primero las sesiones de carga en curso (su clave pasa al documento al completarse) y después los documentos.
+     */
+    public Map<String, Object> rotateDataKeys(int batchSize) {
+        long started = System.currentTimeMillis();
+        SecretKey activeKey = masterKeys.get(activeKeyId);
+        if (activeKey == null) {
+            throw new RuntimeException("No hay clave maestra activa configurada");
+        }
+
+        String lastSessionId = "";
+        int rewrappedSessions = 0;
+        int failed = 0;
+        while (true) {
+            List<DocumentUploadSession> sessions = uploadSessionRepository.findForKeyRotation(
+                    UploadSessionStatus.IN_PROGRESS, activeKeyId, lastSessionId, PageRequest.of(0, batchSize));
+            for (DocumentUploadSession session : sessions) {
+                try {
+                    SecretKey dataKey = unwrapDataKey(session.getEncryptionKeyId(), session.getEncryptedDataKey(),
+                            session.getEncryptionSegmentSize()).getKey();
+                    rewrappedSessions += uploadSessionRepository.updateEncryptionKey(session.getId(),
+                            session.getEncryptionKeyId(), session.getEncryptedDataKey(), activeKeyId, wrap(dataKey, activeKey));
+                } catch (Exception e) {
+                    failed++;
+                    log.error("No se pudo reenvolver la clave de la sesión de carga {}: {}", session.getId(), e.getMessage());
+                }
+            }
+            if (sessions.size() < batchSize) break;
+            lastSessionId = sessions.get(sessions.size() - 1).getId();
+        }
+
+        long lastId = 0;
+        int rewrapped = 0;
+        while (true) {
+            List<Document> documents = documentRepository.findForKeyRotation(activeKeyId, lastId, PageRequest.of(0, batchSize));
+            for (Document document : documents) {
+                try {
+                    SecretKey dataKey = unwrapDataKey(document.getEncryptionKeyId(), document.getEncryptedDataKey(),
+                            document.getEncryptionSegmentSize()).getKey();
+                    rewrapped += documentRepository.updateEncryptionKey(document.getId(), document.getEncryptionKeyId(),
+                            document.getEncryptedDataKey(), activeKeyId, wrap(dataKey, activeKey));
+                } catch (Exception e) {
+                    failed++;
+                    log.error("No se pudo reenvolver la clave del documento {}: {}", document.getId(), e.getMessage());
+                }
+            }
+            if (documents.size() < batchSize) break;
+            lastId = documents.get(documents.size() - 1).getId();
+        }
+
+        log.info("Rotación de claves completada: {} claves de documentos y {} de sesiones reenvueltas con {}, {} fallidas",
+                rewrapped, rewrappedSessions, activeKeyId, failed);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("activeKeyId", activeKeyId);
+        result.put("rewrapped", rewrapped);
+        result.put("rewrappedSessions", rewrappedSessions);
+        result.put("failed", failed);
+        result.put("elapsedMs", System.currentTimeMillis() - started);
+        return result;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private InputStream openEncrypted(String containerName, String blobName, DataKey dataKey,
+                                      long plaintextLength, long offset, long count) throws IOException {
+        SegmentedGcmCipher cipher = new SegmentedGcmCipher(dataKey.getSegmentSize());
+        long end = count < 0 ? plaintextLength : Math.min(plaintextLength, offset + count);
+        long firstSegment = offset / dataKey.getSegmentSize();
+        long lastSegment = end > offset ? (end - 1) / dataKey.getSegmentSize() : firstSegment;
+
+        long ciphertextStart = cipher.ciphertextOffset(firstSegment);
+        long ciphertextEnd = Math.min(cipher.ciphertextOffset(lastSegment + 1), cipher.ciphertextLength(plaintextLength));
+
+        InputStream ciphertext = documentStorage.get(containerName, blobName, ciphertextStart, ciphertextEnd - ciphertextStart);
+        return cipher.decryptingStream(ciphertext, dataKey.getKey(), plaintextLength, offset, end - offset);
+    }
+
+    private DataKey unwrapDataKey(String keyId, String wrappedKey, Integer keySegmentSize) {
+        SecretKey masterKey = masterKeys.get(keyId);
+        if (masterKey == null) {
+            throw new IllegalStateException("Clave maestra no disponible: " + keyId);
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.UNWRAP_MODE, masterKey);
+            SecretKey dataKey = (SecretKey) cipher.unwrap(Base64.getDecoder().decode(wrappedKey), KEY_ALGORITHM, Cipher.SECRET_KEY);
+            return new DataKey(dataKey, keyId, wrappedKey, keySegmentSize != null ? keySegmentSize : segmentSize);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo desenvolver la clave de datos", e);
+        }
+    }
+
+    private String wrap(SecretKey dataKey, SecretKey masterKey) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.WRAP_MODE, masterKey);
+            return Base64.getEncoder().encodeToString(cipher.wrap(dataKey));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo envolver la clave de datos", e);
+        }
+    }
+
+    /**
+     * Clave de datos en claro (solo en memoria) junto a su forma envuelta
+     */
+    @Data
+    @AllArgsConstructor
+    public static class DataKey {
+        private SecretKey key;
+        private String keyId;
+        private String wrappedKey;
+        private int segmentSize;
+
+        @Override
+        public String toString() {
+            return "DataKey(keyId=" + keyId + ")";
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentRenditionTask;
+import com.example.novisapp.entity.RenditionTaskStatus;
+import com.example.novisapp.repository.DocumentRenditionTaskRepository;
+import com.example.novisapp.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipeline asíncrono de miniaturas y versiones web de imágenes (JDK ImageIO).
+ * - El upload solo inserta una fila en document_rendition_tasks (cola persistente)
+ * - Un poller reclama tareas pendientes y las procesa en un pool acotado de workers
+ * - Las renditions se guardan junto al original: {blob}.thumb.jpg y {blob}.web.jpg
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentRenditionService {
+
+    public static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+    public static final String PREVIEW_SUFFIX = ".web.jpg";
+    private static final String RENDITION_CONTENT_TYPE = "image/jpeg";
+
+    private final DocumentRenditionTaskRepository taskRepository;
+    private final DocumentRepository documentRepository;
+    private final DocumentStorage documentStorage;
+
+    @Value("${novis.documents.generate-thumbnails:false}")
+    private boolean generateThumbnails;
+
+    @Value("${novis.documents.compress-images:true}")
+    private boolean compressImages;
+
+    @Value("${novis.documents.renditions.thumbnail-size:256}")
+    private int thumbnailSize;
+
+    @Value("${novis.documents.renditions.preview-size:1600}")
+    private int previewSize;
+
+    @Value("${novis.documents.renditions.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${novis.documents.renditions.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${novis.documents.renditions.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${novis.documents.renditions.stale-minutes:10}")
+    private int staleMinutes;
+
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerThreads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "novis-renditions-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return generateThumbnails;
+    }
+
+    /**
+     * Encolar la generación de renditions. Debe llamarse dentro de la transacción del upload.
+     */
+    public void enqueue(Document document) {
+        // Las renditions se guardan en claro: no se generan para documentos cifrados
+        if (!generateThumbnails || !document.isImage() || document.isEncrypted()) return;
+
+        taskRepository.save(DocumentRenditionTask.builder()
+                .documentId(document.getId())
+                .build());
+        log.debug("Renditions encoladas para documento: ID={}", document.getId());
+    }
+
+    /**
+     * Reclamar tareas pendientes hasta llenar la capacidad libre del pool
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.renditions.poll-interval-ms:2000}")
+    public void pollQueue() {
+        if (!generateThumbnails) return;
+
+        int capacity = workers.getQueue().remainingCapacity();
+        if (capacity <= 0) return;
+
+        List<DocumentRenditionTask> tasks = taskRepository.findByStatusOrdered(
+                RenditionTaskStatus.PENDING, PageRequest.of(0, capacity));
+
+        for (DocumentRenditionTask task : tasks) {
+            if (taskRepository.claim(task.getId(), RenditionTaskStatus.PENDING,
+                    RenditionTaskStatus.PROCESSING, LocalDateTime.now()) == 1) {
+                workers.execute(() -> process(task.getId(), task.getDocumentId(), task.getAttempts() + 1));
+            }
+        }
+    }
+
+    /**
+     * Devolver a la cola las tareas huérfanas (worker caído o reinicio durante el proceso)
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.renditions.requeue-interval-ms:60000}")
+    public void requeueStaleTasks() {
+        if (!generateThumbnails) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusMinutes(staleMinutes);
+
+        // Las que ya agotaron los intentos no vuelven a la cola: una imagen que tumba al worker se reintentaría siempre
+        int failed = taskRepository.failExhaustedStale(RenditionTaskStatus.FAILED, RenditionTaskStatus.PROCESSING,
+                staleBefore, maxAttempts, "Intentos agotados: el proceso no terminó", now);
+        if (failed > 0) {
+            log.error("Tareas de renditions marcadas como fallidas tras {} intentos: {}", maxAttempts, failed);
+        }
+
+        int requeued = taskRepository.requeueStale(RenditionTaskStatus.PENDING, RenditionTaskStatus.PROCESSING,
+                staleBefore, maxAttempts);
+        if (requeued > 0) {
+            log.warn("Tareas de renditions devueltas a la cola: {}", requeued);
+        }
+    }
+
+    public Map<String, Object> getQueueStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", generateThumbnails);
+        status.put("pending", taskRepository.countByStatus(RenditionTaskStatus.PENDING));
+        status.put("processing", taskRepository.countByStatus(RenditionTaskStatus.PROCESSING));
+        status.put("failed", taskRepository.countByStatus(RenditionTaskStatus.FAILED));
+        status.put("activeWorkers", workers.getActiveCount());
+        return status;
+    }
+
+    // ==========================================
+    // PROCESAMIENTO
+    // ==========================================
+
+    private void process(Long taskId, Long documentId, int attempt) {
+        long started = System.currentTimeMillis();
+        try {
+            Document document = documentRepository.findById(documentId).orElse(null);
+            if (document == null || !Boolean.TRUE.equals(document.getIsActive())) {
+                taskRepository.updateStatus(taskId, RenditionTaskStatus.COMPLETED, "Documento no disponible", LocalDateTime.now());
+                return;
+            }
+
+            BufferedImage source = readSubsampled(document, compressImages ? previewSize : thumbnailSize);
+            if (source == null) {
+                taskRepository.updateStatus(taskId, RenditionTaskStatus.FAILED, "Formato de imagen no soportado", LocalDateTime.now());
+                return;
+            }
+
+            String previewBlobName = null;
+            if (compressImages) {
+                previewBlobName = document.getBlobName() + PREVIEW_SUFFIX;
+                storeRendition(document, previewBlobName, scaleToFit(source, previewSize));
+            }
+
+            String thumbnailBlobName = document.getBlobName() + THUMBNAIL_SUFFIX;
+            storeRendition(document, thumbnailBlobName, scaleToFit(source, thumbnailSize));
+
+            documentRepository.updateRenditions(documentId, thumbnailBlobName, previewBlobName);
+            taskRepository.updateStatus(taskId, RenditionTaskStatus.COMPLETED, null, LocalDateTime.now());
+
+            log.debug("Renditions generadas para documento {} en {} ms", documentId, System.currentTimeMillis() - started);
+
+        } catch (Exception e) {
+            RenditionTaskStatus nextStatus = attempt >= maxAttempts ? RenditionTaskStatus.FAILED : RenditionTaskStatus.PENDING;
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            taskRepository.updateStatus(taskId, nextStatus, error.length() > 500 ? error.substring(0, 500) : error,
+                    LocalDateTime.now());
+            log.error("Error generando renditions del documento {} (intento {}/{}): {}",
+                    documentId, attempt, maxAttempts, e.getMessage());
+        }
+    }
+
+    /**
+     * Leer la imagen con submuestreo en el decodificador, de modo que una foto de 40 MP
+     * no se decodifique a resolución completa para producir una miniatura.
+     */
+    private BufferedImage readSubsampled(Document document, int targetSize) throws IOException {
+        try (InputStream in = documentStorage.get(document.getContainerName(), document.getBlobName());
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (targetSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scaleToFit(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // JPEG no soporta transparencia: se compone sobre fondo blanco
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void storeRendition(Document document, String blobName, BufferedImage image) throws IOException {
+        byte[] bytes = encodeJpeg(image);
+        documentStorage.put(document.getContainerName(), blobName, new ByteArrayInputStream(bytes), bytes.length,
+                RENDITION_CONTENT_TYPE, "inline");
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
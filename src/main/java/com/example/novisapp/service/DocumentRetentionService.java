@@ -0,0 +1,362 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentPurgeRecord;
+import com.example.novisapp.entity.MaintenanceCheckpoint;
+import com.example.novisapp.repository.DocumentPurgeRecordRepository;
+import com.example.novisapp.repository.DocumentRepository;
+import com.example.novisapp.repository.MaintenanceCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Purga por retención (novis.documents.retention-days).
+ * - Recorre por keyset (id ascendente) los documentos eliminados hace más de N días y los huérfanos inactivos
+ * - Elimina las filas que, bloqueadas, siguen siendo candidatas (dejando un registro archivado) y, tras el commit,
+ *   borra sus blobs con paralelismo acotado
+ * - El progreso se guarda en maintenance_checkpoints: un barrido interrumpido continúa donde quedó
+ * - Solo corre dentro de la ventana horaria configurada y limitado en documentos por segundo
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentRetentionService {
+
+    public static final String JOB_NAME = "document-retention";
+
+    private static final String REASON_SOFT_DELETED = "SOFT_DELETED_EXPIRED";
+    private static final String REASON_ORPHAN = "ORPHAN_EXPIRED";
+
+    // Misma condición que DocumentRepository.findRetentionCandidates, reevaluada sobre la fila bloqueada
+    private static final String PURGE_CONDITION_SQL =
+            "((is_active = 0 AND deleted_at < ?) OR " +
+            "(? = 1 AND legal_case_id IS NULL AND is_active = 1 AND created_at < ? " +
+            "AND (last_accessed_at IS NULL OR last_accessed_at < ?)))";
+
+    private final DocumentRepository documentRepository;
+    private final DocumentPurgeRecordRepository purgeRecordRepository;
+    private final MaintenanceCheckpointRepository checkpointRepository;
+    private final DocumentStorage documentStorage;
+    private final DocumentVersionService documentVersionService;
+    private final DocumentStatisticsService documentStatisticsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${novis.documents.retention-days:2555}")
+    private int retentionDays;
+
+    @Value("${novis.documents.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${novis.documents.retention.purge-orphans:true}")
+    private boolean purgeOrphans;
+
+    @Value("${novis.documents.retention.batch-size:100}")
+    private int batchSize;
+
+    @Value("${novis.documents.retention.delete-threads:4}")
+    private int deleteThreads;
+
+    @Value("${novis.documents.retention.max-documents-per-second:20}")
+    private int maxDocumentsPerSecond;
+
+    @Value("${novis.documents.retention.window-start:01:00}")
+    private String windowStart;
+
+    @Value("${novis.documents.retention.window-end:05:00}")
+    private String windowEnd;
+
+    private ThreadPoolExecutor deleteWorkers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        deleteWorkers = new ThreadPoolExecutor(deleteThreads, deleteThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "novis-retention-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        deleteWorkers.shutdown();
+        deleteWorkers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ejecución programada: solo dentro de la ventana horaria, hasta que la ventana termine.
+     * El barrido corre en su propio hilo: el scheduler por defecto tiene un único hilo y el resto
+     * de tareas programadas quedaría detenido durante toda la ventana.
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.retention.interval-ms:600000}")
+    public void scheduledSweep() {
+        if (!enabled || !isInWindow()) return;
+        startSweep(false);
+    }
+
+    /**
+     * Lanzar un barrido manual en segundo plano (ignora la ventana horaria, no el límite de ritmo)
+     */
+    public boolean startManualSweep() {
+        if (!enabled) return false;
+        return startSweep(true);
+    }
+
+    public Map<String, Object> getStatus() {
+        MaintenanceCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElse(null);
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", running.get());
+        status.put("retentionDays", retentionDays);
+        status.put("window", windowStart + "-" + windowEnd);
+        if (checkpoint != null) {
+            status.put("lastProcessedId", checkpoint.getLastProcessedId());
+            status.put("purgedDocuments", checkpoint.getProcessedItems());
+            status.put("reclaimedBytes", checkpoint.getReclaimedBytes());
+            status.put("failedDocuments", checkpoint.getFailedItems());
+            status.put("passStartedAt", checkpoint.getPassStartedAt());
+            status.put("lastPassCompletedAt", checkpoint.getLastPassCompletedAt());
+        }
+        return status;
+    }
+
+    // ==========================================
+    // BARRIDO
+    // ==========================================
+
+    private boolean startSweep(boolean manual) {
+        if (!running.compareAndSet(false, true)) return false;
+
+        Thread thread = new Thread(() -> sweep(manual), manual ? "novis-retention-manual" : "novis-retention-sweep");
+        thread.setDaemon(true);
+        try {
+            thread.start();
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    private void sweep(boolean manual) {
+        try {
+            MaintenanceCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                    .orElseGet(() -> MaintenanceCheckpoint.builder().jobName(JOB_NAME).build());
+            if (checkpoint.getPassStartedAt() == null) {
+                checkpoint.setPassStartedAt(LocalDateTime.now());
+            }
+
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            long minBatchMillis = maxDocumentsPerSecond > 0 ? batchSize * 1000L / maxDocumentsPerSecond : 0;
+
+            while (manual || isInWindow()) {
+                long batchStarted = System.currentTimeMillis();
+
+                List<Document> candidates = documentRepository.findRetentionCandidates(
+                        checkpoint.getLastProcessedId(), cutoff, purgeOrphans, PageRequest.of(0, batchSize));
+
+                if (!candidates.isEmpty()) {
+                    processBatch(candidates, cutoff, checkpoint);
+                }
+
+                if (candidates.size() < batchSize) {
+                    log.info("Barrido de retención completado: {} documentos purgados, {} bytes liberados, {} fallidos",
+                            checkpoint.getProcessedItems(), checkpoint.getReclaimedBytes(), checkpoint.getFailedItems());
+                    checkpoint.setLastPassCompletedAt(LocalDateTime.now());
+                    checkpoint.setLastProcessedId(0L);
+                    checkpoint.setProcessedItems(0L);
+                    checkpoint.setReclaimedBytes(0L);
+                    checkpoint.setFailedItems(0L);
+                    checkpoint.setPassStartedAt(null);
+                    saveCheckpoint(checkpoint);
+                    return;
+                }
+
+                // Limitar el ritmo para no competir con el tráfico normal
+                long elapsed = System.currentTimeMillis() - batchStarted;
+                if (elapsed < minBatchMillis) {
+                    Thread.sleep(minBatchMillis - elapsed);
+                }
+            }
+
+            log.info("Barrido de retención pausado al cerrar la ventana en el id {}", checkpoint.getLastProcessedId());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error en el barrido de retención: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void processBatch(List<Document> candidates, LocalDateTime cutoff, MaintenanceCheckpoint checkpoint)
+            throws InterruptedException {
+        // 1. Eliminación de filas en una transacción por lote, solo de los que siguen siendo candidatos
+        Set<String> chunkCandidates = new LinkedHashSet<>();
+        List<Document> purged = transactionTemplate.execute(status -> purgeRows(candidates, cutoff, chunkCandidates));
+
+        // 2. Borrado de blobs en paralelo acotado, ya confirmada la eliminación de las filas
+        List<Future<Boolean>> results = new ArrayList<>(purged.size());
+        for (Document document : purged) {
+            results.add(deleteWorkers.submit(deleteContent(document)));
+        }
+
+        long reclaimedBytes = 0;
+        long failed = 0;
+        for (int i = 0; i < purged.size(); i++) {
+            Document document = purged.get(i);
+            try {
+                if (results.get(i).get()) {
+                    reclaimedBytes += document.getFileSize() != null ? document.getFileSize() : 0;
+                    continue;
+                }
+            } catch (ExecutionException e) {
+                // La fila ya no existe: el blob queda huérfano pero ningún documento apunta a él
+                log.warn("Error eliminando contenido del documento purgado {} ({}/{}): {}", document.getId(),
+                        document.getContainerName(), document.getBlobName(), e.getCause().getMessage());
+            }
+            failed++;
+        }
+
+        // 3. Chunks del historial que quedaron sin referencias
+        if (!chunkCandidates.isEmpty()) {
+            reclaimedBytes += documentVersionService.collectUnreferencedChunks(chunkCandidates);
+        }
+
+        checkpoint.setLastProcessedId(candidates.get(candidates.size() - 1).getId());
+        checkpoint.setProcessedItems(checkpoint.getProcessedItems() + purged.size());
+        checkpoint.setReclaimedBytes(checkpoint.getReclaimedBytes() + reclaimedBytes);
+        checkpoint.setFailedItems(checkpoint.getFailedItems() + failed);
+        saveCheckpoint(checkpoint);
+
+        log.debug("Lote de retención: {} purgados de {} candidatos, {} blobs fallidos, {} bytes liberados, último id {}",
+                purged.size(), candidates.size(), failed, reclaimedBytes, checkpoint.getLastProcessedId());
+    }
+
+    private Callable<Boolean> deleteContent(Document document) {
+        return () -> {
+            documentStorage.delete(document.getContainerName(), document.getBlobName());
+            if (document.getThumbnailBlobName() != null) {
+                documentStorage.delete(document.getContainerName(), document.getThumbnailBlobName());
+            }
+            if (document.getPreviewBlobName() != null) {
+                documentStorage.delete(document.getContainerName(), document.getPreviewBlobName());
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Eliminar las filas de los candidatos que, con la fila bloqueada, siguen cumpliendo la condición de purga.
+     * Un documento restaurado o un huérfano asociado a un caso desde la consulta de candidatos se conserva.
+     *
+     * @return documentos efectivamente eliminados
+     */
+    private List<Document> purgeRows(List<Document> candidates, LocalDateTime cutoff, Set<String> chunkCandidates) {
+        LocalDateTime now = LocalDateTime.now();
+        List<DocumentPurgeRecord> records = new ArrayList<>(candidates.size());
+        List<Document> purged = new ArrayList<>(candidates.size());
+
+        for (Document document : candidates) {
+            List<Long> locked = jdbcTemplate.queryForList(
+                    "SELECT id FROM documents WITH (UPDLOCK, HOLDLOCK) WHERE id = ? AND " + PURGE_CONDITION_SQL,
+                    Long.class, purgeConditionArgs(document.getId(), cutoff));
+            if (locked.isEmpty()) {
+                log.debug("Documento {} ya no es candidato a purga", document.getId());
+                continue;
+            }
+
+            boolean orphan = Boolean.TRUE.equals(document.getIsActive());
+            Long caseId = document.getLegalCase() != null ? document.getLegalCase().getId() : null;
+
+            records.add(DocumentPurgeRecord.builder()
+                    .documentId(document.getId())
+                    .caseId(caseId)
+                    .originalFileName(document.getOriginalFileName())
+                    .category(document.getCategory())
+                    .fileSize(document.getFileSize())
+                    .fileHash(document.getFileHash())
+                    .reason(orphan ? REASON_ORPHAN : REASON_SOFT_DELETED)
+                    .createdAt(document.getCreatedAt())
+                    .deletedAt(document.getDeletedAt())
+                    .purgedAt(now)
+                    .build());
+
+            if (orphan) {
+                // Los huérfanos activos aún cuentan en las estadísticas y el índice
+                documentStatisticsService.recordRemoved(document);
+                eventPublisher.publishEvent(new DocumentChangedEvent(document.getId(), DocumentChangedEvent.ChangeType.DELETED));
+            }
+
+            chunkCandidates.addAll(documentVersionService.deleteVersionData(document.getId()));
+            jdbcTemplate.update("DELETE FROM document_rendition_tasks WHERE document_id = ?", document.getId());
+            if (jdbcTemplate.update("DELETE FROM documents WHERE id = ? AND " + PURGE_CONDITION_SQL,
+                    purgeConditionArgs(document.getId(), cutoff)) != 1) {
+                throw new IllegalStateException("El documento " + document.getId() + " cambió durante la purga");
+            }
+            purged.add(document);
+        }
+
+        purgeRecordRepository.saveAll(records);
+        return purged;
+    }
+
+    private Object[] purgeConditionArgs(Long documentId, LocalDateTime cutoff) {
+        Timestamp cutoffTimestamp = Timestamp.valueOf(cutoff);
+        return new Object[]{documentId, cutoffTimestamp, purgeOrphans, cutoffTimestamp, cutoffTimestamp};
+    }
+
+    private void saveCheckpoint(MaintenanceCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    /**
+     * Ventana horaria [inicio, fin); admite ventanas que cruzan medianoche (p. ej. 22:00-05:00)
+     */
+    private boolean isInWindow() {
+        LocalTime now = LocalTime.now();
+        LocalTime start = LocalTime.parse(windowStart);
+        LocalTime end = LocalTime.parse(windowEnd);
+        if (start.equals(end)) return true;
+        return start.isBefore(end) ?
+                !now.isBefore(start) && now.isBefore(end) :
+                !now.isBefore(start) || now.isBefore(end);
+    }
+}
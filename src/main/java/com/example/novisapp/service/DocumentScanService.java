@@ -0,0 +1,229 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.MalwareScanVerdict;
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentScanStatus;
+import com.example.novisapp.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Análisis antimalware asíncrono (novis.documents.scan-for-viruses).
+ * - El upload guarda el documento en cuarentena (scanStatus = PENDING); la columna hace de cola persistente
+ * - Un poller reclama documentos y un pool acotado los envía en streaming al MalwareScanner configurado
+ * - CLEAN libera el documento (renditions e indexación se disparan entonces); INFECTED lo bloquea
+ * - Mientras no esté liberado, DocumentService rechaza descargas, URLs firmadas y renditions
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentScanService {
+
+    private final DocumentRepository documentRepository;
+    private final DocumentEncryptionService documentEncryptionService;
+    private final MalwareScanner malwareScanner;
+    private final DocumentRenditionService documentRenditionService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${novis.documents.scan-for-viruses:false}")
+    private boolean scanForViruses;
+
+    @Value("${novis.documents.scanner.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${novis.documents.scanner.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${novis.documents.scanner.stale-minutes:15}")
+    private int staleMinutes;
+
+    private ThreadPoolExecutor workers;
+
+    // Métricas en memoria (desde el arranque del nodo)
+    private final LongAdder scannedDocuments = new LongAdder();
+    private final LongAdder infectedDocuments = new LongAdder();
+    private final LongAdder scanErrors = new LongAdder();
+    private final LongAdder scannedBytes = new LongAdder();
+    private final LongAdder totalScanMillis = new LongAdder();
+    private final AtomicLong maxScanMillis = new AtomicLong();
+    private final AtomicLong lastScanMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerThreads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "novis-scanner-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        if (scanForViruses) {
+            log.info("Análisis antimalware asíncrono activo con el analizador: {}", malwareScanner.getName());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return scanForViruses;
+    }
+
+    /**
+     * Poner en cuarentena un documento nuevo o con contenido nuevo, antes de guardarlo.
+     * Devuelve true si queda pendiente de análisis (los efectos posteriores se difieren a la liberación).
+     */
+    public boolean quarantine(Document document) {
+        if (!scanForViruses) return false;
+
+        document.setScanStatus(DocumentScanStatus.PENDING);
+        document.setScanResult(null);
+        document.setScanAttempts(0);
+        document.setScanUpdatedAt(LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * Reclamar documentos en cuarentena hasta llenar la capacidad libre del pool
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.scanner.poll-interval-ms:2000}")
+    public void pollQueue() {
+        if (!scanForViruses) return;
+
+        int capacity = workers.getQueue().remainingCapacity();
+        if (capacity <= 0) return;
+
+        List<Long> documentIds = documentRepository.findIdsByScanStatus(DocumentScanStatus.PENDING,
+                PageRequest.of(0, capacity));
+
+        for (Long documentId : documentIds) {
+            if (documentRepository.claimForScan(documentId, DocumentScanStatus.PENDING,
+                    DocumentScanStatus.SCANNING, LocalDateTime.now()) == 1) {
+                workers.execute(() -> process(documentId));
+            }
+        }
+    }
+
+    /**
+     * Devolver a la cola los análisis huérfanos (worker caído o reinicio durante el análisis)
+     */
+    @Scheduled(fixedDelayString = "${novis.documents.scanner.requeue-interval-ms:60000}")
+    public void requeueStaleScans() {
+        if (!scanForViruses) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusMinutes(staleMinutes);
+
+        // Los que ya agotaron los intentos no vuelven a la cola: un archivo que tumba al worker se reintentaría siempre
+        int failed = documentRepository.failExhaustedStaleScans(DocumentScanStatus.FAILED, DocumentScanStatus.SCANNING,
+                staleBefore, maxAttempts, "Intentos agotados: el análisis no terminó", now);
+        if (failed > 0) {
+            log.error("Análisis antimalware marcados como fallidos tras {} intentos: {}", maxAttempts, failed);
+        }
+
+        int requeued = documentRepository.requeueStaleScans(DocumentScanStatus.PENDING, DocumentScanStatus.SCANNING,
+                staleBefore, maxAttempts);
+        if (requeued > 0) {
+            log.warn("Análisis antimalware devueltos a la cola: {}", requeued);
+        }
+    }
+
+    public Map<String, Object> getQueueStatus() {
+        long scanned = scannedDocuments.sum();
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", scanForViruses);
+        status.put("scanner", malwareScanner.getName());
+        status.put("queueDepth", documentRepository.countByScanStatus(DocumentScanStatus.PENDING));
+        status.put("scanning", documentRepository.countByScanStatus(DocumentScanStatus.SCANNING));
+        status.put("infected", documentRepository.countByScanStatus(DocumentScanStatus.INFECTED));
+        status.put("failed", documentRepository.countByScanStatus(DocumentScanStatus.FAILED));
+        status.put("activeWorkers", workers.getActiveCount());
+        status.put("scannedSinceStartup", scanned);
+        status.put("infectedSinceStartup", infectedDocuments.sum());
+        status.put("errorsSinceStartup", scanErrors.sum());
+        status.put("scannedBytesSinceStartup", scannedBytes.sum());
+        status.put("avgScanLatencyMs", scanned > 0 ? totalScanMillis.sum() / scanned : 0);
+        status.put("maxScanLatencyMs", maxScanMillis.get());
+        status.put("lastScanLatencyMs", lastScanMillis.get());
+        return status;
+    }
+
+    // ==========================================
+    // PROCESAMIENTO
+    // ==========================================
+
+    private void process(Long documentId) {
+        long started = System.currentTimeMillis();
+        Document document = null;
+        try {
+            document = documentRepository.findById(documentId).orElse(null);
+            if (document == null) return;
+
+            MalwareScanVerdict verdict;
+            try (InputStream in = documentEncryptionService.openContent(document)) {
+                verdict = malwareScanner.scan(in);
+            }
+            recordLatency(started, verdict.getScannedBytes());
+
+            if (verdict.isInfected()) {
+                infectedDocuments.increment();
+                documentRepository.updateScanStatus(documentId, DocumentScanStatus.SCANNING,
+                        DocumentScanStatus.INFECTED, verdict.getSignature(), LocalDateTime.now());
+                log.warn("Documento {} bloqueado por el analizador {}: {}",
+                        documentId, malwareScanner.getName(), verdict.getSignature());
+                return;
+            }
+
+            if (documentRepository.updateScanStatus(documentId, DocumentScanStatus.SCANNING,
+                    DocumentScanStatus.CLEAN, null, LocalDateTime.now()) == 1) {
+                // Efectos diferidos del upload: solo sobre contenido ya liberado
+                documentRenditionService.enqueue(document);
+                eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangedEvent.ChangeType.UPDATED));
+                log.debug("Documento {} liberado tras el análisis en {} ms", documentId, System.currentTimeMillis() - started);
+            }
+
+        } catch (Exception e) {
+            scanErrors.increment();
+            int attempts = document != null && document.getScanAttempts() != null ? document.getScanAttempts() : maxAttempts;
+            DocumentScanStatus nextStatus = attempts >= maxAttempts ? DocumentScanStatus.FAILED : DocumentScanStatus.PENDING;
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            documentRepository.updateScanStatus(documentId, DocumentScanStatus.SCANNING, nextStatus,
+                    error.length() > 255 ? error.substring(0, 255) : error, LocalDateTime.now());
+            log.error("Error analizando el documento {} (intento {}/{}): {}",
+                    documentId, attempts, maxAttempts, e.getMessage());
+        }
+    }
+
+    private void recordLatency(long started, long bytes) {
+        long elapsed = System.currentTimeMillis() - started;
+        scannedDocuments.increment();
+        scannedBytes.add(bytes);
+        totalScanMillis.add(elapsed);
+        lastScanMillis.set(elapsed);
+        maxScanMillis.accumulateAndGet(elapsed, Math::max);
+    }
+}
@@ -0,0 +1,595 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.DocumentSearchHitDTO;
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentScanStatus;
+import com.example.novisapp.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice full-text embebido (Lucene, en disco) sobre nombre, descripción, categoría
+ * y texto extraído con Tika de los documentos PDF/DOCX/TXT.
+ * - Se alimenta de forma asíncrona tras el commit de cada upload/modificación
+ * - Búsqueda por caso o global con ranking y resaltado
+ * - Reconstrucción incremental desde el storage en segundo plano
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentSearchIndexService {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_CASE_ID = "caseId";
+    private static final String FIELD_FILE_NAME = "fileName";
+    private static final String FIELD_DESCRIPTION = "description";
+    private static final String FIELD_CATEGORY = "category";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_FINGERPRINT = "fingerprint";
+    private static final String NO_CASE = "none";
+
+    private static final String[] SEARCH_FIELDS = {FIELD_FILE_NAME, FIELD_DESCRIPTION, FIELD_CATEGORY, FIELD_CONTENT};
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            FIELD_FILE_NAME, 3.0f,
+            FIELD_DESCRIPTION, 2.0f,
+            FIELD_CATEGORY, 1.5f,
+            FIELD_CONTENT, 1.0f);
+
+    // Campo de contenido con offsets en postings para resaltar sin re-analizar el texto
+    private static final FieldType CONTENT_FIELD_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CONTENT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_FIELD_TYPE.freeze();
+    }
+
+    private final DocumentRepository documentRepository;
+    private final DocumentStorage documentStorage;
+
+    @Value("${novis.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${novis.search.index-path:./data/search-index}")
+    private String indexPath;
+
+    @Value("${novis.search.extract-types:PDF,DOCX,DOC,TXT}")
+    private String extractTypes;
+
+    @Value("${novis.search.max-content-chars:200000}")
+    private int maxContentChars;
+
+    @Value("${novis.search.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${novis.search.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${novis.search.rebuild-page-size:500}")
+    private int rebuildPageSize;
+
+    private final Analyzer analyzer = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new ASCIIFoldingFilter(new LowerCaseFilter(source));
+            return new TokenStreamComponents(source, result);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    };
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final AtomicLong indexedDocuments = new AtomicLong();
+    private final AtomicLong failedDocuments = new AtomicLong();
+    private final AtomicInteger droppedTasks = new AtomicInteger();
+
+    private FSDirectory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private ThreadPoolExecutor indexingExecutor;
+    private Set<String> extractableTypes;
+    private volatile LocalDateTime lastRebuildAt;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            log.info("Índice de búsqueda de documentos deshabilitado (novis.search.enabled=false)");
+            return;
+        }
+
+        Path path = Paths.get(indexPath).toAbsolutePath().normalize();
+        Files.createDirectories(path);
+
+        directory = FSDirectory.open(path);
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(indexWriter, null);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        indexingExecutor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "novis-search-index-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    // El job de reconstrucción recupera los documentos descartados
+                    droppedTasks.incrementAndGet();
+                    log.warn("Cola de indexación llena ({}), tarea descartada", queueCapacity);
+                });
+
+        extractableTypes = new HashSet<>();
+        for (String type : extractTypes.split(",")) {
+            extractableTypes.add(type.trim().toUpperCase());
+        }
+
+        log.info("Índice de búsqueda de documentos abierto en: {} ({} documentos)", path, indexWriter.getDocStats().numDocs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!isAvailable()) return;
+
+        indexingExecutor.shutdown();
+        try {
+            indexingExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            searcherManager.close();
+            indexWriter.close();
+            directory.close();
+        } catch (Exception e) {
+            log.error("Error cerrando el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return enabled && indexWriter != null && indexWriter.isOpen();
+    }
+
+    // ==========================================
+    // ALIMENTACIÓN DEL ÍNDICE
+    // ==========================================
+
+    /**
+     * Encolar la (re)indexación de un documento tras el commit de la transacción que lo modificó
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (!isAvailable()) return;
+
+        Long documentId = event.getDocumentId();
+        if (event.getChangeType() == DocumentChangedEvent.ChangeType.DELETED) {
+            indexingExecutor.execute(() -> removeDocument(documentId));
+        } else {
+            indexingExecutor.execute(() -> documentRepository.findById(documentId).ifPresent(this::indexDocument));
+        }
+    }
+
+    /**
+     * Indexar (o reemplazar) un documento de forma síncrona
+     */
+    public void indexDocument(Document document) {
+        if (!isAvailable()) return;
+
+        // En cuarentena (pendiente, infectado o fallido) no se indexa: se indexa al liberarse tras el análisis
+        if (!Boolean.TRUE.equals(document.getIsActive()) || document.isQuarantined()) {
+            removeDocument(document.getId());
+            return;
+        }
+
+        try {
+            indexWriter.updateDocument(new Term(FIELD_ID, document.getId().toString()), toIndexDocument(document));
+            indexedDocuments.incrementAndGet();
+            log.debug("Documento indexado: ID={}", document.getId());
+        } catch (Exception e) {
+            failedDocuments.incrementAndGet();
+            log.error("Error indexando documento {}: {}", document.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Eliminar un documento del índice
+     */
+    public void removeDocument(Long documentId) {
+        if (!isAvailable()) return;
+
+        try {
+            indexWriter.deleteDocuments(new Term(FIELD_ID, documentId.toString()));
+        } catch (IOException e) {
+            log.error("Error eliminando documento {} del índice: {}", documentId, e.getMessage());
+        }
+    }
+
+    // ==========================================
+    // BÚSQUEDA
+    // ==========================================
+
+    /**
+     * Buscar en el índice. caseId == null busca en todos los documentos.
+     * Devuelve los hits ordenados por relevancia, con fragmentos resaltados.
+     */
+    public List<DocumentSearchHitDTO> search(Long caseId, String searchTerm, int limit) throws IOException {
+        if (!isAvailable()) {
+            throw new IllegalStateException("El índice de búsqueda no está disponible");
+        }
+
+        Query query = buildQuery(caseId, searchTerm);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, Math.max(1, limit));
+            if (topDocs.scoreDocs.length == 0) {
+                return Collections.emptyList();
+            }
+
+            UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withFormatter(new DefaultPassageFormatter("<b>", "</b>", " ... ", false))
+                    .build();
+            Map<String, String[]> highlights = highlighter.highlightFields(SEARCH_FIELDS, query, topDocs);
+
+            StoredFields storedFields = searcher.storedFields();
+            List<DocumentSearchHitDTO> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                org.apache.lucene.document.Document stored = storedFields.document(scoreDoc.doc);
+
+                Map<String, String> docHighlights = new LinkedHashMap<>();
+                for (String field : SEARCH_FIELDS) {
+                    String[] fragments = highlights.get(field);
+                    if (fragments != null && fragments[i] != null) {
+                        docHighlights.put(field, fragments[i]);
+                    }
+                }
+
+                String storedCaseId = stored.get(FIELD_CASE_ID);
+                hits.add(DocumentSearchHitDTO.builder()
+                        .documentId(Long.valueOf(stored.get(FIELD_ID)))
+                        .caseId(NO_CASE.equals(storedCaseId) ? null : Long.valueOf(storedCaseId))
+                        .score(scoreDoc.score)
+                        .highlights(docHighlights)
+                        .build());
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Query buildQuery(Long caseId, String searchTerm) {
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(SEARCH_FIELDS, analyzer, FIELD_BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+
+        Query textQuery;
+        try {
+            textQuery = parser.parse(QueryParser.escape(searchTerm));
+        } catch (ParseException e) {
+            throw new RuntimeException("Término de búsqueda inválido: " + searchTerm, e);
+        }
+
+        if (caseId == null) {
+            return textQuery;
+        }
+
+        return new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(FIELD_CASE_ID, caseId.toString())), BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    // ==========================================
+    // RECONSTRUCCIÓN Y MANTENIMIENTO
+    // ==========================================
+
+    /**
+     * Lanzar la reconstrucción del índice en segundo plano. Devuelve false si ya hay una en curso.
+     */
+    public boolean startRebuild() {
+        if (!isAvailable() || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Thread thread = new Thread(this::rebuildIndex, "novis-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Reconstrucción programada (deshabilitada por defecto con "-")
+     */
+    @Scheduled(cron = "${novis.search.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        startRebuild();
+    }
+
+    /**
+     * Recorre los documentos activos por páginas y reindexa solo los que cambiaron
+     * (comparando la huella guardada). Elimina del índice los que ya no están activos.
+     */
+    private void rebuildIndex() {
+        long started = System.currentTimeMillis();
+        int reindexed = 0;
+        int unchanged = 0;
+        Set<String> activeIds = new HashSet<>();
+
+        try {
+            int pageNumber = 0;
+            Page<Document> page;
+            do {
+                page = documentRepository.findAllActive(PageRequest.of(pageNumber++, rebuildPageSize));
+                for (Document document : page.getContent()) {
+                    if (document.isQuarantined()) continue;
+                    activeIds.add(document.getId().toString());
+                    if (fingerprint(document).equals(getIndexedFingerprint(document.getId()))) {
+                        unchanged++;
+                    } else {
+                        indexDocument(document);
+                        reindexed++;
+                    }
+                }
+            } while (page.hasNext());
+
+            int removed = removeStaleEntries(activeIds);
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+
+            lastRebuildAt = LocalDateTime.now();
+            log.info("Reconstrucción del índice completada en {} ms: {} reindexados, {} sin cambios, {} eliminados",
+                    System.currentTimeMillis() - started, reindexed, unchanged, removed);
+        } catch (Exception e) {
+            log.error("Error reconstruyendo el índice de búsqueda: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Las entradas del índice que no aparecieron en el recorrido solo se eliminan si la base de datos confirma,
+     * en ese momento, que ya no deben estar: un documento subido e indexado durante la reconstrucción
+     * (o desplazado de página por las altas) no aparece en activeIds pero sigue vigente.
+     * Los ids se leen del diccionario de términos, sin cargar los documentos almacenados.
+     */
+    private int removeStaleEntries(Set<String> activeIds) throws IOException {
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        List<Long> candidates = new ArrayList<>();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            Terms terms = MultiTerms.getTerms(reader, FIELD_ID);
+            if (terms != null) {
+                Bits liveDocs = MultiBits.getLiveDocs(reader);
+                TermsEnum termsEnum = terms.iterator();
+                PostingsEnum postings = null;
+                BytesRef term;
+                while ((term = termsEnum.next()) != null) {
+                    String id = term.utf8ToString();
+                    if (activeIds.contains(id)) continue;
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    if (hasLiveDoc(postings, liveDocs)) {
+                        candidates.add(Long.valueOf(id));
+                    }
+                }
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+
+        int removed = 0;
+        for (int from = 0; from < candidates.size(); from += rebuildPageSize) {
+            List<Long> batch = candidates.subList(from, Math.min(candidates.size(), from + rebuildPageSize));
+            Set<Long> stillIndexable = new HashSet<>(
+                    documentRepository.findIndexableIds(batch, DocumentScanStatus.CLEAN));
+
+            List<Term> staleTerms = new ArrayList<>();
+            for (Long id : batch) {
+                if (!stillIndexable.contains(id)) {
+                    staleTerms.add(new Term(FIELD_ID, id.toString()));
+                }
+            }
+            if (!staleTerms.isEmpty()) {
+                indexWriter.deleteDocuments(staleTerms.toArray(new Term[0]));
+                removed += staleTerms.size();
+            }
+        }
+        return removed;
+    }
+
+    // Un término puede sobrevivir a sus documentos borrados hasta la siguiente fusión de segmentos
+    private boolean hasLiveDoc(PostingsEnum postings, Bits liveDocs) throws IOException {
+        for (int doc = postings.nextDoc(); doc != PostingsEnum.NO_MORE_DOCS; doc = postings.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) return true;
+        }
+        return false;
+    }
+
+    private String getIndexedFingerprint(Long documentId) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(new TermQuery(new Term(FIELD_ID, documentId.toString())), 1);
+            if (topDocs.scoreDocs.length == 0) return null;
+            return searcher.storedFields()
+                    .document(topDocs.scoreDocs[0].doc, Set.of(FIELD_FINGERPRINT))
+                    .get(FIELD_FINGERPRINT);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Hacer visibles los cambios recientes a las búsquedas (NRT)
+     */
+    @Scheduled(fixedDelayString = "${novis.search.refresh-interval-ms:1000}")
+    public void refreshSearcher() {
+        if (!isAvailable()) return;
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.error("Error refrescando el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Persistir los cambios del índice en disco
+     */
+    @Scheduled(fixedDelayString = "${novis.search.commit-interval-ms:30000}")
+    public void commit() {
+        if (!isAvailable()) return;
+        try {
+            if (indexWriter.hasUncommittedChanges()) {
+                indexWriter.commit();
+            }
+        } catch (IOException e) {
+            log.error("Error haciendo commit del índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("available", isAvailable());
+        if (isAvailable()) {
+            status.put("indexedDocuments", indexWriter.getDocStats().numDocs);
+            status.put("queuedTasks", indexingExecutor.getQueue().size());
+        }
+        status.put("indexedSinceStartup", indexedDocuments.get());
+        status.put("failedSinceStartup", failedDocuments.get());
+        status.put("droppedTasks", droppedTasks.get());
+        status.put("rebuilding", rebuilding.get());
+        status.put("lastRebuildAt", lastRebuildAt);
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private org.apache.lucene.document.Document toIndexDocument(Document document) {
+        org.apache.lucene.document.Document doc = new org.apache.lucene.document.Document();
+        Long caseId = document.getLegalCase() != null ? document.getLegalCase().getId() : null;
+
+        doc.add(new StringField(FIELD_ID, document.getId().toString(), Field.Store.YES));
+        doc.add(new StringField(FIELD_CASE_ID, caseId != null ? caseId.toString() : NO_CASE, Field.Store.YES));
+        doc.add(new TextField(FIELD_FILE_NAME, document.getOriginalFileName(), Field.Store.YES));
+        if (document.getDescription() != null) {
+            doc.add(new TextField(FIELD_DESCRIPTION, document.getDescription(), Field.Store.YES));
+        }
+        if (document.getCategory() != null) {
+            doc.add(new TextField(FIELD_CATEGORY,
+                    document.getCategory().name() + " " + document.getCategory().getDisplayName(), Field.Store.YES));
+        }
+
+        String content = extractText(document);
+        if (content != null && !content.isBlank()) {
+            doc.add(new Field(FIELD_CONTENT, content, CONTENT_FIELD_TYPE));
+        }
+
+        doc.add(new StoredField(FIELD_FINGERPRINT, fingerprint(document)));
+        return doc;
+    }
+
+    /**
+     * Extraer texto con Tika en streaming, limitado a maxContentChars
+     */
+    private String extractText(Document document) {
+        if (document.getFileType() == null || !extractableTypes.contains(document.getFileType().toUpperCase())) {
+            return null;
+        }
+        // El índice en disco no está cifrado: de los documentos sensibles solo se indexan los metadatos
+        if (document.isEncrypted()) {
+            return null;
+        }
+        // Contenido no liberado por el análisis antimalware: Tika no lo procesa
+        if (document.isQuarantined()) {
+            return null;
+        }
+
+        BodyContentHandler handler = new BodyContentHandler(maxContentChars);
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, document.getOriginalFileName());
+
+        try (InputStream in = documentStorage.get(document.getContainerName(), document.getBlobName())) {
+            new AutoDetectParser().parse(in, handler, metadata, new ParseContext());
+        } catch (Exception e) {
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                log.warn("No se pudo extraer texto del documento {}: {}", document.getId(), e.getMessage());
+                return null;
+            }
+            // Límite alcanzado: se indexa el texto extraído hasta ese punto
+        }
+        return handler.toString();
+    }
+
+    private String fingerprint(Document document) {
+        Long caseId = document.getLegalCase() != null ? document.getLegalCase().getId() : null;
+        return document.getFileHash() + "|" + document.getUpdatedAt() + "|" + caseId;
+    }
+}
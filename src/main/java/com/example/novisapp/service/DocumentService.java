@@ -1,35 +1,48 @@
 package com.example.novisapp.service;
 
-import com.azure.storage.blob.BlobClient;
-import com.azure.storage.blob.BlobServiceClient;
-import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.example.novisapp.dto.DocumentResponseDTO;
+import com.example.novisapp.dto.DocumentSearchHitDTO;
 import com.example.novisapp.entity.DocumentCategory;
 import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentScanStatus;
+import com.example.novisapp.entity.DocumentUploadSession;
+import com.example.novisapp.entity.DocumentVersion;
 import com.example.novisapp.entity.LegalCase;
 import com.example.novisapp.entity.User;
 import com.example.novisapp.repository.DocumentRepository;
 import com.example.novisapp.repository.LegalCaseRepository;
 import com.example.novisapp.repository.UserRepository;
+import com.example.novisapp.security.ClientIpResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * Servicio completo para gestión documental con Azure Blob Storage
+ * Servicio completo para gestión documental sobre DocumentStorage (Azure Blob o disco local)
  * Funcionalidades avanzadas: upload, download, versionado, auditoría
  * VERSIÓN ACTUALIZADA - Con soporte para documentos sin caso asignado
  * Estructura de paquete plano
@@ -43,7 +56,18 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final LegalCaseRepository legalCaseRepository;
     private final UserRepository userRepository;
-    private final BlobServiceClient blobServiceClient;
+    private final DocumentStorage documentStorage;
+    private final DocumentAccessAuditService documentAccessAuditService;
+    private final DocumentSearchIndexService documentSearchIndexService;
+    private final DocumentAccessCounterService documentAccessCounterService;
+    private final DocumentRenditionService documentRenditionService;
+    private final DocumentStatisticsService documentStatisticsService;
+    private final DocumentVersionService documentVersionService;
+    private final DocumentContentSniffer documentContentSniffer;
+    private final DocumentScanService documentScanService;
+    private final DocumentEncryptionService documentEncryptionService;
+    private final ClientIpResolver clientIpResolver;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${novis.documents.max-file-size:52428800}") // 50MB
     private long maxFileSize;
@@ -54,6 +78,12 @@ public class DocumentService {
     @Value("${novis.documents.allowed-types:PDF,DOCX,XLSX,TXT,JPG,JPEG,PNG,GIF}")
     private String allowedTypes;
 
+    @Value("${novis.search.max-results:100}")
+    private int maxSearchResults;
+
+    @Value("${novis.storage.signed-url.max-expiration-minutes:1440}")
+    private int maxSignedUrlExpirationMinutes;
+
     @Value("${azure.storage.container.documents:novis-documents}")
     private String documentsContainer;
 
@@ -75,6 +105,7 @@ public class DocumentService {
 
         // Validaciones previas
         validateFile(file);
+        String mimeType = detectContentType(file);
 
         // Solo validar capacidad si hay caso asignado
         if (caseId != null) {
@@ -92,55 +123,51 @@ public class DocumentService {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + userId));
 
         // Verificar duplicados por hash (global o por caso)
-        String fileHash = calculateFileHash(file.getBytes());
-        Optional<Document> existingDoc = caseId != null ?
-                documentRepository.findByCaseIdAndFileHash(caseId, fileHash) :
-                documentRepository.findByFileHash(fileHash);
-
-        if (existingDoc.isPresent()) {
-            log.warn("Archivo duplicado detectado: {}", file.getOriginalFilename());
-            throw new RuntimeException("El archivo ya existe" + (caseId != null ? " en este caso" : " en el sistema"));
-        }
+        String fileHash = calculateFileHash(file);
+        validateNotDuplicate(caseId, fileHash, file.getOriginalFilename());
 
         // Generar nombres únicos
         String blobName = generateUniqueBlobName(file.getOriginalFilename());
         String containerName = getContainerForFileType(getFileExtension(file.getOriginalFilename()));
-
-        // Subir a Azure Blob Storage
-        BlobClient blobClient = blobServiceClient
-                .getBlobContainerClient(containerName)
-                .getBlobClient(blobName);
-
-        // Configurar headers HTTP
-        BlobHttpHeaders headers = new BlobHttpHeaders()
-                .setContentType(file.getContentType())
-                .setContentDisposition("attachment; filename=\"" + file.getOriginalFilename() + "\"");
-
-        // Upload del archivo
-        blobClient.upload(new ByteArrayInputStream(file.getBytes()), file.getSize(), true);
-        blobClient.setHttpHeaders(headers);
+        DocumentCategory resolvedCategory = category != null ? category : DocumentCategory.inferFromFileName(file.getOriginalFilename());
+
+        // Subir al backend de almacenamiento en streaming (sin copiar el archivo a un byte[]);
+        // las categorías sensibles se cifran por segmentos durante la propia subida
+        DocumentEncryptionService.DataKey dataKey = documentEncryptionService.requiresEncryption(resolvedCategory) ?
+                documentEncryptionService.newDataKey() : null;
+        String blobUrl;
+        try (InputStream in = file.getInputStream()) {
+            InputStream content = dataKey != null ? documentEncryptionService.encrypt(in, dataKey, file.getSize(), 0) : in;
+            long storedLength = dataKey != null ? documentEncryptionService.storedLength(dataKey, file.getSize()) : file.getSize();
+            blobUrl = documentStorage.put(containerName, blobName, content, storedLength, mimeType,
+                    "attachment; filename=\"" + file.getOriginalFilename() + "\"");
+        }
+        deleteBlobOnRollback(containerName, blobName);
 
         // Crear entidad Document
         Document document = Document.builder()
                 .fileName(generateSafeFileName(file.getOriginalFilename()))
                 .originalFileName(file.getOriginalFilename())
                 .fileType(getFileExtension(file.getOriginalFilename()).toUpperCase())
-                .mimeType(file.getContentType())
+                .mimeType(mimeType)
                 .fileSize(file.getSize())
-                .blobUrl(blobClient.getBlobUrl())
+                .blobUrl(blobUrl)
                 .containerName(containerName)
                 .blobName(blobName)
-                .category(category != null ? category : DocumentCategory.inferFromFileName(file.getOriginalFilename()))
+                .category(resolvedCategory)
                 .description(description)
                 .version(1)
                 .fileHash(fileHash)
                 .legalCase(legalCase) // Puede ser null
                 .uploadedBy(user)
-                .uploadIpAddress(getClientIpAddress(request))
+                .uploadIpAddress(clientIpResolver.resolve(request))
                 .userAgent(request != null ? request.getHeader("User-Agent") : null)
                 .build();
+        if (dataKey != null) {
+            documentEncryptionService.applyTo(document, dataKey);
+        }
 
-        Document savedDocument = documentRepository.save(document);
+        Document savedDocument = persistNewDocument(document);
         log.info("Documento subido exitosamente: ID={}, Blob={}", savedDocument.getId(), blobName);
 
         return savedDocument;
@@ -158,7 +185,7 @@ public class DocumentService {
 
         // Validar capacidad total solo si hay caso asignado
         if (caseId != null) {
-            long currentCount = documentRepository.countActiveByCaseId(caseId);
+            long currentCount = documentStatisticsService.getActiveCount(caseId);
             if (currentCount + files.size() > maxFilesPerCase) {
                 throw new RuntimeException("Se excedería el límite de archivos por caso (" + maxFilesPerCase + ")");
             }
@@ -191,6 +218,102 @@ public class DocumentService {
         return uploadedDocuments;
     }
 
+    // ==========================================
+    // UPLOAD REANUDABLE POR PARTES
+    // ==========================================
+
+    /**
+     * Validar el destino de una carga por partes y preparar su sesión (sin persistirla).
+     * Las mismas reglas que el upload simple salvo el tamaño máximo, que valida ChunkedUploadService.
+     */
+    @Transactional(readOnly = true)
+    public DocumentUploadSession prepareUploadSession(Long caseId, Long userId, String originalFileName,
+                                                      String contentType, long totalSize,
+                                                      DocumentCategory category, String description,
+                                                      HttpServletRequest request) {
+        if (originalFileName == null || originalFileName.isBlank()) {
+            throw new RuntimeException("El nombre del archivo es obligatorio");
+        }
+        validateFileType(originalFileName);
+
+        if (caseId != null) {
+            if (!legalCaseRepository.existsById(caseId)) {
+                throw new RuntimeException("Caso legal no encontrado: " + caseId);
+            }
+            validateCaseCapacity(caseId);
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Usuario no encontrado: " + userId);
+        }
+
+        String extension = getFileExtension(originalFileName);
+        DocumentCategory resolvedCategory = category != null ? category : DocumentCategory.inferFromFileName(originalFileName);
+        DocumentUploadSession session = DocumentUploadSession.builder()
+                .caseId(caseId)
+                .userId(userId)
+                .originalFileName(originalFileName)
+                .contentType(contentType)
+                .category(resolvedCategory)
+                .description(description)
+                .totalSize(totalSize)
+                .containerName(getContainerForFileType(extension))
+                .blobName(generateUniqueBlobName(originalFileName))
+                .uploadIpAddress(clientIpResolver.resolve(request))
+                .userAgent(request != null ? request.getHeader("User-Agent") : null)
+                .build();
+        if (documentEncryptionService.requiresEncryption(resolvedCategory)) {
+            documentEncryptionService.applyTo(session, documentEncryptionService.newDataKey());
+        }
+        return session;
+    }
+
+    /**
+     * Registrar el documento de una carga por partes cuyo contenido ya está confirmado en el almacenamiento
+     */
+    public Document registerStoredDocument(DocumentUploadSession session, String blobUrl, String fileHash) {
+        Long caseId = session.getCaseId();
+        validateCaseCapacity(caseId);
+
+        LegalCase legalCase = null;
+        if (caseId != null) {
+            legalCase = legalCaseRepository.findById(caseId)
+                    .orElseThrow(() -> new RuntimeException("Caso legal no encontrado: " + caseId));
+        }
+
+        User user = userRepository.findById(session.getUserId())
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + session.getUserId()));
+
+        validateNotDuplicate(caseId, fileHash, session.getOriginalFileName());
+
+        Document document = Document.builder()
+                .fileName(generateSafeFileName(session.getOriginalFileName()))
+                .originalFileName(session.getOriginalFileName())
+                .fileType(getFileExtension(session.getOriginalFileName()).toUpperCase())
+                .mimeType(session.getContentType())
+                .fileSize(session.getTotalSize())
+                .blobUrl(blobUrl)
+                .containerName(session.getContainerName())
+                .blobName(session.getBlobName())
+                .category(session.getCategory())
+                .description(session.getDescription())
+                .version(1)
+                .fileHash(fileHash)
+                .legalCase(legalCase)
+                .uploadedBy(user)
+                .uploadIpAddress(session.getUploadIpAddress())
+                .userAgent(session.getUserAgent())
+                .encryptionKeyId(session.getEncryptionKeyId())
+                .encryptedDataKey(session.getEncryptedDataKey())
+                .encryptionSegmentSize(session.getEncryptionSegmentSize())
+                .build();
+
+        Document savedDocument = persistNewDocument(document);
+        log.info("Documento subido por partes: ID={}, Blob={}, Sesión={}",
+                savedDocument.getId(), session.getBlobName(), session.getId());
+
+        return savedDocument;
+    }
+
     // ==========================================
     // MÉTODOS DE DESCARGA
     // ==========================================
@@ -199,34 +322,139 @@ public class DocumentService {
      * Descargar documento por ID
      */
     public byte[] downloadDocument(Long documentId, Long userId) throws IOException {
+        Document document = prepareDownload(documentId, userId);
+
+        try (InputStream in = documentEncryptionService.openContent(document)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Validar que el documento se puede descargar y registrar el acceso.
+     * El contenido se envía después con transferDocumentContent, fuera de la transacción.
+     */
+    @Transactional(readOnly = true)
+    public Document prepareDownload(Long documentId, Long userId) {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
 
         if (!document.getIsActive()) {
             throw new RuntimeException("El documento no está disponible");
         }
+        requireReleased(document);
 
-        // Registrar acceso
-        document.incrementAccessCount();
-        documentRepository.save(document);
-
-        // Descargar de Azure Blob
-        BlobClient blobClient = blobServiceClient
-                .getBlobContainerClient(document.getContainerName())
-                .getBlobClient(document.getBlobName());
+        // Registrar acceso en memoria (se vuelca en lote, sin UPDATE sobre la fila en la descarga)
+        documentAccessCounterService.recordAccess(documentId);
 
         log.info("Descargando documento: ID={}, Usuario={}", documentId, userId);
-        return blobClient.downloadContent().toBytes();
+        return document;
+    }
+
+    /**
+     * Estadísticas de acceso: valor persistido + accesos pendientes de volcar
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAccessStatistics(Long documentId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
+
+        long persistedCount = document.getAccessCount() != null ? document.getAccessCount() : 0L;
+        long pendingCount = documentAccessCounterService.getPendingCount(documentId);
+
+        LocalDateTime lastAccessedAt = document.getLastAccessedAt();
+        LocalDateTime pendingLastAccess = documentAccessCounterService.getPendingLastAccess(documentId);
+        if (pendingLastAccess != null && (lastAccessedAt == null || pendingLastAccess.isAfter(lastAccessedAt))) {
+            lastAccessedAt = pendingLastAccess;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("documentId", documentId);
+        stats.put("accessCount", persistedCount + pendingCount);
+        stats.put("pendingAccessCount", pendingCount);
+        stats.put("lastAccessedAt", lastAccessedAt);
+        return stats;
+    }
+
+    /**
+     * Obtener el documento cuya miniatura (o previsualización web) se va a servir
+     */
+    @Transactional(readOnly = true)
+    public Document getDocumentForRendition(Long documentId, boolean thumbnail) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
+
+        if (!document.getIsActive()) {
+            throw new RuntimeException("El documento no está disponible");
+        }
+        requireReleased(document);
+
+        String blobName = thumbnail ? document.getThumbnailBlobName() : document.getPreviewBlobName();
+        if (blobName == null) {
+            throw new RuntimeException("El documento no tiene " + (thumbnail ? "miniatura" : "previsualización") + " generada");
+        }
+        return document;
+    }
+
+    /**
+     * Copiar una rendition (miniatura/previsualización) al canal destino en streaming
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long transferRendition(Document document, boolean thumbnail, WritableByteChannel target) throws IOException {
+        String blobName = thumbnail ? document.getThumbnailBlobName() : document.getPreviewBlobName();
+        return documentStorage.transferTo(document.getContainerName(), blobName, 0, -1, target);
+    }
+
+    /**
+     * Copiar el contenido del documento al canal destino en streaming
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long transferDocumentContent(Document document, WritableByteChannel target) throws IOException {
+        return transferDocumentContent(document, 0, -1, target);
+    }
+
+    /**
+     * Copiar un rango del contenido en claro (count < 0 = hasta el final); descifra solo los segmentos del rango
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long transferDocumentContent(Document document, long offset, long count, WritableByteChannel target) throws IOException {
+        return documentEncryptionService.transferContent(document, offset, count, target);
     }
 
     /**
      * Obtener URL de descarga directa (temporal)
      */
-    public String getDownloadUrl(Long documentId, int expirationMinutes) {
+    @Transactional(readOnly = true)
+    public String getDownloadUrl(Long documentId, int expirationMinutes) throws IOException {
+        return getDownloadUrl(documentId, expirationMinutes, null, null);
+    }
+
+    /**
+     * Obtener URL de descarga firmada con expiración (SAS en Azure, token HMAC en local).
+     * La descarga no pasa por la aplicación; la emisión queda auditada en lote.
+     */
+    @Transactional(readOnly = true)
+    public String getDownloadUrl(Long documentId, int expirationMinutes, Long userId, String ipAddress) throws IOException {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
 
-        return document.getBlobUrl();
+        if (!document.getIsActive()) {
+            throw new RuntimeException("El documento no está disponible");
+        }
+        requireReleased(document);
+        if (document.isEncrypted()) {
+            // El storage solo tiene el contenido cifrado: la descarga debe pasar por la aplicación
+            throw new RuntimeException("Los documentos cifrados no admiten URL de descarga directa");
+        }
+
+        int minutes = Math.max(1, Math.min(expirationMinutes, maxSignedUrlExpirationMinutes));
+        String url = documentStorage.generateDownloadUrl(document.getContainerName(), document.getBlobName(),
+                document.getOriginalFileName(), Duration.ofMinutes(minutes));
+
+        documentAccessAuditService.recordSignedUrlIssued(documentId, userId, ipAddress,
+                LocalDateTime.now().plusMinutes(minutes));
+
+        log.info("URL firmada emitida: Documento={}, Usuario={}, Expira en {} min", documentId, userId, minutes);
+        return url;
     }
 
     // ==========================================
@@ -298,15 +526,72 @@ public class DocumentService {
 
     /**
      * Buscar documentos por texto (flexible)
+     * Usa el índice full-text si está disponible; si no, cae a la búsqueda LIKE sobre metadatos
      */
     @Transactional(readOnly = true)
     public List<Document> searchDocuments(Long caseId, String searchTerm) {
+        if (documentSearchIndexService.isAvailable()) {
+            List<DocumentSearchHitDTO> hits = queryIndex(caseId, searchTerm, maxSearchResults);
+            Map<Long, Document> documentsById = findActiveDocumentsById(hits);
+            return hits.stream()
+                    .map(hit -> documentsById.get(hit.getDocumentId()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
         if (caseId == null) {
             return documentRepository.searchAllDocuments(searchTerm);
         }
         return documentRepository.searchInCaseDocuments(caseId, searchTerm);
     }
 
+    /**
+     * Búsqueda full-text con ranking y resaltado (por caso o global)
+     */
+    @Transactional(readOnly = true)
+    public List<DocumentSearchHitDTO> searchDocumentsRanked(Long caseId, String searchTerm, int limit) {
+        if (!documentSearchIndexService.isAvailable()) {
+            // Sin índice: resultados de la búsqueda LIKE, sin ranking ni resaltado
+            return searchDocuments(caseId, searchTerm).stream()
+                    .limit(limit)
+                    .map(document -> DocumentSearchHitDTO.builder()
+                            .documentId(document.getId())
+                            .caseId(document.getLegalCase() != null ? document.getLegalCase().getId() : null)
+                            .document(DocumentResponseDTO.fromDocument(document))
+                            .build())
+                    .collect(Collectors.toList());
+        }
+
+        List<DocumentSearchHitDTO> hits = queryIndex(caseId, searchTerm, Math.min(limit, maxSearchResults));
+        Map<Long, Document> documentsById = findActiveDocumentsById(hits);
+
+        List<DocumentSearchHitDTO> results = new ArrayList<>();
+        for (DocumentSearchHitDTO hit : hits) {
+            Document document = documentsById.get(hit.getDocumentId());
+            if (document != null) {
+                hit.setDocument(DocumentResponseDTO.fromDocument(document));
+                results.add(hit);
+            }
+        }
+        return results;
+    }
+
+    private List<DocumentSearchHitDTO> queryIndex(Long caseId, String searchTerm, int limit) {
+        try {
+            return documentSearchIndexService.search(caseId, searchTerm, limit);
+        } catch (IOException e) {
+            throw new RuntimeException("Error consultando el índice de búsqueda: " + e.getMessage(), e);
+        }
+    }
+
+    // Una sola consulta para hidratar los documentos de la página de resultados
+    private Map<Long, Document> findActiveDocumentsById(List<DocumentSearchHitDTO> hits) {
+        return documentRepository.findAllById(
+                        hits.stream().map(DocumentSearchHitDTO::getDocumentId).collect(Collectors.toList()))
+                .stream()
+                .filter(Document::getIsActive)
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+    }
+
     /**
      * Buscar documentos por tipo de archivo (flexible)
      */
@@ -335,6 +620,137 @@ public class DocumentService {
                 .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
     }
 
+    // ==========================================
+    // VERSIONADO
+    // ==========================================
+
+    /**
+     * Subir una nueva revisión de un documento existente (versión N+1 enlazada a la anterior).
+     * El contenido se incorpora al almacén de chunks deduplicado y pasa a ser el blob vigente del documento.
+     */
+    public Document uploadNewVersion(Long documentId, Long userId, MultipartFile file, String changeNote,
+                                     HttpServletRequest request) throws IOException {
+        if (!documentVersionService.isEnabled()) {
+            throw new RuntimeException("El versionado de documentos está deshabilitado");
+        }
+
+        validateFile(file);
+        String mimeType = detectContentType(file);
+
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
+        if (!Boolean.TRUE.equals(document.getIsActive())) {
+            throw new RuntimeException("El documento no está disponible");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Usuario no encontrado: " + userId);
+        }
+        if (document.isEncrypted() || documentEncryptionService.requiresEncryption(document.getCategory())) {
+            // El almacén de chunks del historial no está cifrado: no se versionan documentos sensibles
+            throw new RuntimeException("El versionado no está disponible para documentos cifrados");
+        }
+
+        // El contenido idéntico se rechaza antes de escribir nada en el almacén de chunks
+        String fileHash = calculateFileHash(file);
+        if (fileHash.equals(document.getFileHash())) {
+            throw new RuntimeException("La nueva versión es idéntica a la versión vigente");
+        }
+
+        DocumentVersion previousVersion = documentVersionService.ensureBaselineVersion(document);
+        if (fileHash.equals(previousVersion.getFileHash())) {
+            throw new RuntimeException("La nueva versión es idéntica a la versión vigente");
+        }
+
+        DocumentVersion newVersion;
+        try (InputStream in = file.getInputStream()) {
+            newVersion = documentVersionService.storeVersion(documentId, previousVersion.getVersionNumber() + 1,
+                    previousVersion.getId(), file.getOriginalFilename(), mimeType, userId, changeNote, in);
+        }
+
+        // La versión vigente se materializa como blob normal para descargas, renditions e indexación
+        String blobName = generateUniqueBlobName(file.getOriginalFilename());
+        String containerName = getContainerForFileType(getFileExtension(file.getOriginalFilename()));
+        String blobUrl;
+        try (InputStream in = file.getInputStream()) {
+            blobUrl = documentStorage.put(containerName, blobName, in, file.getSize(), mimeType,
+                    "attachment; filename=\"" + file.getOriginalFilename() + "\"");
+        }
+        deleteBlobOnRollback(containerName, blobName);
+
+        List<String> replacedBlobs = new ArrayList<>();
+        replacedBlobs.add(document.getBlobName());
+        if (document.getThumbnailBlobName() != null) replacedBlobs.add(document.getThumbnailBlobName());
+        if (document.getPreviewBlobName() != null) replacedBlobs.add(document.getPreviewBlobName());
+        String replacedContainer = document.getContainerName();
+
+        documentStatisticsService.recordRemoved(document);
+
+        document.setFileName(generateSafeFileName(file.getOriginalFilename()));
+        document.setOriginalFileName(file.getOriginalFilename());
+        document.setFileType(getFileExtension(file.getOriginalFilename()).toUpperCase());
+        document.setMimeType(mimeType);
+        document.setFileSize(file.getSize());
+        document.setBlobUrl(blobUrl);
+        document.setContainerName(containerName);
+        document.setBlobName(blobName);
+        document.setFileHash(newVersion.getFileHash());
+        document.setVersion(newVersion.getVersionNumber());
+        document.setThumbnailBlobName(null);
+        document.setPreviewBlobName(null);
+
+        boolean quarantined = documentScanService.quarantine(document);
+        Document savedDocument = documentRepository.save(document);
+        documentStatisticsService.recordAdded(savedDocument);
+        if (!quarantined) {
+            documentRenditionService.enqueue(savedDocument);
+            eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangedEvent.ChangeType.UPDATED));
+        }
+
+        // El blob anterior ya está en el almacén de chunks: se elimina solo si la transacción confirma
+        deleteBlobsAfterCommit(replacedContainer, replacedBlobs);
+
+        log.info("Nueva versión de documento: ID={}, Versión={}, Usuario={}",
+                documentId, newVersion.getVersionNumber(), userId);
+        return savedDocument;
+    }
+
+    /**
+     * Historial de versiones de un documento
+     */
+    @Transactional(readOnly = true)
+    public List<DocumentVersion> getVersionHistory(Long documentId) {
+        if (!documentRepository.existsById(documentId)) {
+            throw new RuntimeException("Documento no encontrado: " + documentId);
+        }
+        return documentVersionService.getHistory(documentId);
+    }
+
+    /**
+     * Validar la descarga de una versión concreta
+     */
+    @Transactional(readOnly = true)
+    public DocumentVersion prepareVersionDownload(Long documentId, Integer versionNumber, Long userId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
+        if (!document.getIsActive()) {
+            throw new RuntimeException("El documento no está disponible");
+        }
+        requireReleased(document);
+
+        DocumentVersion version = documentVersionService.getVersion(documentId, versionNumber);
+        documentAccessCounterService.recordAccess(documentId);
+        log.debug("Descarga de versión: documento {}, versión {}, usuario {}", documentId, versionNumber, userId);
+        return version;
+    }
+
+    /**
+     * Reconstruir en streaming el contenido de una versión
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long transferVersionContent(DocumentVersion version, WritableByteChannel target) throws IOException {
+        return documentVersionService.transferVersion(version, target);
+    }
+
     // ==========================================
     // MÉTODOS DE GESTIÓN
     // ==========================================
@@ -351,10 +767,15 @@ public class DocumentService {
             document.setDescription(description);
         }
 
-        if (category != null) {
+        if (category != null && category != document.getCategory()) {
+            DocumentCategory previousCategory = document.getCategory();
             document.setCategory(category);
+            if (Boolean.TRUE.equals(document.getIsActive())) {
+                documentStatisticsService.recordCategoryChange(document, previousCategory);
+            }
         }
 
+        eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangedEvent.ChangeType.UPDATED));
         return documentRepository.save(document);
     }
 
@@ -368,7 +789,12 @@ public class DocumentService {
         LegalCase legalCase = legalCaseRepository.findById(caseId)
                 .orElseThrow(() -> new RuntimeException("Caso legal no encontrado: " + caseId));
 
+        Long previousCaseId = document.getLegalCase() != null ? document.getLegalCase().getId() : null;
         document.setLegalCase(legalCase);
+        if (Boolean.TRUE.equals(document.getIsActive())) {
+            documentStatisticsService.recordCaseChange(document, previousCaseId, caseId);
+        }
+        eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangedEvent.ChangeType.UPDATED));
         return documentRepository.save(document);
     }
 
@@ -379,7 +805,12 @@ public class DocumentService {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
 
+        Long previousCaseId = document.getLegalCase() != null ? document.getLegalCase().getId() : null;
         document.setLegalCase(null);
+        if (Boolean.TRUE.equals(document.getIsActive())) {
+            documentStatisticsService.recordCaseChange(document, previousCaseId, null);
+        }
+        eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangedEvent.ChangeType.UPDATED));
         return documentRepository.save(document);
     }
 
@@ -390,35 +821,24 @@ public class DocumentService {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new RuntimeException("Documento no encontrado: " + documentId));
 
+        boolean wasActive = Boolean.TRUE.equals(document.getIsActive());
         document.softDelete();
         documentRepository.save(document);
+        if (wasActive) {
+            documentStatisticsService.recordRemoved(document);
+        }
+        eventPublisher.publishEvent(new DocumentChangedEvent(documentId, DocumentChangedEvent.ChangeType.DELETED));
 
         log.info("Documento eliminado (soft delete): ID={}, Usuario={}", documentId, userId);
     }
 
     /**
-     * Obtener estadísticas de documentos (flexible)
+     * Obtener estadísticas de documentos (flexible): globales si caseId es null.
+     * Se sirven desde los contadores precalculados de document_statistics.
      */
     @Transactional(readOnly = true)
     public Map<String, Object> getDocumentStatistics(Long caseId) {
-        Map<String, Object> stats = new HashMap<>();
-
-        if (caseId == null) {
-            // Estadísticas globales
-            stats.put("totalDocuments", documentRepository.countAllActive());
-            stats.put("totalSize", documentRepository.getTotalFileSize());
-            stats.put("byCategory", documentRepository.countByCategory());
-            stats.put("byFileType", documentRepository.countByFileType());
-            stats.put("orphanedDocuments", documentRepository.findDocumentsWithoutCase().size());
-        } else {
-            // Estadísticas por caso
-            stats.put("totalDocuments", documentRepository.countActiveByCaseId(caseId));
-            stats.put("totalSize", documentRepository.getTotalFileSizeByCaseId(caseId));
-            stats.put("byCategory", documentRepository.countByCategoryAndCaseId(caseId));
-            stats.put("byFileType", documentRepository.countByFileTypeAndCaseId(caseId));
-        }
-
-        return stats;
+        return documentStatisticsService.getStatistics(caseId);
     }
 
     // ==========================================
@@ -435,7 +855,20 @@ public class DocumentService {
                     (maxFileSize / 1024 / 1024) + "MB");
         }
 
-        String extension = getFileExtension(file.getOriginalFilename()).toUpperCase();
+        validateFileType(file.getOriginalFilename());
+    }
+
+    /**
+     * Tipo real del archivo según su cabecera (no el Content-Type del cliente); rechaza extensiones falsas
+     */
+    private String detectContentType(MultipartFile file) throws IOException {
+        try (InputStream in = documentContentSniffer.prepare(file.getInputStream())) {
+            return documentContentSniffer.detectAndValidate(in, file.getOriginalFilename());
+        }
+    }
+
+    private void validateFileType(String originalFileName) {
+        String extension = getFileExtension(originalFileName).toUpperCase();
         List<String> allowedTypesList = Arrays.asList(allowedTypes.split(","));
 
         if (!allowedTypesList.contains(extension)) {
@@ -447,12 +880,75 @@ public class DocumentService {
     private void validateCaseCapacity(Long caseId) {
         if (caseId == null) return; // No validar si no hay caso
 
-        long currentCount = documentRepository.countActiveByCaseId(caseId);
+        long currentCount = documentStatisticsService.getActiveCount(caseId);
         if (currentCount >= maxFilesPerCase) {
             throw new RuntimeException("Se ha alcanzado el límite máximo de archivos por caso: " + maxFilesPerCase);
         }
     }
 
+    private void validateNotDuplicate(Long caseId, String fileHash, String originalFileName) {
+        Optional<Document> existingDoc = caseId != null ?
+                documentRepository.findByCaseIdAndFileHash(caseId, fileHash) :
+                documentRepository.findByFileHash(fileHash);
+
+        if (existingDoc.isPresent()) {
+            log.warn("Archivo duplicado detectado: {}", originalFileName);
+            throw new RuntimeException("El archivo ya existe" + (caseId != null ? " en este caso" : " en el sistema"));
+        }
+    }
+
+    /**
+     * Guardar un documento nuevo y disparar sus efectos: renditions, estadísticas e indexación
+     */
+    private Document persistNewDocument(Document document) {
+        boolean quarantined = documentScanService.quarantine(document);
+        Document savedDocument = documentRepository.save(document);
+        documentStatisticsService.recordAdded(savedDocument);
+        // En cuarentena, renditions e indexación esperan a que el análisis libere el contenido
+        if (!quarantined) {
+            documentRenditionService.enqueue(savedDocument);
+            eventPublisher.publishEvent(new DocumentChangedEvent(savedDocument.getId(), DocumentChangedEvent.ChangeType.UPLOADED));
+        }
+        return savedDocument;
+    }
+
+    private void requireReleased(Document document) {
+        if (document.isQuarantined()) {
+            throw new RuntimeException(document.getScanStatus() == DocumentScanStatus.INFECTED ?
+                    "El documento está bloqueado: el análisis antimalware detectó una amenaza" :
+                    "El documento está en cuarentena pendiente de análisis antimalware");
+        }
+    }
+
+    private void deleteBlobsAfterCommit(String containerName, List<String> blobNames) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String blobName : blobNames) {
+                    try {
+                        documentStorage.delete(containerName, blobName);
+                    } catch (IOException e) {
+                        log.warn("No se pudo eliminar el blob reemplazado {}/{}: {}", containerName, blobName, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private void deleteBlobOnRollback(String containerName, String blobName) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) return;
+                try {
+                    documentStorage.delete(containerName, blobName);
+                } catch (IOException e) {
+                    log.warn("No se pudo eliminar el blob revertido {}/{}: {}", containerName, blobName, e.getMessage());
+                }
+            }
+        });
+    }
+
     private String generateUniqueBlobName(String originalFileName) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String uuid = UUID.randomUUID().toString().substring(0, 8);
@@ -478,33 +974,12 @@ public class DocumentService {
         return documentsContainer;
     }
 
-    private String calculateFileHash(byte[] fileBytes) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(fileBytes);
-            return Base64.getEncoder().encodeToString(hash);
+    private String calculateFileHash(MultipartFile file) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(file.getInputStream(), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return Base64.getEncoder().encodeToString(in.getMessageDigest().digest());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Error calculando hash del archivo", e);
         }
     }
-
-    private String getClientIpAddress(HttpServletRequest request) {
-        if (request == null) return null;
-
-        String[] headerNames = {
-                "X-Forwarded-For", "X-Real-IP", "Proxy-Client-IP",
-                "WL-Proxy-Client-IP", "HTTP_X_FORWARDED_FOR", "HTTP_X_FORWARDED",
-                "HTTP_X_CLUSTER_CLIENT_IP", "HTTP_CLIENT_IP", "HTTP_FORWARDED_FOR",
-                "HTTP_FORWARDED", "HTTP_VIA", "REMOTE_ADDR"
-        };
-
-        for (String header : headerNames) {
-            String ip = request.getHeader(header);
-            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
-                return ip.split(",")[0].trim();
-            }
-        }
-
-        return request.getRemoteAddr();
-    }
 }
\ No newline at end of file
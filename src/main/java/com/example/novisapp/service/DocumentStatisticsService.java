@@ -0,0 +1,320 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentCategory;
+import com.example.novisapp.entity.DocumentStatistic;
+import com.example.novisapp.repository.DocumentRepository;
+import com.example.novisapp.repository.DocumentStatisticRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.example.novisapp.entity.DocumentStatistic.*;
+
+/**
+ * Estadísticas documentales precalculadas por caso y globales.
+ * - Se actualizan con deltas atómicos dentro de la transacción que modifica el documento
+ * - Las lecturas (endpoint de estadísticas y control de capacidad) son una sola consulta por ámbito
+ * - Un job de reconciliación las recalcula desde cero con una única consulta agrupada
+ * Cada operación aplica sus deltas ordenados por (ámbito, dimensión, clave): dos transacciones que tocan
+ * las mismas filas las bloquean en el mismo orden y no se interbloquean (p. ej. movimientos A→B y B→A).
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentStatisticsService {
+
+    private static final String NO_KEY = "";
+
+    private static final Comparator<StatisticDelta> LOCK_ORDER = Comparator
+            .comparingLong(StatisticDelta::scopeId)
+            .thenComparing(StatisticDelta::dimension)
+            .thenComparing(StatisticDelta::dimKey);
+
+    private final DocumentStatisticRepository statisticRepository;
+    private final DocumentRepository documentRepository;
+
+    // ==========================================
+    // ACTUALIZACIÓN INCREMENTAL
+    // ==========================================
+
+    /**
+     * Documento activo nuevo (upload)
+     */
+    public void recordAdded(Document document) {
+        applyDocumentDelta(caseIdOf(document), document, 1);
+    }
+
+    /**
+     * Documento activo eliminado (soft delete)
+     */
+    public void recordRemoved(Document document) {
+        applyDocumentDelta(caseIdOf(document), document, -1);
+    }
+
+    /**
+     * Documento movido entre casos (asignación / desasignación). Los totales globales no cambian.
+     */
+    public void recordCaseChange(Document document, Long previousCaseId, Long newCaseId) {
+        if (Objects.equals(previousCaseId, newCaseId)) return;
+
+        long size = sizeOf(document);
+        List<StatisticDelta> deltas = new ArrayList<>();
+        if (previousCaseId != null) {
+            addScopeDeltas(deltas, previousCaseId, document, -1, -size);
+        }
+        if (newCaseId != null) {
+            addScopeDeltas(deltas, newCaseId, document, 1, size);
+        }
+
+        long orphanDelta = (previousCaseId == null ? -1 : 0) + (newCaseId == null ? 1 : 0);
+        if (orphanDelta != 0) {
+            deltas.add(new StatisticDelta(GLOBAL_SCOPE, DIMENSION_ORPHAN, NO_KEY, orphanDelta, orphanDelta * size));
+        }
+        applyInLockOrder(deltas);
+    }
+
+    /**
+     * Cambio de categoría de un documento activo
+     */
+    public void recordCategoryChange(Document document, DocumentCategory previousCategory) {
+        if (previousCategory == document.getCategory()) return;
+
+        long size = sizeOf(document);
+        Long caseId = caseIdOf(document);
+        List<StatisticDelta> deltas = new ArrayList<>();
+        if (caseId != null) {
+            deltas.add(new StatisticDelta(caseId, DIMENSION_CATEGORY, categoryKey(previousCategory), -1, -size));
+            deltas.add(new StatisticDelta(caseId, DIMENSION_CATEGORY, categoryKey(document.getCategory()), 1, size));
+        }
+        deltas.add(new StatisticDelta(GLOBAL_SCOPE, DIMENSION_CATEGORY, categoryKey(previousCategory), -1, -size));
+        deltas.add(new StatisticDelta(GLOBAL_SCOPE, DIMENSION_CATEGORY, categoryKey(document.getCategory()), 1, size));
+        applyInLockOrder(deltas);
+    }
+
+    // ==========================================
+    // LECTURA
+    // ==========================================
+
+    /**
+     * Número de documentos activos de un caso (control de capacidad en uploads)
+     */
+    @Transactional(readOnly = true)
+    public long getActiveCount(Long caseId) {
+        return statisticRepository.findTotalCount(caseId != null ? caseId : GLOBAL_SCOPE).orElse(0L);
+    }
+
+    /**
+     * Estadísticas de un caso, o globales si caseId es null.
+     * Mantiene el formato anterior: byCategory/byFileType como pares [clave, cantidad].
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStatistics(Long caseId) {
+        List<DocumentStatistic> rows = statisticRepository.findByScopeId(caseId != null ? caseId : GLOBAL_SCOPE);
+
+        long totalDocuments = 0;
+        long totalSize = 0;
+        long orphanedDocuments = 0;
+        List<Object[]> byCategory = new ArrayList<>();
+        List<Object[]> byFileType = new ArrayList<>();
+
+        for (DocumentStatistic row : rows) {
+            switch (row.getDimension()) {
+                case DIMENSION_TOTAL -> {
+                    totalDocuments = row.getDocumentCount();
+                    totalSize = row.getTotalBytes();
+                }
+                case DIMENSION_ORPHAN -> orphanedDocuments = row.getDocumentCount();
+                case DIMENSION_CATEGORY -> {
+                    if (row.getDocumentCount() > 0) {
+                        byCategory.add(new Object[]{DocumentCategory.valueOf(row.getDimKey()), row.getDocumentCount()});
+                    }
+                }
+                case DIMENSION_FILE_TYPE -> {
+                    if (row.getDocumentCount() > 0) {
+                        byFileType.add(new Object[]{row.getDimKey(), row.getDocumentCount()});
+                    }
+                }
+                default -> log.warn("Dimensión de estadística desconocida: {}", row.getDimension());
+            }
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalDocuments", totalDocuments);
+        stats.put("totalSize", totalSize);
+        stats.put("byCategory", byCategory);
+        stats.put("byFileType", byFileType);
+        if (caseId == null) {
+            stats.put("orphanedDocuments", orphanedDocuments);
+        }
+        return stats;
+    }
+
+    // ==========================================
+    // RECONCILIACIÓN
+    // ==========================================
+
+    /**
+     * Tras un despliegue con la tabla vacía, calcular los contadores al arrancar: sin ellos el control
+     * de capacidad y las estadísticas devuelven 0 hasta la reconciliación nocturna, y los borrados los
+     * dejan en negativo
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileIfEmpty() {
+        try {
+            if (statisticRepository.count() == 0) {
+                log.info("Tabla de estadísticas documentales vacía: reconciliación inicial");
+                reconcile();
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo calcular las estadísticas documentales al iniciar: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcular todas las estadísticas desde la tabla documents.
+     * Primero se bloquea la tabla de contadores en exclusiva: los uploads que ya aplicaron su delta terminan
+     * antes (y su documento entra en la agregación) y los demás quedan esperando en su MERGE hasta el commit,
+     * de modo que ningún delta se pierde ni se cuenta dos veces.
+     */
+    @Scheduled(cron = "${novis.documents.statistics.reconcile-cron:0 30 3 * * *}")
+    public Map<String, Object> reconcile() {
+        long started = System.currentTimeMillis();
+
+        statisticRepository.lockAllStatistics();
+
+        Map<String, Long> previousCounts = new HashMap<>();
+        for (DocumentStatistic row : statisticRepository.findAll()) {
+            previousCounts.put(rowKey(row.getScopeId(), row.getDimension(), row.getDimKey()), row.getDocumentCount());
+        }
+        statisticRepository.deleteAllStatistics();
+
+        Map<String, DocumentStatistic> rebuilt = new HashMap<>();
+        for (Object[] group : documentRepository.aggregateActiveByCaseCategoryAndFileType()) {
+            Long caseId = (Long) group[0];
+            String category = categoryKey((DocumentCategory) group[1]);
+            String fileType = fileTypeKey((String) group[2]);
+            long count = ((Number) group[3]).longValue();
+            long bytes = ((Number) group[4]).longValue();
+
+            if (caseId != null) {
+                accumulate(rebuilt, caseId, DIMENSION_TOTAL, NO_KEY, count, bytes);
+                accumulate(rebuilt, caseId, DIMENSION_CATEGORY, category, count, bytes);
+                accumulate(rebuilt, caseId, DIMENSION_FILE_TYPE, fileType, count, bytes);
+            } else {
+                accumulate(rebuilt, GLOBAL_SCOPE, DIMENSION_ORPHAN, NO_KEY, count, bytes);
+            }
+            accumulate(rebuilt, GLOBAL_SCOPE, DIMENSION_TOTAL, NO_KEY, count, bytes);
+            accumulate(rebuilt, GLOBAL_SCOPE, DIMENSION_CATEGORY, category, count, bytes);
+            accumulate(rebuilt, GLOBAL_SCOPE, DIMENSION_FILE_TYPE, fileType, count, bytes);
+        }
+
+        statisticRepository.saveAll(rebuilt.values());
+
+        int drifted = 0;
+        for (Map.Entry<String, DocumentStatistic> entry : rebuilt.entrySet()) {
+            if (!entry.getValue().getDocumentCount().equals(previousCounts.remove(entry.getKey()))) {
+                drifted++;
+            }
+        }
+        for (Long staleCount : previousCounts.values()) {
+            if (staleCount != 0) drifted++;
+        }
+
+        long elapsed = System.currentTimeMillis() - started;
+        if (drifted > 0) {
+            log.warn("Reconciliación de estadísticas documentales: {} contadores corregidos ({} ms)", drifted, elapsed);
+        } else {
+            log.info("Reconciliación de estadísticas documentales sin diferencias: {} contadores ({} ms)",
+                    rebuilt.size(), elapsed);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("counters", rebuilt.size());
+        result.put("corrected", drifted);
+        result.put("elapsedMs", elapsed);
+        return result;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void applyDocumentDelta(Long caseId, Document document, int sign) {
+        long bytes = sign * sizeOf(document);
+        List<StatisticDelta> deltas = new ArrayList<>();
+        if (caseId != null) {
+            addScopeDeltas(deltas, caseId, document, sign, bytes);
+        } else {
+            deltas.add(new StatisticDelta(GLOBAL_SCOPE, DIMENSION_ORPHAN, NO_KEY, sign, bytes));
+        }
+        addScopeDeltas(deltas, GLOBAL_SCOPE, document, sign, bytes);
+        applyInLockOrder(deltas);
+    }
+
+    private void addScopeDeltas(List<StatisticDelta> deltas, long scopeId, Document document,
+                                long countDelta, long bytesDelta) {
+        deltas.add(new StatisticDelta(scopeId, DIMENSION_TOTAL, NO_KEY, countDelta, bytesDelta));
+        deltas.add(new StatisticDelta(scopeId, DIMENSION_CATEGORY, categoryKey(document.getCategory()), countDelta, bytesDelta));
+        deltas.add(new StatisticDelta(scopeId, DIMENSION_FILE_TYPE, fileTypeKey(document.getFileType()), countDelta, bytesDelta));
+    }
+
+    /**
+     * MERGE ... HOLDLOCK bloquea cada fila hasta el final de la transacción:
+     * el orden de aplicación es el orden de adquisición de los bloqueos
+     */
+    private void applyInLockOrder(List<StatisticDelta> deltas) {
+        deltas.sort(LOCK_ORDER);
+        for (StatisticDelta delta : deltas) {
+            statisticRepository.applyDelta(delta.scopeId(), delta.dimension(), delta.dimKey(),
+                    delta.countDelta(), delta.bytesDelta());
+        }
+    }
+
+    private void accumulate(Map<String, DocumentStatistic> rows, Long scopeId, String dimension, String dimKey,
+                            long count, long bytes) {
+        DocumentStatistic row = rows.computeIfAbsent(rowKey(scopeId, dimension, dimKey), key -> DocumentStatistic.builder()
+                .scopeId(scopeId)
+                .dimension(dimension)
+                .dimKey(dimKey)
+                .updatedAt(LocalDateTime.now())
+                .build());
+        row.setDocumentCount(row.getDocumentCount() + count);
+        row.setTotalBytes(row.getTotalBytes() + bytes);
+    }
+
+    private String rowKey(Long scopeId, String dimension, String dimKey) {
+        return scopeId + "|" + dimension + "|" + dimKey;
+    }
+
+    private Long caseIdOf(Document document) {
+        return document.getLegalCase() != null ? document.getLegalCase().getId() : null;
+    }
+
+    private long sizeOf(Document document) {
+        return document.getFileSize() != null ? document.getFileSize() : 0L;
+    }
+
+    private String categoryKey(DocumentCategory category) {
+        return (category != null ? category : DocumentCategory.OTRO).name();
+    }
+
+    private String fileTypeKey(String fileType) {
+        return fileType != null ? fileType : NO_KEY;
+    }
+
+    private record StatisticDelta(long scopeId, String dimension, String dimKey, long countDelta, long bytesDelta) {}
+}
@@ -0,0 +1,101 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.StoredBlobInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+
+/**
+ * Contrato de almacenamiento para el contenido binario de los documentos.
+ * El backend se selecciona con la propiedad novis.storage.backend (azure | local)
+ * para poder ejecutar el pipeline completo de upload/download sin Azure.
+ */
+public interface DocumentStorage {
+
+    /**
+     * Nombre del backend activo (azure, local)
+     */
+    String getBackendName();
+
+    /**
+     * Guardar un objeto completo a partir de un stream. Devuelve la URL/ubicación del objeto.
+     */
+    String put(String containerName, String blobName, InputStream data, long length,
+               String contentType, String contentDisposition) throws IOException;
+
+    /**
+     * Subir un bloque de una carga por partes. Los bloques no son visibles hasta commitBlocks
+     * y reenviar el mismo índice reemplaza el bloque anterior (reintento de un chunk).
+     */
+    void stageBlock(String containerName, String blobName, int blockIndex, long offset,
+                    InputStream data, long length) throws IOException;
+
+    /**
+     * Confirmar los bloques 0..blockCount-1 como contenido del objeto. Devuelve la URL/ubicación del objeto.
+     */
+    String commitBlocks(String containerName, String blobName, int blockCount, long totalLength,
+                        String contentType, String contentDisposition) throws IOException;
+
+    /**
+     * Descartar los bloques pendientes de una carga por partes abandonada
+     */
+    void discardBlocks(String containerName, String blobName) throws IOException;
+
+    /**
+     * Abrir un stream sobre el objeto completo
+     */
+    default InputStream get(String containerName, String blobName) throws IOException {
+        return get(containerName, blobName, 0, -1);
+    }
+
+    /**
+     * Abrir un stream sobre un rango del objeto. count < 0 significa "hasta el final".
+     */
+    InputStream get(String containerName, String blobName, long offset, long count) throws IOException;
+
+    /**
+     * Eliminar el objeto. Devuelve false si no existía.
+     */
+    boolean delete(String containerName, String blobName) throws IOException;
+
+    /**
+     * Verificar si el objeto existe
+     */
+    boolean exists(String containerName, String blobName) throws IOException;
+
+    /**
+     * Obtener metadatos del objeto, o null si no existe
+     */
+    StoredBlobInfo stat(String containerName, String blobName) throws IOException;
+
+    /**
+     * Generar una URL de descarga firmada y con expiración.
+     * El cliente descarga directamente del storage (SAS en Azure, handler estático en local).
+     */
+    String generateDownloadUrl(String containerName, String blobName, String fileName, Duration validity) throws IOException;
+
+    /**
+     * Copiar un rango del objeto al canal destino sin materializarlo en memoria.
+     * Las implementaciones con acceso a FileChannel lo sobreescriben con transferencia zero-copy.
+     */
+    default long transferTo(String containerName, String blobName, long offset, long count,
+                            WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        try (ReadableByteChannel source = Channels.newChannel(get(containerName, blobName, offset, count))) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return transferred;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Document;
+import com.example.novisapp.entity.DocumentVersion;
+import com.example.novisapp.entity.DocumentVersionChunk;
+import com.example.novisapp.repository.DocumentVersionChunkRepository;
+import com.example.novisapp.repository.DocumentVersionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versionado de documentos sobre un almacén de chunks deduplicado.
+ * - Cada versión se divide con chunking definido por contenido; solo los chunks nuevos se escriben en storage
+ * - La versión vigente sigue materializada como blob normal del Document (descargas, renditions, índice)
+ * - Las versiones anteriores se reconstruyen en streaming concatenando sus chunks
+ * - Un documento sin historial se incorpora al almacén (versión base) al subir su primera revisión
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentVersionService {
+
+    private static final String CHUNK_PREFIX = "chunks/";
+    private static final String CHUNK_CONTENT_TYPE = "application/octet-stream";
+
+    private static final String INSERT_CHUNK_SQL =
+            "INSERT INTO document_chunks (hash, size, created_at) SELECT ?, ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM document_chunks WITH (UPDLOCK, HOLDLOCK) WHERE hash = ?)";
+
+    // El bloqueo de la fila impide que la recolección de chunks lo elimine antes de que esta versión lo referencie
+    private static final String LOCK_CHUNK_SQL =
+            "SELECT COUNT(*) FROM document_chunks WITH (UPDLOCK, HOLDLOCK) WHERE hash = ?";
+
+    private static final String DELETE_UNREFERENCED_CHUNK_SQL =
+            "DELETE FROM document_chunks WHERE hash = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM document_version_chunks vc WHERE vc.chunk_hash = ?)";
+
+    private static final String INSERT_VERSION_CHUNK_SQL =
+            "INSERT INTO document_version_chunks (version_id, sequence, chunk_hash, chunk_offset, chunk_length) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final DocumentVersionRepository versionRepository;
+    private final DocumentVersionChunkRepository versionChunkRepository;
+    private final DocumentStorage documentStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${novis.documents.enable-versioning:true}")
+    private boolean versioningEnabled;
+
+    @Value("${novis.documents.versioning.chunk-container:${azure.storage.container.documents:novis-documents}}")
+    private String chunkContainer;
+
+    @Value("${novis.documents.versioning.min-chunk-size:262144}") // 256KB
+    private int minChunkSize;
+
+    @Value("${novis.documents.versioning.avg-chunk-size:1048576}") // 1MB
+    private int avgChunkSize;
+
+    @Value("${novis.documents.versioning.max-chunk-size:4194304}") // 4MB
+    private int maxChunkSize;
+
+    private ContentDefinedChunker chunker;
+
+    @PostConstruct
+    public void init() {
+        chunker = new ContentDefinedChunker(minChunkSize, avgChunkSize, maxChunkSize);
+    }
+
+    public boolean isEnabled() {
+        return versioningEnabled;
+    }
+
+    /**
+     * Incorporar el contenido vigente del documento como versión base si aún no tiene historial
+     */
+    public DocumentVersion ensureBaselineVersion(Document document) throws IOException {
+        List<DocumentVersion> history = versionRepository.findHistory(document.getId());
+        if (!history.isEmpty()) {
+            return history.get(0);
+        }
+
+        log.debug("Creando versión base del documento {} en el almacén de chunks", document.getId());
+        try (InputStream in = documentStorage.get(document.getContainerName(), document.getBlobName())) {
+            return storeVersion(document.getId(), document.getVersion(), null, document.getOriginalFileName(),
+                    document.getMimeType(), document.getUploadedBy() != null ? document.getUploadedBy().getId() : null,
+                    null, in);
+        }
+    }
+
+    /**
+     * Guardar una nueva versión a partir de su contenido: chunking, deduplicación y composición
+     */
+    public DocumentVersion storeVersion(Long documentId, Integer versionNumber, Long previousVersionId,
+                                        String originalFileName, String mimeType, Long uploadedById,
+                                        String changeNote, InputStream content) throws IOException {
+        MessageDigest fileDigest = newDigest();
+        LocalDateTime now = LocalDateTime.now();
+        List<ChunkRef> chunks = new ArrayList<>();
+        List<String> writtenChunks = new ArrayList<>();
+        long[] totals = new long[2]; // [bytes del archivo, bytes nuevos escritos]
+
+        // Registrada antes de escribir: si la transacción se revierte, las filas de los chunks nuevos
+        // desaparecen y sus blobs quedarían huérfanos
+        deleteChunksOnRollback(writtenChunks);
+
+        try (DigestInputStream in = new DigestInputStream(content, fileDigest)) {
+            chunker.split(in, (buffer, offset, length) -> {
+                String chunkHash = sha256Hex(buffer, offset, length);
+                if (!isChunkStored(chunkHash)) {
+                    writtenChunks.add(chunkHash);
+                    documentStorage.put(chunkContainer, chunkBlobName(chunkHash),
+                            new ByteArrayInputStream(buffer, offset, length), length, CHUNK_CONTENT_TYPE, null);
+                    jdbcTemplate.update(INSERT_CHUNK_SQL, chunkHash, length, Timestamp.valueOf(now), chunkHash);
+                    totals[1] += length;
+                }
+                chunks.add(new ChunkRef(chunkHash, totals[0], length));
+                totals[0] += length;
+            });
+        }
+
+        DocumentVersion version = versionRepository.save(DocumentVersion.builder()
+                .documentId(documentId)
+                .versionNumber(versionNumber)
+                .previousVersionId(previousVersionId)
+                .originalFileName(originalFileName)
+                .mimeType(mimeType)
+                .fileSize(totals[0])
+                .fileHash(Base64.getEncoder().encodeToString(fileDigest.digest()))
+                .chunkCount(chunks.size())
+                .storedBytes(totals[1])
+                .uploadedById(uploadedById)
+                .changeNote(changeNote)
+                .build());
+
+        List<Object[]> rows = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            ChunkRef chunk = chunks.get(i);
+            rows.add(new Object[]{version.getId(), i, chunk.getHash(), chunk.getOffset(), chunk.getLength()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_VERSION_CHUNK_SQL, rows);
+
+        log.info("Versión {} del documento {} almacenada: {} chunks, {} de {} bytes nuevos",
+                versionNumber, documentId, chunks.size(), totals[1], totals[0]);
+        return version;
+    }
+
+    /**
+     * Historial de versiones (una sola consulta indexada)
+     */
+    @Transactional(readOnly = true)
+    public List<DocumentVersion> getHistory(Long documentId) {
+        return versionRepository.findHistory(documentId);
+    }
+
+    @Transactional(readOnly = true)
+    public DocumentVersion getVersion(Long documentId, Integer versionNumber) {
+        return versionRepository.findByDocumentIdAndVersionNumber(documentId, versionNumber)
+                .orElseThrow(() -> new RuntimeException("Versión " + versionNumber + " no encontrada para el documento " + documentId));
+    }
+
+    /**
+     * Reconstruir una versión en streaming, concatenando sus chunks en orden
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long transferVersion(DocumentVersion version, WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        for (DocumentVersionChunk chunk : versionChunkRepository.findByVersionIdOrdered(version.getId())) {
+            transferred += documentStorage.transferTo(chunkContainer, chunkBlobName(chunk.getChunkHash()), 0, -1, target);
+        }
+        return transferred;
+    }
+
+    /**
+     * Eliminar el historial de un documento (purga por retención).
+     * Devuelve los hashes de chunks que pudieron quedar sin referencias.
+     */
+    public Set<String> deleteVersionData(Long documentId) {
+        Set<String> chunkHashes = new LinkedHashSet<>();
+        for (DocumentVersion version : versionRepository.findHistory(documentId)) {
+            for (DocumentVersionChunk chunk : versionChunkRepository.findByVersionIdOrdered(version.getId())) {
+                chunkHashes.add(chunk.getChunkHash());
+            }
+            jdbcTemplate.update("DELETE FROM document_version_chunks WHERE version_id = ?", version.getId());
+            versionRepository.delete(version);
+        }
+        return chunkHashes;
+    }
+
+    /**
+     * Recolectar los chunks candidatos que ya no referencia ninguna versión. Devuelve los bytes liberados.
+     * Fase 1: borrar la fila si no tiene referencias. Fase 2: borrar el blob solo si, con la fila bloqueada,
+     * ninguna versión concurrente lo ha vuelto a crear.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long collectUnreferencedChunks(Collection<String> candidateHashes) {
+        long reclaimedBytes = 0;
+        for (String chunkHash : candidateHashes) {
+            Integer size = transactionTemplate.execute(status -> {
+                List<Integer> sizes = jdbcTemplate.queryForList(
+                        "SELECT size FROM document_chunks WITH (UPDLOCK, HOLDLOCK) WHERE hash = ?", Integer.class, chunkHash);
+                if (sizes.isEmpty()) return null;
+                return jdbcTemplate.update(DELETE_UNREFERENCED_CHUNK_SQL, chunkHash, chunkHash) == 1 ? sizes.get(0) : null;
+            });
+            if (size == null) continue;
+
+            Boolean deleted = transactionTemplate.execute(status -> {
+                if (isChunkStored(chunkHash)) return false;
+                try {
+                    return documentStorage.delete(chunkContainer, chunkBlobName(chunkHash));
+                } catch (IOException e) {
+                    log.warn("No se pudo eliminar el chunk {}: {}", chunkHash, e.getMessage());
+                    return false;
+                }
+            });
+            if (Boolean.TRUE.equals(deleted)) {
+                reclaimedBytes += size;
+            }
+        }
+        return reclaimedBytes;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    /**
+     * Tras un rollback, eliminar los blobs de los chunks escritos en la transacción.
+     * Cada blob se borra con la fila bloqueada y solo si ninguna versión concurrente ha vuelto a registrar el chunk.
+     */
+    private void deleteChunksOnRollback(List<String> writtenChunks) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK || writtenChunks.isEmpty()) return;
+
+                TransactionTemplate cleanup = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                cleanup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                for (String chunkHash : writtenChunks) {
+                    try {
+                        cleanup.executeWithoutResult(tx -> {
+                            if (isChunkStored(chunkHash)) return;
+                            try {
+                                documentStorage.delete(chunkContainer, chunkBlobName(chunkHash));
+                            } catch (IOException e) {
+                                log.warn("No se pudo eliminar el chunk revertido {}: {}", chunkHash, e.getMessage());
+                            }
+                        });
+                    } catch (Exception e) {
+                        log.warn("Error limpiando el chunk revertido {}: {}", chunkHash, e.getMessage());
+                    }
+                }
+                log.info("Chunks eliminados tras rollback de versión: {}", writtenChunks.size());
+            }
+        });
+    }
+
+    private boolean isChunkStored(String chunkHash) {
+        Integer count = jdbcTemplate.queryForObject(LOCK_CHUNK_SQL, Integer.class, chunkHash);
+        return count != null && count > 0;
+    }
+
+    private String chunkBlobName(String chunkHash) {
+        return CHUNK_PREFIX + chunkHash.substring(0, 2) + "/" + chunkHash;
+    }
+
+    private String sha256Hex(byte[] buffer, int offset, int length) {
+        MessageDigest digest = newDigest();
+        digest.update(buffer, offset, length);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class ChunkRef {
+        private String hash;
+        private long offset;
+        private int length;
+    }
+}
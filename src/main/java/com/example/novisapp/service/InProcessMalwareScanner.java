@@ -0,0 +1,60 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.MalwareScanVerdict;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Analizador en proceso para desarrollo y pruebas: solo reconoce la firma de prueba EICAR.
+ * Permite ejercitar el ciclo cuarentena → veredicto → liberación/bloqueo sin un clamd disponible.
+ */
+@Component
+@ConditionalOnProperty(name = "novis.documents.scanner.type", havingValue = "in-process", matchIfMissing = true)
+@Slf4j
+public class InProcessMalwareScanner implements MalwareScanner {
+
+    public static final String EICAR_SIGNATURE = "Eicar-Test-Signature";
+
+    private static final byte[] EICAR = ("X5O!P%@AP[4\\PZX54(P^)7CC)7}$EICAR-STANDARD-ANTIVIRUS-TEST-FILE!$H+H*")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public String getName() {
+        return "in-process";
+    }
+
+    @Override
+    public MalwareScanVerdict scan(InputStream content) throws IOException {
+        // Búsqueda en streaming con buffer fijo: se conserva el final de cada bloque por si la firma queda partida
+        byte[] buffer = new byte[64 * 1024];
+        int carried = 0;
+        long scannedBytes = 0;
+        int read;
+        while ((read = content.read(buffer, carried, buffer.length - carried)) > 0) {
+            scannedBytes += read;
+            int filled = carried + read;
+            if (indexOf(buffer, filled) >= 0) {
+                return MalwareScanVerdict.infected(EICAR_SIGNATURE, scannedBytes);
+            }
+            carried = Math.min(EICAR.length - 1, filled);
+            System.arraycopy(buffer, filled - carried, buffer, 0, carried);
+        }
+        return MalwareScanVerdict.clean(scannedBytes);
+    }
+
+    private int indexOf(byte[] data, int length) {
+        outer:
+        for (int i = 0; i <= length - EICAR.length; i++) {
+            for (int j = 0; j < EICAR.length; j++) {
+                if (data[i + j] != EICAR[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.novisapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Collection;
+
+/**
+ * Evento publicado cuando cambia la disponibilidad de abogados: carga de trabajo (asignación o remoción),
+ * activación, rol, especialidad o país. El índice de disponibilidad lo recibe tras el commit.
+ */
+@Data
+@AllArgsConstructor
+public class LawyerAvailabilityChangedEvent {
+
+    private Collection<Long> userIds;
+}
@@ -0,0 +1,315 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.Country;
+import com.example.novisapp.entity.LegalSpecialty;
+import com.example.novisapp.entity.User;
+import com.example.novisapp.entity.UserRole;
+import com.example.novisapp.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice en memoria de abogados asignables, para elegir equipos sin consultar la base de datos.
+ * - Cubetas por especialidad y país (EnumMap), cada una ordenada por carga de trabajo:
+ *   los k menos cargados se obtienen en O(log n + k)
+ * - Se usa un TreeSet ordenado (carga, id) como cola de prioridad: además del mínimo permite
+ *   retirar y reinsertar un abogado en O(log n) cuando cambia su carga
+ * - Se actualiza tras el commit de asignaciones, remociones y cambios de usuario; una reconstrucción
+ *   periódica recoge los cambios hechos en otros nodos
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LawyerAvailabilityIndex {
+
+    private static final Set<UserRole> ASSIGNABLE_ROLES = EnumSet.of(UserRole.LAWYER, UserRole.MANAGING_PARTNER);
+
+    private static final Comparator<IndexedLawyer> BY_WORKLOAD = Comparator
+            .comparingInt((IndexedLawyer lawyer) -> lawyer.workload)
+            .thenComparing(lawyer -> lawyer.id);
+
+    // Nombre visible sin el prefijo genérico ("Derecho Civil" → "civil"), sin tildes
+    private static final Map<LegalSpecialty, String> CONTENT_KEYS = new EnumMap<>(LegalSpecialty.class);
+
+    static {
+        for (LegalSpecialty specialty : LegalSpecialty.values()) {
+            CONTENT_KEYS.put(specialty, normalize(specialty.getDisplayName()).replaceFirst("^derecho (de la |del |de )?", ""));
+        }
+    }
+
+    private final UserRepository userRepository;
+
+    @Value("${novis.teams.max-cases-per-lawyer:10}")
+    private int maxCasesPerLawyer;
+
+    private final EnumMap<LegalSpecialty, EnumMap<Country, TreeSet<IndexedLawyer>>> buckets =
+            new EnumMap<>(LegalSpecialty.class);
+    private final TreeSet<IndexedLawyer> allLawyers = new TreeSet<>(BY_WORKLOAD);
+    private final Map<Long, IndexedLawyer> lawyersById = new HashMap<>();
+
+    private final Set<String> unrecognizedTokens = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder selections = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        try {
+            rebuild();
+            log.info("Índice de disponibilidad cargado: {} abogados", lawyersById.size());
+        } catch (Exception e) {
+            log.warn("No se pudo cargar el índice de disponibilidad al iniciar: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Los abogados menos cargados con capacidad libre para una especialidad.
+     * Primero los del país del caso; si no alcanzan, se completa con otros países.
+     * Sin especialidad se elige entre todos los abogados.
+     *
+     * @return ids de hasta teamSize abogados, de menor a mayor carga
+     */
+    public synchronized List<Long> selectLeastLoaded(LegalSpecialty specialty, Country country, int teamSize) {
+        selections.increment();
+        List<Long> team = new ArrayList<>(teamSize);
+        if (specialty == null) {
+            takeAvailable(allLawyers, teamSize, team);
+            return team;
+        }
+
+        EnumMap<Country, TreeSet<IndexedLawyer>> byCountry = buckets.get(specialty);
+        if (byCountry == null) {
+            return team;
+        }
+
+        TreeSet<IndexedLawyer> local = country != null ? byCountry.get(country) : null;
+        if (local != null) {
+            takeAvailable(local, teamSize, team);
+        }
+
+        int missing = teamSize - team.size();
+        if (missing > 0) {
+            // Los primeros "missing" de cada otro país bastan para encontrar los menos cargados
+            List<IndexedLawyer> candidates = new ArrayList<>();
+            for (Map.Entry<Country, TreeSet<IndexedLawyer>> bucket : byCountry.entrySet()) {
+                if (bucket.getKey() == country) continue;
+                int taken = 0;
+                for (IndexedLawyer lawyer : bucket.getValue()) {
+                    if (taken == missing || lawyer.workload >= maxCasesPerLawyer) break;
+                    candidates.add(lawyer);
+                    taken++;
+                }
+            }
+            candidates.sort(BY_WORKLOAD);
+            for (int i = 0; i < Math.min(missing, candidates.size()); i++) {
+                team.add(candidates.get(i).id);
+            }
+        }
+        return team;
+    }
+
+    /**
+     * Especialidad a partir del nombre del enum o de su nombre visible; null si no se reconoce
+     */
+    public LegalSpecialty parseSpecialty(String text) {
+        if (text == null || text.trim().isEmpty()) return null;
+        String token = text.trim();
+        try {
+            return LegalSpecialty.valueOf(token.toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            for (LegalSpecialty specialty : LegalSpecialty.values()) {
+                if (specialty.getDisplayName().equalsIgnoreCase(token)) {
+                    return specialty;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * La especialización del usuario es texto libre ("CIVIL_LAW, Derecho Penal"): se indexan las reconocidas.
+     * Un fragmento que no coincide exactamente se busca por contenido, como hacía el filtro anterior
+     * ("Civil y Mercantil" → Derecho Civil); si tampoco así se reconoce, se registra y se ignora.
+     * Sin ninguna reconocida, el abogado queda en Práctica General.
+     */
+    public Set<LegalSpecialty> parseSpecialties(String specialization) {
+        Set<LegalSpecialty> specialties = EnumSet.noneOf(LegalSpecialty.class);
+        if (specialization != null) {
+            for (String token : specialization.split("[,;/]")) {
+                if (token.isBlank()) continue;
+                LegalSpecialty specialty = parseSpecialty(token);
+                if (specialty != null) {
+                    specialties.add(specialty);
+                    continue;
+                }
+                Set<LegalSpecialty> contained = matchByContent(token);
+                if (!contained.isEmpty()) {
+                    specialties.addAll(contained);
+                } else if (unrecognizedTokens.add(token.trim().toLowerCase(Locale.ROOT))) {
+                    log.warn("Especialización no reconocida en el índice de disponibilidad: '{}'", token.trim());
+                }
+            }
+        }
+        if (specialties.isEmpty()) {
+            specialties.add(LegalSpecialty.GENERAL);
+        }
+        return specialties;
+    }
+
+    /**
+     * Reindexar los abogados afectados con sus datos confirmados
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAvailabilityChanged(LawyerAvailabilityChangedEvent event) {
+        Collection<Long> userIds = event.getUserIds();
+        if (userIds == null || userIds.isEmpty()) return;
+
+        try {
+            List<User> users = userRepository.findAllById(userIds);
+            synchronized (this) {
+                userIds.forEach(this::remove);
+                users.stream().filter(this::isAssignable).forEach(this::put);
+            }
+            updates.increment();
+        } catch (Exception e) {
+            log.warn("No se pudo actualizar el índice de disponibilidad para {}: {}", userIds, e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstrucción completa desde la base de datos (cambios de otros nodos)
+     */
+    @Scheduled(fixedDelayString = "${novis.teams.availability-index.rebuild-interval-ms:300000}",
+            initialDelayString = "${novis.teams.availability-index.rebuild-interval-ms:300000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Error reconstruyendo el índice de disponibilidad: {}", e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("indexedLawyers", lawyersById.size());
+        status.put("specialties", buckets.size());
+        status.put("maxCasesPerLawyer", maxCasesPerLawyer);
+        status.put("selections", selections.sum());
+        status.put("updates", updates.sum());
+        status.put("rebuilds", rebuilds.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void rebuild() {
+        List<User> lawyers = userRepository.findAvailableLawyers();
+        synchronized (this) {
+            buckets.clear();
+            allLawyers.clear();
+            lawyersById.clear();
+            lawyers.stream().filter(this::isAssignable).forEach(this::put);
+        }
+        rebuilds.increment();
+    }
+
+    private Set<LegalSpecialty> matchByContent(String token) {
+        String text = normalize(token);
+        Set<LegalSpecialty> matches = EnumSet.noneOf(LegalSpecialty.class);
+        for (Map.Entry<LegalSpecialty, String> entry : CONTENT_KEYS.entrySet()) {
+            if (text.contains(entry.getValue())) {
+                matches.add(entry.getKey());
+            }
+        }
+        return matches;
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+    }
+
+    private void takeAvailable(TreeSet<IndexedLawyer> bucket, int teamSize, List<Long> team) {
+        for (IndexedLawyer lawyer : bucket) {
+            if (team.size() >= teamSize || lawyer.workload >= maxCasesPerLawyer) break;
+            team.add(lawyer.id);
+        }
+    }
+
+    private boolean isAssignable(User user) {
+        return Boolean.TRUE.equals(user.getActive()) && ASSIGNABLE_ROLES.contains(user.getRole());
+    }
+
+    private void put(User user) {
+        IndexedLawyer lawyer = new IndexedLawyer(
+                user.getId(),
+                user.getCurrentWorkload() != null ? user.getCurrentWorkload() : 0,
+                parseSpecialties(user.getSpecialization()),
+                Country.fromString(user.getCountry()));
+
+        lawyersById.put(lawyer.id, lawyer);
+        allLawyers.add(lawyer);
+        for (LegalSpecialty specialty : lawyer.specialties) {
+            buckets.computeIfAbsent(specialty, key -> new EnumMap<>(Country.class))
+                    .computeIfAbsent(lawyer.country, key -> new TreeSet<>(BY_WORKLOAD))
+                    .add(lawyer);
+        }
+    }
+
+    private void remove(Long userId) {
+        IndexedLawyer lawyer = lawyersById.remove(userId);
+        if (lawyer == null) return;
+
+        allLawyers.remove(lawyer);
+        for (LegalSpecialty specialty : lawyer.specialties) {
+            EnumMap<Country, TreeSet<IndexedLawyer>> byCountry = buckets.get(specialty);
+            if (byCountry == null) continue;
+            TreeSet<IndexedLawyer> bucket = byCountry.get(lawyer.country);
+            if (bucket == null) continue;
+            bucket.remove(lawyer);
+            if (bucket.isEmpty()) byCountry.remove(lawyer.country);
+            if (byCountry.isEmpty()) buckets.remove(specialty);
+        }
+    }
+
+    /**
+     * Entrada inmutable: un cambio de carga se aplica retirando la entrada y añadiendo una nueva
+     */
+    private static final class IndexedLawyer {
+        private final Long id;
+        private final int workload;
+        private final Set<LegalSpecialty> specialties;
+        private final Country country;
+
+        private IndexedLawyer(Long id, int workload, Set<LegalSpecialty> specialties, Country country) {
+            this.id = id;
+            this.workload = workload;
+            this.specialties = specialties;
+            this.country = country;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.LawyerAssignmentCountsDTO;
+import com.example.novisapp.entity.AssignmentStatus;
+import com.example.novisapp.repository.CaseLawyerAssignmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Carga de trabajo de todos los abogados a partir de una única consulta agrupada
+ * sobre case_lawyer_assignments (abogado, estado, rol).
+ * - El resultado se mantiene en memoria y se invalida tras el commit de cambios de equipo
+ * - Un vencimiento periódico recoge las asignaciones hechas en otros nodos
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LawyerWorkloadService {
+
+    private static final LawyerAssignmentCountsDTO NO_ASSIGNMENTS = new LawyerAssignmentCountsDTO(null);
+
+    private final CaseLawyerAssignmentRepository assignmentRepository;
+
+    private volatile Map<Long, LawyerAssignmentCountsDTO> counts;
+    private volatile boolean stale = true;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * Conteos por abogado (solo abogados con alguna asignación)
+     */
+    public Map<Long, LawyerAssignmentCountsDTO> getAssignmentCounts() {
+        reads.increment();
+        Map<Long, LawyerAssignmentCountsDTO> current = counts;
+        if (current == null || stale) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Asignaciones activas de un abogado (0 si no tiene ninguna)
+     */
+    public int getActiveCaseCount(Long lawyerId) {
+        return (int) getAssignmentCounts().getOrDefault(lawyerId, NO_ASSIGNMENTS).getActiveAssignments();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCaseChanged(CaseChangedEvent event) {
+        if (event.getChangeType() == CaseChangedEvent.ChangeType.TEAM_CHANGED) {
+            stale = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${novis.teams.workload.refresh-interval-ms:60000}")
+    public void expireCounts() {
+        stale = true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("stale", stale);
+        status.put("lawyers", counts != null ? counts.size() : 0);
+        status.put("reads", reads.sum());
+        status.put("refreshes", refreshes.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private synchronized Map<Long, LawyerAssignmentCountsDTO> refresh() {
+        if (counts != null && !stale) {
+            return counts;
+        }
+        stale = false;
+
+        Map<Long, LawyerAssignmentCountsDTO> loaded = new HashMap<>();
+        try {
+            for (Object[] row : assignmentRepository.countAssignmentsByLawyerStatusAndRole()) {
+                Long lawyerId = (Long) row[0];
+                AssignmentStatus status = (AssignmentStatus) row[1];
+                String role = row[2] != null ? row[2].toString() : "ASSOCIATE";
+                long count = ((Number) row[3]).longValue();
+
+                LawyerAssignmentCountsDTO lawyerCounts = loaded.computeIfAbsent(lawyerId, LawyerAssignmentCountsDTO::new);
+                lawyerCounts.setTotalAssignments(lawyerCounts.getTotalAssignments() + count);
+                lawyerCounts.getAssignmentsByStatus().merge(status.name(), count, Long::sum);
+                if (status == AssignmentStatus.ACTIVE) {
+                    lawyerCounts.setActiveAssignments(lawyerCounts.getActiveAssignments() + count);
+                    lawyerCounts.getActiveAssignmentsByRole().merge(role, count, Long::sum);
+                }
+            }
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+
+        counts = Collections.unmodifiableMap(loaded);
+        refreshes.increment();
+        log.debug("Cargas de trabajo recalculadas: {} abogados con asignaciones", loaded.size());
+        return counts;
+    }
+}
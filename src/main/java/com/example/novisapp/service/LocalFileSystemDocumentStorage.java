@@ -0,0 +1,270 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.StoredBlobInfo;
+import com.example.novisapp.security.DownloadTokenService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Backend de almacenamiento sobre el sistema de archivos local (NIO).
+ * - Escritura atómica: se escribe en un archivo de staging y se renombra al destino final
+ * - Cargas por partes: los bloques se escriben en su offset dentro de un archivo .upload de staging
+ * - Directorios particionados por prefijo del hash del nombre del blob (evita directorios enormes)
+ * - Descargas con FileChannel.transferTo (zero-copy cuando el destino lo permite)
+ * - URLs firmadas con HMAC servidas por SignedFileController
+ */
+@Component
+@ConditionalOnProperty(name = "novis.storage.backend", havingValue = "local")
+@RequiredArgsConstructor
+@Slf4j
+public class LocalFileSystemDocumentStorage implements DocumentStorage {
+
+    private static final String STAGING_DIR = ".staging";
+    public static final String SIGNED_FILES_PATH = "/api/public/files/";
+
+    private final DownloadTokenService downloadTokenService;
+
+    @Value("${novis.storage.local.root-path:./data/novis-storage}")
+    private String rootPath;
+
+    @Value("${novis.storage.local.shard-depth:2}")
+    private int shardDepth;
+
+    @Value("${novis.storage.signed-url.base-url:}")
+    private String signedUrlBaseUrl;
+
+    private Path root;
+    private Path staging;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(rootPath).toAbsolutePath().normalize();
+        staging = root.resolve(STAGING_DIR);
+        Files.createDirectories(staging);
+        log.info("Almacenamiento local de documentos inicializado en: {}", root);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "local";
+    }
+
+    @Override
+    public String put(String containerName, String blobName, InputStream data, long length,
+                      String contentType, String contentDisposition) throws IOException {
+        Path target = resolvePath(containerName, blobName);
+        Path tempFile = staging.resolve(UUID.randomUUID() + ".part");
+
+        try {
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(data)) {
+                long written = 0;
+                while (length < 0 || written < length) {
+                    long chunk = out.transferFrom(in, written, length < 0 ? 1024 * 1024 : length - written);
+                    if (chunk <= 0) break;
+                    written += chunk;
+                }
+                if (length >= 0 && written != length) {
+                    throw new IOException("Tamaño inesperado: esperado " + length + " bytes, recibido " + written);
+                }
+                out.force(true);
+            }
+
+            Files.createDirectories(target.getParent());
+            moveIntoPlace(tempFile, target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        return target.toUri().toString();
+    }
+
+    @Override
+    public void stageBlock(String containerName, String blobName, int blockIndex, long offset,
+                           InputStream data, long length) throws IOException {
+        Path uploadFile = resolveUploadPath(containerName, blobName);
+
+        try (FileChannel out = FileChannel.open(uploadFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(data)) {
+            if (out.size() < offset) {
+                throw new IOException("Bloque fuera de orden: offset " + offset + ", staging con " + out.size() + " bytes");
+            }
+            // Un reintento del mismo bloque descarta lo escrito desde su offset
+            out.truncate(offset);
+
+            long written = 0;
+            while (written < length) {
+                long chunk = out.transferFrom(in, offset + written, length - written);
+                if (chunk <= 0) break;
+                written += chunk;
+            }
+            if (written != length) {
+                out.truncate(offset);
+                throw new IOException("Tamaño de bloque inesperado: esperado " + length + " bytes, recibido " + written);
+            }
+        }
+    }
+
+    @Override
+    public String commitBlocks(String containerName, String blobName, int blockCount, long totalLength,
+                               String contentType, String contentDisposition) throws IOException {
+        Path uploadFile = resolveUploadPath(containerName, blobName);
+        Path target = resolvePath(containerName, blobName);
+
+        try (FileChannel channel = FileChannel.open(uploadFile, StandardOpenOption.WRITE)) {
+            if (channel.size() != totalLength) {
+                throw new IOException("Tamaño inesperado: esperado " + totalLength + " bytes, staging con " + channel.size());
+            }
+            channel.force(true);
+        }
+
+        Files.createDirectories(target.getParent());
+        moveIntoPlace(uploadFile, target);
+        return target.toUri().toString();
+    }
+
+    @Override
+    public void discardBlocks(String containerName, String blobName) throws IOException {
+        Files.deleteIfExists(resolveUploadPath(containerName, blobName));
+    }
+
+    @Override
+    public InputStream get(String containerName, String blobName, long offset, long count) throws IOException {
+        Path path = resolvePath(containerName, blobName);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return count < 0 ? in : new BoundedInputStream(in, count);
+    }
+
+    @Override
+    public boolean delete(String containerName, String blobName) throws IOException {
+        return Files.deleteIfExists(resolvePath(containerName, blobName));
+    }
+
+    @Override
+    public boolean exists(String containerName, String blobName) {
+        return Files.isRegularFile(resolvePath(containerName, blobName));
+    }
+
+    @Override
+    public StoredBlobInfo stat(String containerName, String blobName) throws IOException {
+        Path path = resolvePath(containerName, blobName);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return StoredBlobInfo.builder()
+                .containerName(containerName)
+                .blobName(blobName)
+                .size(attributes.size())
+                .contentType(Files.probeContentType(path))
+                .lastModified(LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault()))
+                .location(path.toUri().toString())
+                .build();
+    }
+
+    @Override
+    public long transferTo(String containerName, String blobName, long offset, long count,
+                           WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolvePath(containerName, blobName), StandardOpenOption.READ)) {
+            long end = count < 0 ? channel.size() : Math.min(channel.size(), offset + count);
+            long position = offset;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    // Algunos canales no aceptan más datos en una sola llamada: fallback a copia con buffer
+                    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                    buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) break;
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    transferred = read;
+                }
+                position += transferred;
+            }
+            return position - offset;
+        }
+    }
+
+    @Override
+    public String generateDownloadUrl(String containerName, String blobName, String fileName, Duration validity) {
+        String token = downloadTokenService.sign(containerName, blobName, fileName, Instant.now().plus(validity));
+        return signedUrlBaseUrl + SIGNED_FILES_PATH + token;
+    }
+
+    /**
+     * Ruta física del blob: root/container/ab/cd/blobName, con ab/cd tomados del SHA-256 del nombre
+     */
+    public Path resolvePath(String containerName, String blobName) {
+        String hash = sha256Hex(blobName);
+        Path dir = root.resolve(sanitize(containerName));
+        for (int i = 0; i < shardDepth; i++) {
+            dir = dir.resolve(hash.substring(i * 2, i * 2 + 2));
+        }
+        return dir.resolve(sanitize(blobName));
+    }
+
+    private Path resolveUploadPath(String containerName, String blobName) {
+        return staging.resolve(sha256Hex(containerName + "/" + blobName) + ".upload");
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.warn("ATOMIC_MOVE no soportado en {}, usando move simple", root);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private String sanitize(String name) {
+        String safe = name.replace('\\', '_').replace('/', '_');
+        if (safe.isEmpty() || safe.equals(".") || safe.equals("..")) {
+            throw new IllegalArgumentException("Nombre de blob inválido: " + name);
+        }
+        return safe;
+    }
+
+    private String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
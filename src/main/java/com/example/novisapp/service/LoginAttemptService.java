@@ -0,0 +1,306 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.security.UserStatusCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de intentos de login antes de BCrypt y contabilidad de logins con escritura diferida.
+ * - Ventana deslizante por email y por IP: los intentos que exceden el límite se rechazan sin verificar
+ *   la contraseña, de modo que una ráfaga de credential stuffing no consume CPU en BCrypt
+ * - Fallos y bloqueo se deciden en memoria al instante; el bloqueo se persiste de inmediato
+ * - lastLogin y el reinicio de failedLoginAttempts se vuelcan por lotes con un único batch JDBC
+ * El estado de fallos expira tras unos minutos sin actividad; a partir de ahí manda la base de datos
+ * (el bloqueo persistido lo aplica igualmente la autenticación).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoginAttemptService {
+
+    private static final String FAILURE_STATE_SQL =
+            "SELECT id, failed_login_attempts, account_non_locked FROM users WHERE email = ?";
+
+    private static final String LOCK_SQL =
+            "UPDATE users SET failed_login_attempts = ?, account_non_locked = 0 WHERE email = ?";
+
+    private static final String FLUSH_SQL =
+            "UPDATE users SET failed_login_attempts = ?, last_login = COALESCE(?, last_login) WHERE email = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserStatusCache userStatusCache;
+
+    @Value("${novis.security.login.max-attempts-per-email:10}")
+    private int maxAttemptsPerEmail;
+
+    @Value("${novis.security.login.max-attempts-per-ip:30}")
+    private int maxAttemptsPerIp;
+
+    @Value("${novis.security.login.window-seconds:300}")
+    private long windowSeconds;
+
+    @Value("${novis.security.login.max-failed-attempts:5}")
+    private int maxFailedAttempts;
+
+    @Value("${novis.security.login.failure-state-ttl-seconds:900}")
+    private long failureStateTtlSeconds;
+
+    @Value("${novis.security.login.max-tracked-keys:100000}")
+    private long maxTrackedKeys;
+
+    private Cache<String, SlidingWindow> emailWindows;
+    private Cache<String, SlidingWindow> ipWindows;
+    private Cache<String, FailureState> failures;
+
+    // Escrituras pendientes por email (la última gana)
+    private final ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedByEmail = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedLocked = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        Duration window = Duration.ofSeconds(windowSeconds);
+        emailWindows = Caffeine.newBuilder().expireAfterAccess(window).maximumSize(maxTrackedKeys).build();
+        ipWindows = Caffeine.newBuilder().expireAfterAccess(window).maximumSize(maxTrackedKeys).build();
+        failures = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofSeconds(failureStateTtlSeconds))
+                .maximumSize(maxTrackedKeys)
+                .build();
+    }
+
+    /**
+     * Registrar un intento en las ventanas de email e IP.
+     *
+     * @return segundos a esperar si el intento se rechaza, 0 si puede continuar
+     */
+    public long tryAcquire(String email, String clientIp) {
+        long now = System.currentTimeMillis();
+        long windowMillis = windowSeconds * 1000;
+
+        SlidingWindow ipWindow = ipWindows.get(clientIp != null ? clientIp : "unknown",
+                key -> new SlidingWindow(maxAttemptsPerIp));
+        long ipWait = ipWindow.tryAcquire(now, windowMillis);
+        if (ipWait > 0) {
+            rejectedByIp.increment();
+            log.warn("Login rechazado por límite de IP: {}", clientIp);
+            return toSeconds(ipWait);
+        }
+
+        SlidingWindow emailWindow = emailWindows.get(normalize(email), key -> new SlidingWindow(maxAttemptsPerEmail));
+        long emailWait = emailWindow.tryAcquire(now, windowMillis);
+        if (emailWait > 0) {
+            rejectedByEmail.increment();
+            log.warn("Login rechazado por límite de email: {}", email);
+            return toSeconds(emailWait);
+        }
+        return 0;
+    }
+
+    /**
+     * Bloqueo por intentos fallidos conocido en memoria (sin consultar la base de datos)
+     */
+    public boolean isLocked(String email) {
+        FailureState state = failures.getIfPresent(normalize(email));
+        if (state != null && state.isLocked(maxFailedAttempts)) {
+            rejectedLocked.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Login correcto: reiniciar fallos en memoria y encolar lastLogin
+     */
+    public void recordSuccess(String email) {
+        String key = normalize(email);
+        failures.invalidate(key);
+        pending.put(key, new PendingWrite(0, new Timestamp(System.currentTimeMillis())));
+    }
+
+    /**
+     * Login fallido: contar en memoria y bloquear al alcanzar el máximo.
+     * El contador se inicializa una vez desde la base de datos; los usuarios inexistentes no se contabilizan.
+     */
+    public void recordFailure(String email) {
+        String key = normalize(email);
+        FailureState state = failures.get(key, this::loadFailureState);
+        if (state.unknownUser) return;
+
+        int attempts;
+        boolean lockNow;
+        synchronized (state) {
+            if (state.locked) return;
+            attempts = ++state.attempts;
+            lockNow = attempts >= maxFailedAttempts;
+            if (lockNow) state.locked = true;
+        }
+
+        if (lockNow) {
+            pending.remove(key);
+            Long userId = state.userId;
+            jdbcTemplate.update(LOCK_SQL, attempts, key);
+            userStatusCache.evict(userId);
+            log.warn("Cuenta bloqueada por intentos fallidos: {}", email);
+        } else {
+            pending.compute(key, (k, write) -> new PendingWrite(attempts, write != null ? write.lastLogin : null));
+        }
+    }
+
+    /**
+     * Olvidar el estado en memoria de un usuario (desbloqueo, activación o reseteo de contraseña)
+     */
+    public void clear(String email) {
+        if (email == null) return;
+        String key = normalize(email);
+        failures.invalidate(key);
+        pending.remove(key);
+    }
+
+    /**
+     * Volcar la contabilidad pendiente con un único batch JDBC
+     */
+    @Scheduled(fixedDelayString = "${novis.security.login.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        List<String> emails = new ArrayList<>();
+        List<PendingWrite> writes = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (String email : new ArrayList<>(pending.keySet())) {
+            PendingWrite write = pending.remove(email);
+            if (write == null) continue;
+            emails.add(email);
+            writes.add(write);
+            batchArgs.add(new Object[]{write.failedAttempts, write.lastLogin, email});
+        }
+        if (batchArgs.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batchArgs);
+            log.debug("Contabilidad de login volcada: {} usuarios", batchArgs.size());
+        } catch (Exception e) {
+            log.error("Error volcando contabilidad de login ({} usuarios), se reintentará: {}",
+                    batchArgs.size(), e.getMessage());
+            for (int i = 0; i < emails.size(); i++) {
+                pending.putIfAbsent(emails.get(i), writes.get(i));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("trackedEmails", emailWindows.estimatedSize());
+        status.put("trackedIps", ipWindows.estimatedSize());
+        status.put("trackedFailures", failures.estimatedSize());
+        status.put("pendingWrites", pending.size());
+        status.put("rejectedByEmail", rejectedByEmail.sum());
+        status.put("rejectedByIp", rejectedByIp.sum());
+        status.put("rejectedLocked", rejectedLocked.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private FailureState loadFailureState(String email) {
+        List<FailureState> rows = jdbcTemplate.query(FAILURE_STATE_SQL,
+                (rs, rowNum) -> {
+                    FailureState state = new FailureState();
+                    state.userId = rs.getLong("id");
+                    state.attempts = rs.getInt("failed_login_attempts");
+                    state.locked = rs.getObject("account_non_locked") != null && !rs.getBoolean("account_non_locked");
+                    return state;
+                }, email);
+        if (rows.isEmpty()) {
+            FailureState unknown = new FailureState();
+            unknown.unknownUser = true;
+            return unknown;
+        }
+        return rows.get(0);
+    }
+
+    private String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    /**
+     * Registro deslizante de los últimos N intentos (memoria O(límite) por clave)
+     */
+    private static final class SlidingWindow {
+        private final long[] timestamps;
+        private int next;
+        private int size;
+
+        private SlidingWindow(int limit) {
+            this.timestamps = new long[Math.max(1, limit)];
+        }
+
+        /**
+         * @return 0 si se admite el intento, o los milisegundos hasta que el más antiguo salga de la ventana
+         */
+        private synchronized long tryAcquire(long now, long windowMillis) {
+            if (size == timestamps.length) {
+                long oldest = timestamps[next];
+                if (oldest > now - windowMillis) {
+                    return oldest + windowMillis - now;
+                }
+            } else {
+                size++;
+            }
+            timestamps[next] = now;
+            next = (next + 1) % timestamps.length;
+            return 0;
+        }
+    }
+
+    private static final class FailureState {
+        private Long userId;
+        private int attempts;
+        private boolean locked;
+        private boolean unknownUser;
+
+        private synchronized boolean isLocked(int maxFailedAttempts) {
+            return locked || attempts >= maxFailedAttempts;
+        }
+    }
+
+    private static final class PendingWrite {
+        private final int failedAttempts;
+        private final Timestamp lastLogin;
+
+        private PendingWrite(int failedAttempts, Timestamp lastLogin) {
+            this.failedAttempts = failedAttempts;
+            this.lastLogin = lastLogin;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.dto.MalwareScanVerdict;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Contrato de análisis antimalware en streaming.
+ * El adaptador se selecciona con novis.documents.scanner.type (clamd | in-process).
+ */
+public interface MalwareScanner {
+
+    /**
+     * Nombre del analizador activo
+     */
+    String getName();
+
+    /**
+     * Analizar el contenido completo del stream. Un error de comunicación se lanza como IOException
+     * (el documento vuelve a la cola), nunca como veredicto limpio.
+     */
+    MalwareScanVerdict scan(InputStream content) throws IOException;
+}
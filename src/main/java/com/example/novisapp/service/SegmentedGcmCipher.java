@@ -0,0 +1,257 @@
+package com.example.novisapp.service;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Cifrado AES-GCM por segmentos de tamaño fijo, en streaming y con memoria constante.
+ * Formato de cada segmento: [nonce 12 bytes][texto cifrado][tag 16 bytes]; el último segmento puede ser más corto.
+ * - El AAD de cada segmento es su índice y una marca de "último": reordenar, duplicar o truncar segmentos falla
+ * - La posición de cada segmento en el blob se calcula sin leerlo, de modo que un rango del archivo
+ *   solo requiere leer y descifrar los segmentos que lo contienen
+ * - Nonce aleatorio por segmento: reenviar un fragmento de un upload nunca reutiliza un nonce con la misma clave
+ */
+public final class SegmentedGcmCipher {
+
+    public static final int NONCE_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+    public static final int SEGMENT_OVERHEAD = NONCE_LENGTH + TAG_LENGTH;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int segmentSize;
+
+    public SegmentedGcmCipher(int segmentSize) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("El tamaño de segmento debe ser al menos 1KB");
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Número de segmentos de un archivo (un archivo vacío ocupa un segmento final sin datos)
+     */
+    public long segmentCount(long plaintextLength) {
+        return plaintextLength == 0 ? 1 : (plaintextLength + segmentSize - 1) / segmentSize;
+    }
+
+    public long ciphertextLength(long plaintextLength) {
+        return plaintextLength + segmentCount(plaintextLength) * SEGMENT_OVERHEAD;
+    }
+
+    /**
+     * Posición en el blob cifrado del inicio del segmento indicado
+     */
+    public long ciphertextOffset(long segmentIndex) {
+        return segmentIndex * (segmentSize + SEGMENT_OVERHEAD);
+    }
+
+    /**
+     * Longitud cifrada de un tramo de texto plano que empieza en un límite de segmento
+     */
+    public long rangeCiphertextLength(long length) {
+        long segments = length == 0 ? 1 : (length + segmentSize - 1) / segmentSize;
+        return length + segments * SEGMENT_OVERHEAD;
+    }
+
+    /**
+     * Cifrar en streaming un tramo de texto plano que empieza en el segmento firstSegment.
+     *
+     * @param plaintextLength longitud total del archivo (determina cuál es el último segmento)
+     */
+    public InputStream encryptingStream(InputStream plaintext, SecretKey key, long plaintextLength, long firstSegment) {
+        return new SegmentStream(plaintext, segmentCount(plaintextLength), firstSegment) {
+            private final byte[] input = new byte[segmentSize];
+
+            @Override
+            protected int nextSegment(long segmentIndex, boolean last) throws IOException {
+                int read = source.readNBytes(input, 0, segmentSize);
+                if (read == 0 && !(last && segmentIndex == 0)) return -1;
+
+                byte[] nonce = new byte[NONCE_LENGTH];
+                RANDOM.nextBytes(nonce);
+                System.arraycopy(nonce, 0, output, 0, NONCE_LENGTH);
+                try {
+                    Cipher cipher = cipher();
+                    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+                    cipher.updateAAD(aad(segmentIndex, last));
+                    return NONCE_LENGTH + cipher.doFinal(input, 0, read, output, NONCE_LENGTH);
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Error cifrando el segmento " + segmentIndex, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Descifrar en streaming el rango [offset, offset + count) del texto plano.
+     * El stream cifrado debe empezar en ciphertextOffset(offset / segmentSize).
+     */
+    public InputStream decryptingStream(InputStream ciphertext, SecretKey key, long plaintextLength,
+                                        long offset, long count) {
+        long firstSegment = offset / segmentSize;
+        long end = count < 0 ? plaintextLength : Math.min(plaintextLength, offset + count);
+
+        InputStream segments = new SegmentStream(ciphertext, segmentCount(plaintextLength), firstSegment) {
+            private final byte[] input = new byte[segmentSize + SEGMENT_OVERHEAD];
+
+            @Override
+            protected int nextSegment(long segmentIndex, boolean last) throws IOException {
+                if (segmentIndex * segmentSize >= end && !(last && segmentIndex == 0)) return -1;
+
+                long segmentPlainLength = Math.min(segmentSize, plaintextLength - segmentIndex * segmentSize);
+                int expected = (int) segmentPlainLength + SEGMENT_OVERHEAD;
+                if (source.readNBytes(input, 0, expected) != expected) {
+                    throw new IOException("Contenido cifrado truncado en el segmento " + segmentIndex);
+                }
+
+                try {
+                    Cipher cipher = cipher();
+                    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, input, 0, NONCE_LENGTH));
+                    cipher.updateAAD(aad(segmentIndex, last));
+                    return cipher.doFinal(input, NONCE_LENGTH, expected - NONCE_LENGTH, output, 0);
+                } catch (AEADBadTagException e) {
+                    throw new IOException("Segmento cifrado " + segmentIndex + " corrupto o manipulado", e);
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Error descifrando el segmento " + segmentIndex, e);
+                }
+            }
+        };
+
+        // Recortar el inicio del primer segmento y el final del último
+        return new BoundedStream(segments, offset - firstSegment * segmentSize, end - offset);
+    }
+
+    private static byte[] aad(long segmentIndex, boolean last) {
+        return ByteBuffer.allocate(9).putLong(segmentIndex).put((byte) (last ? 1 : 0)).array();
+    }
+
+    /**
+     * Stream que produce un segmento transformado cada vez que se agota el anterior
+     */
+    private abstract class SegmentStream extends InputStream {
+
+        protected final InputStream source;
+        protected final byte[] output = new byte[segmentSize + SEGMENT_OVERHEAD];
+        private final long totalSegments;
+        private long segmentIndex;
+        private int position;
+        private int limit;
+        private boolean finished;
+        private Cipher cipher;
+
+        SegmentStream(InputStream source, long totalSegments, long firstSegment) {
+            this.source = source;
+            this.totalSegments = totalSegments;
+            this.segmentIndex = firstSegment;
+        }
+
+        protected abstract int nextSegment(long segmentIndex, boolean last) throws IOException;
+
+        // Una instancia por stream, reinicializada en cada segmento con su nonce
+        protected Cipher cipher() throws GeneralSecurityException {
+            if (cipher == null) {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            }
+            return cipher;
+        }
+
+        private boolean fill() throws IOException {
+            while (position == limit) {
+                if (finished || segmentIndex >= totalSegments) return false;
+                boolean last = segmentIndex == totalSegments - 1;
+                int produced = nextSegment(segmentIndex, last);
+                if (produced < 0) {
+                    finished = true;
+                    return false;
+                }
+                segmentIndex++;
+                position = 0;
+                limit = produced;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? output[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!fill()) return -1;
+            int count = Math.min(length, limit - position);
+            System.arraycopy(output, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    /**
+     * Descarta los primeros skip bytes y entrega como máximo length bytes
+     */
+    private static final class BoundedStream extends InputStream {
+
+        private final InputStream source;
+        private long skip;
+        private long remaining;
+
+        BoundedStream(InputStream source, long skip, long length) {
+            this.source = source;
+            this.skip = skip;
+            this.remaining = length;
+        }
+
+        private void skipLeading() throws IOException {
+            while (skip > 0) {
+                long skipped = source.skip(skip);
+                if (skipped <= 0) {
+                    if (source.read() < 0) return;
+                    skipped = 1;
+                }
+                skip -= skipped;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            skipLeading();
+            if (remaining <= 0) return -1;
+            int value = source.read();
+            if (value >= 0) remaining--;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            skipLeading();
+            if (remaining <= 0) return -1;
+            int read = source.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -8,6 +8,8 @@ import com.example.novisapp.repository.LegalCaseRepository;
 import com.example.novisapp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +26,13 @@ public class SimplifiedTeamService {
     private final UserRepository userRepository;
     private final LegalCaseRepository legalCaseRepository;
     private final CaseLawyerAssignmentRepository assignmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LawyerWorkloadService lawyerWorkloadService;
+    private final WorkloadCounterService workloadCounterService;
+
+    // Mismo límite que el plan por lotes y el índice de disponibilidad
+    @Value("${novis.teams.max-cases-per-lawyer:10}")
+    private int maxCasesPerLawyer;
 
     /**
      * Asignar equipo usando Users - VERSIÓN CORREGIDA
@@ -49,7 +58,7 @@ public class SimplifiedTeamService {
 
             // Verificar disponibilidad
             List<User> unavailableLawyers = lawyers.stream()
-                    .filter(user -> !user.isAvailable())
+                    .filter(user -> !user.isAvailable(maxCasesPerLawyer))
                     .collect(Collectors.toList());
 
             if (!unavailableLawyers.isEmpty()) {
@@ -60,13 +69,17 @@ public class SimplifiedTeamService {
             }
 
             // Limpiar asignaciones previas
-            clearPreviousAssignments(caseId);
+            List<User> releasedLawyers = clearPreviousAssignments(caseId);
 
             // Crear nuevas asignaciones
             List<CaseLawyerAssignment> assignments = createTeamAssignments(legalCase, lawyers);
 
             // Actualizar el caso
             updateLegalCaseWithTeam(legalCase, lawyers);
+            eventPublisher.publishEvent(new CaseChangedEvent(caseId, CaseChangedEvent.ChangeType.TEAM_CHANGED));
+            Set<Long> affectedIds = new HashSet<>(userIds);
+            releasedLawyers.forEach(user -> affectedIds.add(user.getId()));
+            eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(affectedIds));
 
             log.info("Equipo asignado exitosamente: {} abogados para caso {}", lawyers.size(), caseId);
 
@@ -86,13 +99,10 @@ public class SimplifiedTeamService {
             // Obtener usuarios activos
             List<User> allUsers = userRepository.findByActiveTrue();
 
-            // Contar casos por usuario
-            Map<Long, Integer> caseCountByUser = getCaseCountByUser();
-
-            // Crear lista de workloads
+            // Casos activos por usuario: consulta agrupada cacheada
             List<LawyerWorkloadSimple> userWorkloads = allUsers.stream()
                     .map(user -> {
-                        int caseCount = caseCountByUser.getOrDefault(user.getId(), 0);
+                        int caseCount = lawyerWorkloadService.getActiveCaseCount(user.getId());
                         return new LawyerWorkloadSimple(
                                 user.getId(),
                                 user.getFullName(),
@@ -184,7 +194,7 @@ public class SimplifiedTeamService {
 
             // Validar disponibilidad
             long unavailableCount = users.stream()
-                    .filter(user -> !user.isAvailable())
+                    .filter(user -> !user.isAvailable(maxCasesPerLawyer))
                     .count();
 
             if (unavailableCount > 0) {
@@ -202,12 +212,21 @@ public class SimplifiedTeamService {
     // MÉTODOS PRIVADOS DE APOYO
     // ========================================
 
-    private void clearPreviousAssignments(Long caseId) {
+    /**
+     * Desactiva las asignaciones del caso y devuelve los abogados que dejan de tener esa carga
+     */
+    private List<User> clearPreviousAssignments(Long caseId) {
         List<CaseLawyerAssignment> existing = assignmentRepository.findByLegalCaseId(caseId);
+        List<User> releasedLawyers = new ArrayList<>();
         for (CaseLawyerAssignment assignment : existing) {
+            if (workloadCounterService.countsForWorkload(assignment.getStatus())) {
+                releasedLawyers.add(assignment.getUser());
+            }
             assignment.setStatus(AssignmentStatus.INACTIVE);
             assignmentRepository.save(assignment);
         }
+        workloadCounterService.decrement(releasedLawyers);
+        return releasedLawyers;
     }
 
     private List<CaseLawyerAssignment> createTeamAssignments(LegalCase legalCase, List<User> users) {
@@ -224,14 +243,9 @@ public class SimplifiedTeamService {
             assignment.setAssignedDate(LocalDateTime.now()); // ✅ CORREGIDO: usar setAssignedDate()
 
             assignments.add(assignmentRepository.save(assignment));
-
-            // Actualizar workload del usuario si tiene el campo
-            if (user.getCurrentWorkload() != null) {
-                user.setCurrentWorkload(user.getCurrentWorkload() + 1);
-                userRepository.save(user);
-            }
         }
 
+        workloadCounterService.increment(users);
         return assignments;
     }
 
@@ -245,20 +259,6 @@ public class SimplifiedTeamService {
         legalCaseRepository.save(legalCase);
     }
 
-    private Map<Long, Integer> getCaseCountByUser() {
-        Map<Long, Integer> caseCount = new HashMap<>();
-        List<CaseLawyerAssignment> activeAssignments = assignmentRepository.findByStatus(AssignmentStatus.ACTIVE);
-
-        for (CaseLawyerAssignment assignment : activeAssignments) {
-            if (assignment.getLawyer() != null) { // ✅ CORREGIDO: usar getLawyer()
-                Long userId = assignment.getLawyer().getId();
-                caseCount.merge(userId, 1, Integer::sum);
-            }
-        }
-
-        return caseCount;
-    }
-
     private double calculateWorkloadPercentage(int caseCount) {
         int maxCases = 10; // Máximo asumido
         return (caseCount * 100.0) / maxCases;
@@ -3,12 +3,18 @@ package com.example.novisapp.service;
 // ✅ IMPORTS CORREGIDOS
 import com.example.novisapp.dto.SimplifiedWorkloadDashboard;
 import com.example.novisapp.dto.TeamAssignmentResult; // ✅ AÑADIDO
+import com.example.novisapp.entity.AssignmentStatus;
+import com.example.novisapp.entity.CaseLawyerAssignment;
 import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.entity.LegalSpecialty;
 import com.example.novisapp.entity.User;
+import com.example.novisapp.repository.CaseLawyerAssignmentRepository;
 import com.example.novisapp.repository.LegalCaseRepository;
 import com.example.novisapp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -24,13 +30,23 @@ public class TeamAssignmentService {
     private LegalCaseRepository legalCaseRepository;
 
     @Autowired
-    private AssignmentValidationService validationService;
+    private LawyerAvailabilityIndex availabilityIndex;
 
     @Autowired
     private SimplifiedTeamService simplifiedTeamService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CaseLawyerAssignmentRepository assignmentRepository;
+
+    @Autowired
+    private WorkloadCounterService workloadCounterService;
+
     /**
-     * Asigna un equipo óptimo a un caso legal
+     * Asigna un equipo óptimo a un caso legal.
+     * Los abogados menos cargados de la especialidad (y del país del caso) salen del índice en memoria.
      */
     public Map<String, Object> assignOptimalTeam(Long caseId, String requiredSpecialization) {
         Map<String, Object> result = new HashMap<>();
@@ -46,36 +62,33 @@ public class TeamAssignmentService {
 
             LegalCase legalCase = caseOptional.get();
 
-            // Obtener abogados disponibles
-            List<User> availableLawyers = getAvailableLawyersForCase(requiredSpecialization);
-
-            if (availableLawyers.size() < 2) {
-                result.put("success", false);
-                result.put("message", "No hay suficientes abogados disponibles");
-                result.put("available_count", availableLawyers.size());
-                return result;
+            // Sin especialidad se elige entre todos; si no se reconoce, la del caso
+            LegalSpecialty specialty = null;
+            if (requiredSpecialization != null && !requiredSpecialization.trim().isEmpty()) {
+                specialty = availabilityIndex.parseSpecialty(requiredSpecialization);
+                if (specialty == null) {
+                    specialty = legalCase.getRequiredSpecialty();
+                }
             }
 
-            // Seleccionar equipo óptimo
-            List<User> optimalTeam = selectOptimalTeam(availableLawyers, legalCase);
+            // Si el caso es de alta prioridad, un tercer abogado
+            int teamSize = legalCase.isHighPriority() ? 3 : 2;
+            List<Long> teamIds = availabilityIndex.selectLeastLoaded(specialty, legalCase.getCountry(), teamSize);
 
-            // Validar la asignación
-            Map<String, Object> validation = validationService.validateTeamAssignment(legalCase, optimalTeam);
-            if (!(Boolean) validation.get("valid")) {
+            if (teamIds.size() < 2) {
                 result.put("success", false);
-                result.put("message", "Validación falló: " + validation.get("reason"));
+                result.put("message", "No hay suficientes abogados disponibles");
+                result.put("available_count", teamIds.size());
                 return result;
             }
 
-            // Realizar la asignación usando SimplifiedTeamService
-            List<Long> teamIds = optimalTeam.stream().map(User::getId).collect(Collectors.toList());
-            // ✅ CORREGIDO: Usar TeamAssignmentResult directamente
+            // Realizar la asignación usando SimplifiedTeamService (valida disponibilidad de cada abogado)
             TeamAssignmentResult assignmentResult = simplifiedTeamService.assignTeamToCase(caseId, teamIds);
 
             if (assignmentResult.isSuccess()) {
                 result.put("success", true);
                 result.put("message", "Equipo asignado exitosamente");
-                result.put("assigned_lawyers", optimalTeam);
+                result.put("assigned_lawyers", assignmentResult.getAssignedUsers());
                 result.put("primary_lawyer", legalCase.getPrimaryLawyer());
                 result.put("assignment_date", LocalDateTime.now());
             } else {
@@ -107,38 +120,6 @@ public class TeamAssignmentService {
         return allLawyers;
     }
 
-    /**
-     * Selecciona el equipo óptimo basado en carga de trabajo y especialización
-     */
-    private List<User> selectOptimalTeam(List<User> availableLawyers, LegalCase legalCase) {
-        // Ordenar por carga de trabajo (menor carga primero)
-        availableLawyers.sort(Comparator.comparing(
-                user -> user.getCurrentWorkload() != null ? user.getCurrentWorkload() : 0
-        ));
-
-        List<User> team = new ArrayList<>();
-
-        // Seleccionar abogado principal (menor carga de trabajo)
-        User primaryLawyer = availableLawyers.get(0);
-        team.add(primaryLawyer);
-
-        // Seleccionar segundo abogado (siguiente menor carga)
-        if (availableLawyers.size() > 1) {
-            User secondLawyer = availableLawyers.get(1);
-            team.add(secondLawyer);
-        }
-
-        // Si el caso es de alta prioridad, agregar un tercer abogado
-        if ("HIGH".equals(legalCase.getPriority()) || "URGENT".equals(legalCase.getPriority())) {
-            if (availableLawyers.size() > 2) {
-                User thirdLawyer = availableLawyers.get(2);
-                team.add(thirdLawyer);
-            }
-        }
-
-        return team;
-    }
-
     /**
      * Reasigna el abogado principal de un caso
      */
@@ -174,6 +155,7 @@ public class TeamAssignmentService {
             User previousPrimary = legalCase.getPrimaryLawyer();
             legalCase.setPrimaryLawyer(newPrimaryLawyer);
             legalCaseRepository.save(legalCase);
+            eventPublisher.publishEvent(new CaseChangedEvent(caseId, CaseChangedEvent.ChangeType.UPDATED));
 
             result.put("success", true);
             result.put("message", "Abogado principal reasignado exitosamente");
@@ -191,6 +173,7 @@ public class TeamAssignmentService {
     /**
      * Remueve un abogado del equipo de un caso
      */
+    @Transactional
     public Map<String, Object> removeLawyerFromCase(Long caseId, Long lawyerId) {
         Map<String, Object> result = new HashMap<>();
 
@@ -223,13 +206,22 @@ public class TeamAssignmentService {
                 legalCase.setPrimaryLawyer(newPrimary);
             }
 
-            // Actualizar carga de trabajo manualmente
-            if (lawyer.getCurrentWorkload() != null && lawyer.getCurrentWorkload() > 0) {
-                lawyer.setCurrentWorkload(lawyer.getCurrentWorkload() - 1);
-                userRepository.save(lawyer);
+            // Desactivar sus asignaciones en el caso; la carga baja una vez por cada una
+            List<User> released = new ArrayList<>();
+            for (CaseLawyerAssignment assignment : assignmentRepository.findByLegalCaseIdAndStatus(caseId, AssignmentStatus.ACTIVE)) {
+                if (assignment.getUser().getId().equals(lawyerId)) {
+                    assignment.deactivate();
+                    if (!workloadCounterService.countsForWorkload(assignment.getStatus())) {
+                        released.add(lawyer);
+                    }
+                    assignmentRepository.save(assignment);
+                }
             }
+            workloadCounterService.decrement(released);
 
             legalCaseRepository.save(legalCase);
+            eventPublisher.publishEvent(new CaseChangedEvent(caseId, CaseChangedEvent.ChangeType.TEAM_CHANGED));
+            eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(lawyerId)));
 
             result.put("success", true);
             result.put("message", "Abogado removido exitosamente");
@@ -275,29 +267,4 @@ public class TeamAssignmentService {
 
         return result;
     }
-
-    /**
-     * MÉTODOS AUXILIARES PARA WORKLOAD (reemplazando WorkloadCalculatorService)
-     */
-    private void incrementWorkload(Long userId) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            Integer currentWorkload = user.getCurrentWorkload() != null ? user.getCurrentWorkload() : 0;
-            user.setCurrentWorkload(currentWorkload + 1);
-            userRepository.save(user);
-        }
-    }
-
-    private void decrementWorkload(Long userId) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            Integer currentWorkload = user.getCurrentWorkload() != null ? user.getCurrentWorkload() : 0;
-            if (currentWorkload > 0) {
-                user.setCurrentWorkload(currentWorkload - 1);
-            }
-            userRepository.save(user);
-        }
-    }
-}
\ No newline at end of file
+}
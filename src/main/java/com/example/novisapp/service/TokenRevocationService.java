@@ -0,0 +1,207 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.RevokedToken;
+import com.example.novisapp.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lista de revocación de tokens JWT (logout antes de la expiración).
+ * - Las revocaciones se persisten en revoked_tokens y cada nodo las mantiene en memoria:
+ *   un filtro de Bloom descarta en tiempo constante los tokens no revocados (la inmensa mayoría)
+ *   y un conjunto exacto confirma los positivos
+ * - Los nodos detectan revocaciones de otros nodos consultando la versión (máximo id) periódicamente
+ * - Las entradas se purgan cuando el token expira; el filtro se reconstruye sin ellas
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    // Ids asignados pero confirmados fuera de orden: se relee un margen por debajo de la versión conocida
+    private static final long VERSION_OVERLAP = 50;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${novis.security.revocation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${novis.security.revocation.expected-entries:10000}")
+    private long expectedEntries;
+
+    @Value("${novis.security.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    // jti -> expiración (epoch ms)
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private volatile long filterCapacity;
+    private volatile long knownVersion = 0L;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        filterCapacity = expectedEntries;
+        filter = new BloomFilter(filterCapacity, falsePositiveRate);
+        if (!enabled) return;
+        try {
+            refresh();
+            log.info("Lista de revocación cargada: {} tokens revocados (versión {})", revoked.size(), knownVersion);
+        } catch (Exception e) {
+            log.warn("No se pudo cargar la lista de revocación al iniciar: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Verificar si el token fue revocado (solo memoria, sin consulta a la base de datos)
+     */
+    public boolean isRevoked(String jti) {
+        if (!enabled || jti == null) return false;
+        checks.increment();
+        if (!filter.mightContain(jti)) {
+            filterNegatives.increment();
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        if (expiresAt == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Revocar un token hasta su expiración. Se aplica en este nodo de inmediato
+     * y en los demás en el siguiente sondeo de versión.
+     */
+    public void revoke(String jti, Long userId, Date expiration) {
+        if (!enabled) return;
+        if (jti == null || expiration == null) {
+            log.warn("Token sin jti o sin expiración: no se puede revocar individualmente");
+            return;
+        }
+        if (expiration.getTime() <= System.currentTimeMillis()) return;
+
+        addLocal(jti, expiration.getTime());
+        try {
+            if (!revokedTokenRepository.existsByJti(jti)) {
+                revokedTokenRepository.save(RevokedToken.builder()
+                        .jti(jti)
+                        .userId(userId)
+                        .expiresAt(LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault()))
+                        .revokedAt(LocalDateTime.now())
+                        .build());
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Revocado concurrentemente desde otra sesión o nodo
+            log.debug("Token {} ya estaba revocado", jti);
+        }
+        log.info("Token revocado para usuario {} hasta {}", userId, expiration);
+    }
+
+    /**
+     * Incorporar las revocaciones registradas por otros nodos desde la última versión conocida
+     */
+    @Scheduled(fixedDelayString = "${novis.security.revocation.poll-interval-ms:5000}",
+            initialDelayString = "${novis.security.revocation.poll-interval-ms:5000}")
+    public void pollRevocations() {
+        if (!enabled) return;
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Error sondeando la lista de revocación: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Purgar revocaciones expiradas en base de datos y memoria
+     */
+    @Scheduled(fixedDelayString = "${novis.security.revocation.prune-interval-ms:3600000}",
+            initialDelayString = "${novis.security.revocation.prune-interval-ms:3600000}")
+    public void pruneExpired() {
+        if (!enabled) return;
+        try {
+            int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+            long now = System.currentTimeMillis();
+            int before = revoked.size();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            if (revoked.size() < before) {
+                rebuildFilter();
+            }
+            if (deleted > 0 || revoked.size() < before) {
+                log.info("Revocaciones expiradas purgadas: {} en base de datos, {} en memoria",
+                        deleted, before - revoked.size());
+            }
+        } catch (Exception e) {
+            log.warn("Error purgando revocaciones expiradas: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("revokedTokens", revoked.size());
+        status.put("version", knownVersion);
+        status.put("filterBits", filter.getBitCount());
+        status.put("filterHashes", filter.getHashCount());
+        status.put("checks", checks.sum());
+        status.put("filterNegatives", filterNegatives.sum());
+        status.put("falsePositives", falsePositives.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private synchronized void refresh() {
+        Long version = revokedTokenRepository.findCurrentVersion();
+        if (version == null || version <= knownVersion) return;
+
+        List<RevokedToken> added = revokedTokenRepository.findActiveAfter(
+                Math.max(0, knownVersion - VERSION_OVERLAP), LocalDateTime.now());
+        for (RevokedToken token : added) {
+            addLocal(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        knownVersion = version;
+        if (!added.isEmpty()) {
+            log.debug("Lista de revocación actualizada a la versión {} (+{})", version, added.size());
+        }
+    }
+
+    private void addLocal(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        filter.add(jti);
+        // Más entradas que la capacidad prevista degradan la tasa de falsos positivos
+        if (revoked.size() > filterCapacity) {
+            rebuildFilter();
+        }
+    }
+
+    private synchronized void rebuildFilter() {
+        long capacity = Math.max(expectedEntries, revoked.size() * 2L);
+        BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        // Alta concurrente entre la copia y el cambio de referencia: se vuelve a añadir tras publicar
+        filter = rebuilt;
+        revoked.keySet().forEach(rebuilt::add);
+        filterCapacity = capacity;
+    }
+}
@@ -3,8 +3,10 @@ package com.example.novisapp.service;
 import com.example.novisapp.entity.User;
 import com.example.novisapp.entity.UserRole;
 import com.example.novisapp.repository.UserRepository;
+import com.example.novisapp.security.UserStatusCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -13,7 +15,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +24,9 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserStatusCache userStatusCache;
+    private final LoginAttemptService loginAttemptService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
@@ -74,6 +78,7 @@ public class UserService implements UserDetailsService {
         user.setFailedLoginAttempts(0);
 
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(savedUser.getId())));
         log.info("Usuario creado: {} - {}", savedUser.getEmail(), savedUser.getRole());
 
         return savedUser;
@@ -89,7 +94,9 @@ public class UserService implements UserDetailsService {
         user.setPhoneNumber(phoneNumber);
         user.setCountry(country);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(userId)));
+        return savedUser;
     }
 
     public void changePassword(Long userId, String currentPassword, String newPassword) {
@@ -111,6 +118,8 @@ public class UserService implements UserDetailsService {
         user.setActive(false);
         user.setEnabled(false);
         userRepository.save(user);
+        userStatusCache.evict(userId);
+        eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(userId)));
 
         log.info("Usuario desactivado: {}", user.getEmail());
     }
@@ -123,33 +132,27 @@ public class UserService implements UserDetailsService {
         user.setEnabled(true);
         user.setFailedLoginAttempts(0);
         userRepository.save(user);
+        userStatusCache.evict(userId);
+        loginAttemptService.clear(user.getEmail());
+        eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(List.of(userId)));
 
         log.info("Usuario activado: {}", user.getEmail());
     }
 
+    /**
+     * Login correcto: lastLogin y el reinicio de intentos fallidos se escriben en diferido
+     */
     public void handleLoginSuccess(String email) {
-        User user = findByEmail(email);
-        user.resetFailedLoginAttempts();
-        user.updateLastLogin();
-        userRepository.save(user);
+        loginAttemptService.recordSuccess(email);
 
         log.debug("Login exitoso para: {}", email);
     }
 
+    /**
+     * Login fallido: el conteo y el bloqueo (tras max-failed-attempts) se deciden en memoria
+     */
     public void handleLoginFailure(String email) {
-        Optional<User> userOpt = userRepository.findByEmail(email);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.incrementFailedLoginAttempts();
-
-            // Bloquear cuenta después de 5 intentos fallidos
-            if (user.getFailedLoginAttempts() >= 5) {
-                user.setAccountNonLocked(false);
-                log.warn("Cuenta bloqueada por intentos fallidos: {}", email);
-            }
-
-            userRepository.save(user);
-        }
+        loginAttemptService.recordFailure(email);
 
         log.warn("Login fallido para: {}", email);
     }
@@ -159,6 +162,8 @@ public class UserService implements UserDetailsService {
         user.setAccountNonLocked(true);
         user.resetFailedLoginAttempts();
         userRepository.save(user);
+        userStatusCache.evict(userId);
+        loginAttemptService.clear(user.getEmail());
 
         log.info("Usuario desbloqueado: {}", user.getEmail());
     }
@@ -0,0 +1,200 @@
+package com.example.novisapp.service;
+
+import com.example.novisapp.entity.AssignmentStatus;
+import com.example.novisapp.entity.User;
+import com.example.novisapp.repository.CaseLawyerAssignmentRepository;
+import com.example.novisapp.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Carga de trabajo de los abogados (User.currentWorkload).
+ * - Se ajusta con UPDATE atómicos en la misma transacción que el cambio de asignaciones:
+ *   asignaciones concurrentes no pierden incrementos
+ * - Una reconciliación periódica la recalcula desde case_lawyer_assignments con una consulta agrupada,
+ *   informa la deriva y la corrige con compare-and-set (no pisa cambios hechos mientras tanto)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WorkloadCounterService {
+
+    // Estados que cuentan como carga (mismo criterio que AssignmentStatus.countsForWorkload)
+    private static final Set<AssignmentStatus> WORKLOAD_STATUSES = Arrays.stream(AssignmentStatus.values())
+            .filter(AssignmentStatus::countsForWorkload)
+            .collect(Collectors.toCollection(() -> EnumSet.noneOf(AssignmentStatus.class)));
+
+    private static final int MAX_DRIFT_REPORTED = 20;
+
+    private final UserRepository userRepository;
+    private final CaseLawyerAssignmentRepository assignmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${novis.teams.workload.reconcile.enabled:true}")
+    private boolean reconcileEnabled;
+
+    private final AtomicBoolean reconciling = new AtomicBoolean(false);
+    private volatile LocalDateTime lastReconciledAt;
+    private volatile int lastDriftCount;
+    private volatile List<String> lastDrift = List.of();
+
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder decrements = new LongAdder();
+    private final LongAdder corrected = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * Un caso más por cada aparición del abogado en la lista
+     */
+    @Transactional
+    public void increment(Collection<User> lawyers) {
+        apply(lawyers, 1);
+        increments.add(lawyers.size());
+    }
+
+    /**
+     * Un caso menos por cada aparición del abogado en la lista (sin bajar de 0)
+     */
+    @Transactional
+    public void decrement(Collection<User> lawyers) {
+        apply(lawyers, -1);
+        decrements.add(lawyers.size());
+    }
+
+    public boolean countsForWorkload(AssignmentStatus status) {
+        return WORKLOAD_STATUSES.contains(status);
+    }
+
+    /**
+     * Reconciliación periódica (cambios fuera de los servicios, fallos parciales, datos anteriores)
+     */
+    @Scheduled(fixedDelayString = "${novis.teams.workload.reconcile-interval-ms:900000}",
+            initialDelayString = "${novis.teams.workload.reconcile-interval-ms:900000}")
+    public void scheduledReconcile() {
+        if (!reconcileEnabled) return;
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("Error reconciliando cargas de trabajo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcular las cargas desde las asignaciones y corregir las que derivaron
+     */
+    public Map<String, Object> reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return getStatus();
+        }
+
+        try {
+            // Primero la carga registrada y después el conteo: una asignación confirmada entre las dos
+            // lecturas también cambió la carga, y el compare-and-set descarta esa corrección
+            Map<Long, Integer> recorded = new HashMap<>();
+            for (Object[] row : userRepository.findAllWorkloads()) {
+                recorded.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            Map<Long, Integer> actual = new HashMap<>();
+            for (Object[] row : assignmentRepository.countAssignmentsByLawyer(WORKLOAD_STATUSES)) {
+                actual.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+
+            List<String> drift = new ArrayList<>();
+            List<Long> fixedIds = new ArrayList<>();
+            for (Map.Entry<Long, Integer> entry : recorded.entrySet()) {
+                Long userId = entry.getKey();
+                int expected = entry.getValue();
+                int count = actual.getOrDefault(userId, 0);
+                if (expected == count) continue;
+
+                drift.add("usuario " + userId + ": " + expected + " → " + count);
+                if (userRepository.reconcileWorkload(userId, expected, count) == 1) {
+                    fixedIds.add(userId);
+                } else {
+                    skipped.increment();
+                }
+            }
+
+            corrected.add(fixedIds.size());
+            lastDriftCount = drift.size();
+            lastDrift = List.copyOf(drift.subList(0, Math.min(MAX_DRIFT_REPORTED, drift.size())));
+            lastReconciledAt = LocalDateTime.now();
+
+            if (!drift.isEmpty()) {
+                log.warn("Deriva de carga de trabajo en {} usuarios ({} corregidos): {}",
+                        drift.size(), fixedIds.size(), lastDrift);
+                if (!fixedIds.isEmpty()) {
+                    eventPublisher.publishEvent(new LawyerAvailabilityChangedEvent(fixedIds));
+                }
+            } else {
+                log.debug("Cargas de trabajo reconciliadas sin deriva: {} usuarios", recorded.size());
+            }
+            return getStatus();
+
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("reconciling", reconciling.get());
+        status.put("lastReconciledAt", lastReconciledAt != null ? lastReconciledAt.toString() : null);
+        status.put("lastDriftCount", lastDriftCount);
+        status.put("lastDrift", lastDrift);
+        status.put("corrected", corrected.sum());
+        status.put("skipped", skipped.sum());
+        status.put("increments", increments.sum());
+        status.put("decrements", decrements.sum());
+        return status;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void apply(Collection<User> lawyers, int sign) {
+        if (lawyers == null || lawyers.isEmpty()) return;
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        Map<Long, User> entities = new HashMap<>();
+        for (User lawyer : lawyers) {
+            deltas.merge(lawyer.getId(), 1, Integer::sum);
+            entities.put(lawyer.getId(), lawyer);
+        }
+
+        // Un UPDATE por cada delta distinto (normalmente uno solo)
+        Map<Integer, List<Long>> idsByDelta = deltas.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        idsByDelta.forEach((delta, userIds) -> {
+            if (sign > 0) {
+                userRepository.incrementWorkload(userIds, delta);
+            } else {
+                userRepository.decrementWorkload(userIds, delta);
+            }
+        });
+
+        // La copia en memoria se alinea para el resto de la transacción (la entidad no escribe la columna)
+        entities.forEach((userId, user) ->
+                user.setCurrentWorkload(user.getCurrentWorkload() + sign * deltas.get(userId)));
+    }
+}
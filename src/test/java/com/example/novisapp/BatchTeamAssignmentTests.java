@@ -0,0 +1,205 @@
+package com.example.novisapp;
+
+import com.example.novisapp.dto.BatchAssignmentPlanDTO;
+import com.example.novisapp.entity.Client;
+import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.entity.LegalSpecialty;
+import com.example.novisapp.entity.User;
+import com.example.novisapp.service.BatchTeamAssignmentService;
+import com.example.novisapp.service.LawyerAvailabilityIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plan de asignación por lotes: capacidad, especialidad, tamaño de equipo y reparto de la carga.
+ * Sobre un despacho sembrado en la base de datos de prueba; la aplicación se prueba dentro de una
+ * transacción que se revierte al final.
+ * El máximo de casos es distinto del valor por defecto: el plan y la asignación de cada caso deben usar el mismo.
+ */
+@SpringBootTest(properties = "novis.teams.max-cases-per-lawyer=12")
+class BatchTeamAssignmentTests extends IsolatedDatabaseTest {
+
+    @Autowired
+    private BatchTeamAssignmentService batchTeamAssignmentService;
+
+    @Autowired
+    private LawyerAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${novis.teams.max-cases-per-lawyer:10}")
+    private int maxCasesPerLawyer;
+
+    @Value("${novis.teams.min-lawyers-per-case:2}")
+    private int minLawyersPerCase;
+
+    private final List<User> civilLawyers = new ArrayList<>();
+    private final List<User> criminalLawyers = new ArrayList<>();
+    private User fullLawyer;
+    private LegalCase uncoveredCase;
+
+    /**
+     * Abogados civiles y penales (uno ya en el máximo de casos) y un backlog que incluye un caso
+     * fiscal sin abogados de esa especialidad
+     */
+    @BeforeEach
+    void seedFirm() {
+        civilLawyers.clear();
+        criminalLawyers.clear();
+        for (int i = 0; i < 3; i++) civilLawyers.add(createLawyer(LegalSpecialty.CIVIL_LAW.name()));
+        for (int i = 0; i < 2; i++) criminalLawyers.add(createLawyer("Derecho Penal"));
+        fullLawyer = createLawyer(LegalSpecialty.CIVIL_LAW.name());
+        workloadCounterService.increment(Collections.nCopies(maxCasesPerLawyer, fullLawyer));
+
+        Client client = createClient();
+        for (int i = 0; i < 4; i++) createCase(client, LegalSpecialty.CIVIL_LAW);
+        for (int i = 0; i < 2; i++) createCase(client, LegalSpecialty.CRIMINAL_LAW);
+        uncoveredCase = createCase(client, LegalSpecialty.TAX_LAW);
+    }
+
+    @AfterEach
+    void removeFirm() {
+        deleteAll();
+    }
+
+    @Test
+    void dryRunRespectsCapacityAndSpecialtyWithoutWriting() {
+        int backlogBefore = legalCaseRepository.findUnassignedOpenCases().size();
+        assertEquals(7, backlogBefore);
+
+        BatchAssignmentPlanDTO plan = batchTeamAssignmentService.assignBacklog(true);
+
+        assertTrue(plan.isDryRun());
+        assertFalse(plan.isApplied());
+        assertEquals(backlogBefore, plan.getTotalCases());
+        assertEquals(plan.getTotalCases(), plan.getTeams().size() + plan.getUnassignedCases().size());
+        assertPlanIsFeasible(plan);
+        assertEquals(6, plan.getTeams().size(), "Casos civiles y penales con equipo");
+        assertTrue(plan.getUnassignedCases().stream().anyMatch(c -> c.getCaseId().equals(uncoveredCase.getId())),
+                "El caso fiscal no tiene abogados de su especialidad");
+        assertTrue(plan.getTeams().stream().noneMatch(team -> team.getLawyerIds().contains(fullLawyer.getId())),
+                "Abogado sin capacidad en un equipo");
+
+        assertEquals(backlogBefore, legalCaseRepository.findUnassignedOpenCases().size(),
+                "La vista previa no debe asignar casos");
+    }
+
+    @Test
+    void appliedPlanAssignsEveryPlannedCase() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            BatchAssignmentPlanDTO plan = batchTeamAssignmentService.assignBacklog(false);
+            assertTrue(plan.isApplied());
+            assertPlanIsFeasible(plan);
+
+            for (BatchAssignmentPlanDTO.PlannedTeamDTO team : plan.getTeams()) {
+                LegalCase legalCase = legalCaseRepository.findById(team.getCaseId()).orElseThrow();
+                assertTrue(legalCase.getTeamAssigned(), "Caso sin equipo: " + team.getCaseNumber());
+                assertEquals(new HashSet<>(team.getLawyerIds()),
+                        legalCase.getAssignedLawyers().stream().map(User::getId).collect(Collectors.toSet()));
+            }
+            for (Map.Entry<Long, Integer> projected : plan.getProjectedWorkload().entrySet()) {
+                User lawyer = userRepository.findById(projected.getKey()).orElseThrow();
+                assertEquals(projected.getValue(), lawyer.getCurrentWorkload(),
+                        "Carga aplicada distinta de la proyectada: " + lawyer.getEmail());
+            }
+
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void backlogIsSpreadAcrossEligibleLawyers() {
+        // Un abogado civil ya lleva casos: el plan debe compensarlo en vez de repartir por igual
+        workloadCounterService.increment(Collections.nCopies(2, civilLawyers.get(0)));
+
+        BatchAssignmentPlanDTO plan = batchTeamAssignmentService.assignBacklog(true);
+
+        assertPlanIsFeasible(plan);
+        assertLoadSpreadAtMostOne(plan, civilLawyers);
+        assertLoadSpreadAtMostOne(plan, criminalLawyers);
+    }
+
+    @Test
+    void appliedPlanUsesConfiguredCapacity() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            // Por encima del máximo por defecto (10) pero con capacidad según la configuración (12)
+            List<User> busyLawyers = new ArrayList<>(civilLawyers);
+            busyLawyers.addAll(criminalLawyers);
+            for (User lawyer : busyLawyers) {
+                workloadCounterService.increment(Collections.nCopies(10, lawyer));
+            }
+
+            BatchAssignmentPlanDTO plan = batchTeamAssignmentService.assignBacklog(false);
+            assertTrue(plan.isApplied());
+            assertPlanIsFeasible(plan);
+            assertFalse(plan.getTeams().isEmpty(), "Ningún caso asignado con capacidad disponible");
+
+            status.setRollbackOnly();
+        });
+    }
+
+    // ========================================
+    // MÉTODOS AUXILIARES
+    // ========================================
+
+    private void assertPlanIsFeasible(BatchAssignmentPlanDTO plan) {
+        Map<Long, User> lawyers = userRepository.findAvailableLawyers().stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        for (BatchAssignmentPlanDTO.PlannedTeamDTO team : plan.getTeams()) {
+            List<Long> lawyerIds = team.getLawyerIds();
+            assertTrue(lawyerIds.size() >= minLawyersPerCase, "Equipo demasiado pequeño: " + team.getCaseNumber());
+            assertEquals(lawyerIds.size(), new HashSet<>(lawyerIds).size(), "Abogado repetido: " + team.getCaseNumber());
+
+            LegalSpecialty specialty = team.getSpecialty() != null ? LegalSpecialty.valueOf(team.getSpecialty()) : null;
+            for (Long lawyerId : lawyerIds) {
+                User lawyer = lawyers.get(lawyerId);
+                assertTrue(lawyer != null, "Abogado no disponible en el plan: " + lawyerId);
+                if (specialty != null) {
+                    assertTrue(availabilityIndex.parseSpecialties(lawyer.getSpecialization()).contains(specialty),
+                            "Especialidad incorrecta en " + team.getCaseNumber() + ": " + lawyer.getSpecialization());
+                }
+            }
+        }
+
+        // Un abogado que ya estaba por encima del máximo no recibe casos nuevos
+        plan.getTeams().stream()
+                .flatMap(team -> team.getLawyerIds().stream())
+                .distinct()
+                .forEach(lawyerId -> assertTrue(plan.getProjectedWorkload().get(lawyerId) <= maxCasesPerLawyer,
+                        "Abogado " + lawyerId + " supera el máximo de casos"));
+    }
+
+    /**
+     * Balanceo global: entre abogados intercambiables, la carga proyectada no difiere en más de un caso
+     */
+    private void assertLoadSpreadAtMostOne(BatchAssignmentPlanDTO plan, List<User> lawyers) {
+        List<Integer> loads = lawyers.stream()
+                .map(lawyer -> plan.getProjectedWorkload().get(lawyer.getId()))
+                .collect(Collectors.toList());
+        assertTrue(Collections.max(loads) - Collections.min(loads) <= 1, "Carga desequilibrada: " + loads);
+    }
+}
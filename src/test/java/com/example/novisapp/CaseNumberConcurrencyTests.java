@@ -0,0 +1,114 @@
+package com.example.novisapp;
+
+import com.example.novisapp.entity.Client;
+import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.repository.CaseNumberCounterRepository;
+import com.example.novisapp.service.CaseNumberService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generador de números de caso con varios nodos a la vez.
+ * Cada nodo es una instancia propia de CaseNumberService sobre la misma base de datos de prueba: el bean
+ * sincroniza sus llamadas, así que solo instancias distintas reservan bloques en case_number_counters
+ * simultáneamente. Bloques pequeños para que haya cientos de reservas concurrentes.
+ * Los casos se insertan de verdad (la restricción UNIQUE detecta duplicados) y cada transacción hace rollback.
+ */
+@SpringBootTest
+class CaseNumberConcurrencyTests extends IsolatedDatabaseTest {
+
+    private static final int NODES = 4;
+    private static final int THREADS_PER_NODE = 2;
+    private static final int CASES_PER_THREAD = 500;
+    private static final long BLOCK_SIZE = 5;
+
+    @Autowired
+    private CaseNumberCounterRepository counterRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void parallelCaseCreationGetsUniqueNumbers() throws Exception {
+        Client client = createClient();
+
+        List<CaseNumberService> nodes = new ArrayList<>();
+        for (int n = 0; n < NODES; n++) {
+            nodes.add(newNode());
+        }
+
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (CaseNumberService node : nodes) {
+                for (int t = 0; t < THREADS_PER_NODE; t++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < CASES_PER_THREAD; i++) {
+                            numbers.add(createAndRollBack(node, client));
+                        }
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(NODES * THREADS_PER_NODE * CASES_PER_THREAD, numbers.size(), "Números de caso duplicados");
+        assertTrue(numbers.stream().allMatch(number -> number.matches("NVS-\\d{8}-\\d{4,}")));
+        for (CaseNumberService node : nodes) {
+            assertTrue((long) node.getStatus().get("reservedBlocks") > 1, "Un nodo no llegó a reservar bloques");
+        }
+    }
+
+    @AfterEach
+    void removeTestData() {
+        deleteAll();
+    }
+
+    /**
+     * Un nodo más: mismo repositorio y misma base de datos, pero su propio bloque en memoria
+     */
+    private CaseNumberService newNode() {
+        CaseNumberService node = new CaseNumberService(counterRepository, legalCaseRepository, transactionManager);
+        ReflectionTestUtils.setField(node, "blockSize", BLOCK_SIZE);
+        node.init();
+        return node;
+    }
+
+    private String createAndRollBack(CaseNumberService node, Client client) {
+        // Número asignado fuera de la transacción, igual que en el alta de casos del controlador
+        String caseNumber = node.nextCaseNumber();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            LegalCase legalCase = new LegalCase();
+            legalCase.setTitle("Prueba de concurrencia");
+            legalCase.setClient(client);
+            legalCase.setCaseNumber(caseNumber);
+            legalCaseRepository.saveAndFlush(legalCase);
+            status.setRollbackOnly();
+            return legalCase.getCaseNumber();
+        });
+    }
+}
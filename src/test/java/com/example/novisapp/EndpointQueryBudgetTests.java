@@ -0,0 +1,206 @@
+package com.example.novisapp;
+
+import com.example.novisapp.controller.LegalCaseController;
+import com.example.novisapp.controller.TeamDashboardController;
+import com.example.novisapp.controller.UserController;
+import com.example.novisapp.entity.Client;
+import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.entity.LegalSpecialty;
+import com.example.novisapp.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Presupuesto de sentencias SQL por endpoint de lectura.
+ * Cada llamada se ejecuta en una transacción de solo lectura y serializa la respuesta dentro de ella,
+ * igual que con open-in-view: cualquier carga lazy no prevista en el plan de carga suma sentencias.
+ * Las sentencias se cuentan por hilo para no incluir las de las tareas programadas.
+ * Los presupuestos son constantes: no dependen del número de casos, abogados ni asignaciones sembrados.
+ */
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.example.novisapp.EndpointQueryBudgetTests$StatementCounter")
+class EndpointQueryBudgetTests extends IsolatedDatabaseTest {
+
+    @Autowired
+    private LegalCaseController legalCaseController;
+
+    @Autowired
+    private TeamDashboardController teamDashboardController;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Client client;
+    private Long caseId;
+    private Long lawyerId;
+
+    @BeforeEach
+    void seedFirmAndAuthenticateAsAdmin() {
+        client = createClient();
+        seedFirm(3, 2);
+        createCase(client, LegalSpecialty.CIVIL_LAW);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    @AfterEach
+    void clearAuthenticationAndData() {
+        SecurityContextHolder.clearContext();
+        deleteAll();
+    }
+
+    // ========================================
+    // CASOS LEGALES
+    // ========================================
+
+    @Test
+    void caseListStaysWithinThreeStatements() {
+        // Página (proyección) + conteo + equipos de la página
+        assertWithinBudget(3, () -> legalCaseController.getAllCases(0, 10, null, null));
+    }
+
+    @Test
+    void caseDetailStaysWithinTwoStatements() {
+        // Caso con cliente/principal/equipo + asignaciones activas con abogado
+        assertWithinBudget(2, () -> legalCaseController.getCaseById(caseId));
+    }
+
+    @Test
+    void caseAssignmentsUseOneStatement() {
+        assertWithinBudget(1, () -> legalCaseController.getCaseAssignments(caseId));
+    }
+
+    @Test
+    void filteredCaseListsUseOneStatement() {
+        assertWithinBudget(1, () -> legalCaseController.getActiveCases());
+        assertWithinBudget(1, () -> legalCaseController.getUrgentCases());
+        assertWithinBudget(1, () -> legalCaseController.getUnassignedCases());
+    }
+
+    @Test
+    void casesByLawyerUseOneStatement() {
+        assertWithinBudget(1, () -> legalCaseController.getCasesByLawyer(lawyerId));
+    }
+
+    // ========================================
+    // DASHBOARD DE EQUIPOS
+    // ========================================
+
+    @Test
+    void teamDashboardCostIsIndependentOfFirmSize() {
+        // Abogados + consulta agrupada de cargas + instantánea de estadísticas (las dos últimas solo si están vencidas)
+        assertWithinBudget(3, () -> teamDashboardController.getTeamsDashboard());
+
+        // Un despacho cuatro veces mayor cuesta lo mismo
+        seedFirm(12, 8);
+        assertWithinBudget(3, () -> teamDashboardController.getTeamsDashboard());
+    }
+
+    @Test
+    void teamReadEndpointsDoNotTouchAssignedCases() {
+        assertWithinBudget(1, () -> teamDashboardController.getAvailableLawyers());
+        assertWithinBudget(1, () -> teamDashboardController.getCaseTeam(caseId));
+        assertWithinBudget(2, () -> teamDashboardController.getWorkloadStats());
+    }
+
+    // ========================================
+    // USUARIOS
+    // ========================================
+
+    @Test
+    void userReadEndpointsUseOneStatement() {
+        assertWithinBudget(1, () -> userController.getUsers(null, null, null));
+        assertWithinBudget(1, () -> userController.getUserById(lawyerId));
+        assertWithinBudget(1, () -> userController.getLawyers(null, null, null));
+    }
+
+    // ========================================
+    // MÉTODOS AUXILIARES
+    // ========================================
+
+    private void assertWithinBudget(long budget, Supplier<ResponseEntity<?>> endpoint) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        long statements = transaction.execute(status -> {
+            StatementCounter.reset();
+            ResponseEntity<?> response = endpoint.get();
+            assertEquals(200, response.getStatusCode().value(), "Respuesta inesperada: " + response.getBody());
+            try {
+                objectMapper.writeValueAsString(response.getBody());
+            } catch (Exception e) {
+                throw new IllegalStateException("No se pudo serializar la respuesta", e);
+            }
+            return StatementCounter.count();
+        });
+
+        assertTrue(statements <= budget,
+                "Sentencias SQL: " + statements + " (presupuesto " + budget + ")");
+    }
+
+    /**
+     * Abogados y casos con equipo de dos abogados, repartidos en orden
+     */
+    private void seedFirm(int lawyers, int teamedCases) {
+        List<User> firm = new ArrayList<>();
+        for (int i = 0; i < lawyers; i++) {
+            firm.add(createLawyer(LegalSpecialty.CIVIL_LAW.name()));
+        }
+        for (int i = 0; i < teamedCases; i++) {
+            LegalCase legalCase = createCase(client, LegalSpecialty.CIVIL_LAW);
+            assignTeam(legalCase, List.of(firm.get(i % lawyers), firm.get((i + 1) % lawyers)));
+            if (caseId == null) {
+                caseId = legalCase.getId();
+                lawyerId = firm.get(0).getId();
+            }
+        }
+    }
+
+    /**
+     * Cuenta las sentencias preparadas por Hibernate en el hilo actual
+     */
+    public static class StatementCounter implements StatementInspector {
+
+        private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static long count() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
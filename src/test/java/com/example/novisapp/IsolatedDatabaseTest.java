@@ -0,0 +1,130 @@
+package com.example.novisapp;
+
+import com.example.novisapp.entity.AssignmentStatus;
+import com.example.novisapp.entity.CaseLawyerAssignment;
+import com.example.novisapp.entity.CaseStatus;
+import com.example.novisapp.entity.Client;
+import com.example.novisapp.entity.LegalCase;
+import com.example.novisapp.entity.LegalSpecialty;
+import com.example.novisapp.entity.User;
+import com.example.novisapp.entity.UserRole;
+import com.example.novisapp.repository.CaseLawyerAssignmentRepository;
+import com.example.novisapp.repository.ClientRepository;
+import com.example.novisapp.repository.LegalCaseRepository;
+import com.example.novisapp.repository.UserRepository;
+import com.example.novisapp.service.WorkloadCounterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MSSQLServerContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base de las pruebas que escriben en la base de datos.
+ * Usan un SQL Server desechable (Testcontainers) con el esquema generado desde las entidades:
+ * nunca el datasource configurado, que por defecto es la base de datos de producción.
+ * Sin Docker disponible las pruebas se omiten. Cada prueba crea sus propios datos con los métodos de abajo.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class IsolatedDatabaseTest {
+
+    private static final MSSQLServerContainer<?> DATABASE =
+            new MSSQLServerContainer<>("mcr.microsoft.com/mssql/server:2022-latest").acceptLicense();
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected ClientRepository clientRepository;
+
+    @Autowired
+    protected LegalCaseRepository legalCaseRepository;
+
+    @Autowired
+    protected CaseLawyerAssignmentRepository assignmentRepository;
+
+    @Autowired
+    protected WorkloadCounterService workloadCounterService;
+
+    /**
+     * Un solo contenedor por ejecución, compartido por todos los contextos de prueba
+     */
+    @DynamicPropertySource
+    static void isolatedDatasource(DynamicPropertyRegistry registry) {
+        if (!DATABASE.isRunning()) {
+            DATABASE.start();
+        }
+        registry.add("spring.datasource.url", DATABASE::getJdbcUrl);
+        registry.add("spring.datasource.username", DATABASE::getUsername);
+        registry.add("spring.datasource.password", DATABASE::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create");
+    }
+
+    // ========================================
+    // DATOS DE PRUEBA
+    // ========================================
+
+    protected Client createClient() {
+        int n = SEQUENCE.incrementAndGet();
+        Client client = new Client();
+        client.setName("Cliente de prueba " + n);
+        client.setEmail("cliente" + n + "@test.novis");
+        return clientRepository.save(client);
+    }
+
+    protected User createLawyer(String specialization) {
+        int n = SEQUENCE.incrementAndGet();
+        User lawyer = new User();
+        lawyer.setEmail("abogado" + n + "@test.novis");
+        lawyer.setPassword("{noop}test");
+        lawyer.setFirstName("Abogado");
+        lawyer.setLastName("Prueba " + n);
+        lawyer.setRole(UserRole.LAWYER);
+        lawyer.setSpecialization(specialization);
+        lawyer.setCountry("MEXICO");
+        return userRepository.save(lawyer);
+    }
+
+    protected LegalCase createCase(Client client, LegalSpecialty specialty) {
+        int n = SEQUENCE.incrementAndGet();
+        LegalCase legalCase = new LegalCase();
+        legalCase.setCaseNumber("TEST-" + n);
+        legalCase.setTitle("Caso de prueba " + n);
+        legalCase.setStatus(CaseStatus.OPEN);
+        legalCase.setRequiredSpecialty(specialty);
+        legalCase.setClient(client);
+        return legalCaseRepository.save(legalCase);
+    }
+
+    /**
+     * Equipo activo para el caso, con la carga de trabajo ajustada como en las asignaciones reales
+     */
+    protected void assignTeam(LegalCase legalCase, List<User> lawyers) {
+        for (User lawyer : lawyers) {
+            CaseLawyerAssignment assignment = new CaseLawyerAssignment();
+            assignment.setLegalCase(legalCase);
+            assignment.setUser(lawyer);
+            assignment.setStatus(AssignmentStatus.ACTIVE);
+            assignment.setAssignedDate(LocalDateTime.now());
+            assignmentRepository.save(assignment);
+        }
+        workloadCounterService.increment(lawyers);
+
+        legalCase.setTeamAssigned(true);
+        legalCase.setStatus(CaseStatus.IN_PROGRESS);
+        legalCaseRepository.save(legalCase);
+    }
+
+    protected void deleteAll() {
+        assignmentRepository.deleteAllInBatch();
+        legalCaseRepository.deleteAllInBatch();
+        clientRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+}
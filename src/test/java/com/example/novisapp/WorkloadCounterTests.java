@@ -0,0 +1,149 @@
+package com.example.novisapp;
+
+import com.example.novisapp.entity.AssignmentStatus;
+import com.example.novisapp.entity.LegalSpecialty;
+import com.example.novisapp.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga de trabajo con UPDATE atómicos: incrementos concurrentes, saves con valores viejos y reconciliación.
+ * Cada prueba usa un abogado propio en la base de datos de prueba, con un caso asignado, y lo elimina al final.
+ */
+@SpringBootTest(properties = "novis.teams.workload.reconcile.enabled=false")
+class WorkloadCounterTests extends IsolatedDatabaseTest {
+
+    private static final int THREADS = 16;
+    private static final int CHANGES_PER_THREAD = 25;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long lawyerId;
+
+    @BeforeEach
+    void createLawyerWithOneCase() {
+        User lawyer = createLawyer(LegalSpecialty.CIVIL_LAW.name());
+        assignTeam(createCase(createClient(), LegalSpecialty.CIVIL_LAW), List.of(lawyer));
+        lawyerId = lawyer.getId();
+    }
+
+    @AfterEach
+    void removeLawyer() {
+        deleteAll();
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        int before = currentWorkload(lawyerId);
+
+        runConcurrently(() -> change(lawyerId, true));
+        assertEquals(before + THREADS * CHANGES_PER_THREAD, currentWorkload(lawyerId), "Incrementos perdidos");
+
+        runConcurrently(() -> change(lawyerId, false));
+        assertEquals(before, currentWorkload(lawyerId), "Decrementos perdidos");
+    }
+
+    @Test
+    void savingAStaleUserDoesNotOverwriteWorkload() {
+        int before = currentWorkload(lawyerId);
+        User stale = userRepository.findById(lawyerId).orElseThrow();
+
+        change(lawyerId, true);
+        userRepository.save(stale);
+        assertEquals(before + 1, currentWorkload(lawyerId), "El save pisó la carga");
+
+        change(lawyerId, false);
+        assertEquals(before, currentWorkload(lawyerId));
+    }
+
+    @Test
+    void reconciliationReportsAndFixesDrift() {
+        assertEquals(1, countedAssignments(lawyerId));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            // Forzar una deriva de +3 sobre el valor correcto
+            userRepository.reconcileWorkload(lawyerId, currentWorkload(lawyerId), countedAssignments(lawyerId) + 3);
+
+            Map<String, Object> report = workloadCounterService.reconcile();
+
+            assertTrue((Integer) report.get("lastDriftCount") >= 1);
+            assertTrue(report.get("lastDrift").toString().contains("usuario " + lawyerId + ":"));
+            assertEquals(countedAssignments(lawyerId), currentWorkload(lawyerId), "La deriva no se corrigió");
+
+            status.setRollbackOnly();
+        });
+    }
+
+    // ========================================
+    // MÉTODOS AUXILIARES
+    // ========================================
+
+    private void runConcurrently(Runnable perChange) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                        perChange.run();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Cada cambio en su propia transacción, con la entidad leída al inicio (como en los servicios)
+     */
+    private void change(Long lawyerId, boolean increment) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User lawyer = userRepository.findById(lawyerId).orElseThrow();
+            if (increment) {
+                workloadCounterService.increment(List.of(lawyer));
+            } else {
+                workloadCounterService.decrement(List.of(lawyer));
+            }
+        });
+    }
+
+    private int countedAssignments(Long userId) {
+        return assignmentRepository.countAssignmentsByLawyer(EnumSet.of(AssignmentStatus.ACTIVE, AssignmentStatus.PENDING))
+                .stream()
+                .filter(row -> userId.equals(row[0]))
+                .mapToInt(row -> ((Number) row[1]).intValue())
+                .findFirst()
+                .orElse(0);
+    }
+
+    private int currentWorkload(Long userId) {
+        return userRepository.findAllWorkloads().stream()
+                .filter(row -> userId.equals(row[0]))
+                .mapToInt(row -> ((Number) row[1]).intValue())
+                .findFirst()
+                .orElseThrow();
+    }
+}